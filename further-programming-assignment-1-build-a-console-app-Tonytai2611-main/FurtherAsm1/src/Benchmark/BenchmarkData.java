@@ -0,0 +1,136 @@
+/**
+ * Generates the data files the benchmarks read, in the formats the DAOs write.
+ * The files are written to FurtherAsm1/src/File below the given directory, the layout the DAOs
+ * expect relative to the working directory, so a benchmark is run from that directory:
+ *
+ *   java -cp out Benchmark.BenchmarkData /tmp/bench 50000 1000000 200000
+ *   cd /tmp/bench && java -cp /path/to/out Benchmark.PaymentLoadBenchmark
+ *
+ * Payment records are about 45 bytes and rental agreement records about 170 bytes, so for the
+ * read benchmarks 230,000 payments and 60,000 agreements make files of about 10 MB each,
+ * 2,300,000 and 600,000 about 100 MB, and 23,000,000 and 6,000,000 about 1 GB.
+ * The records come from a fixed seed, so every run generates the same files.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+public class BenchmarkData {
+    private static final int PROPERTIES = 20; // Of each kind
+    private static final String[] ADDRESSES = {"Le Loi Street", "Tran Hung Dao", "Nguyen Hue", "Go Vap", "Ben Tre"};
+    private static final String[] BUSINESS_TYPES = {"Office", "Retail", "Warehouse"};
+    private static final String[] PAYMENT_METHODS = {"Bank Transfer", "Cash", "Credit Card"};
+    private static final String[] STATUSES = {"AVAILABLE", "RENTED", "UNDER_MAINTENANCE"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: BenchmarkData <directory> <tenants> <payments> <agreements>");
+            return;
+        }
+        File dataDirectory = new File(args[0], "FurtherAsm1/src/File");
+        int tenants = Measurement.intArg(args, 1, 0);
+        int payments = Measurement.intArg(args, 2, 0);
+        int agreements = Measurement.intArg(args, 3, 0);
+        int owners = Math.max(100, tenants / 25);
+        int hosts = owners;
+        if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + dataDirectory);
+        }
+
+        Random random = new Random(42);
+        writePeople(new File(dataDirectory, "tenants.txt"), "T", "Tenant Name ", tenants, "12-01-1999", "contact", "@mail.com");
+        writePeople(new File(dataDirectory, "owners.txt"), "O", "Owner ", owners, "01-01-1980", "owner", "@mail.com");
+        writePeople(new File(dataDirectory, "hosts.txt"), "H", "Host ", hosts, "01-01-1985", "host", "@mail.com");
+        String[] commercial = writeCommercialProperties(new File(dataDirectory, "commercial_properties.txt"));
+        String[] residential = writeResidentialProperties(new File(dataDirectory, "residential_properties.txt"));
+        writePayments(new File(dataDirectory, "payments.txt"), payments, tenants, random);
+        writeAgreements(new File(dataDirectory, "rental_agreements.txt"), agreements, owners, tenants, hosts,
+                commercial, residential, random);
+        System.out.println("Generated " + tenants + " tenants, " + payments + " payments and " + agreements
+                + " rental agreements in " + dataDirectory);
+    }
+
+    // Owners, tenants and hosts share one format: ID, name, date of birth and contact info
+    private static void writePeople(File file, String idPrefix, String namePrefix, int count, String dateOfBirth,
+                                    String contactPrefix, String contactSuffix) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 1; i <= count; i++) {
+                writer.write(idPrefix + i + "," + namePrefix + i + "," + dateOfBirth + "," + contactPrefix + i + contactSuffix);
+                writer.newLine();
+            }
+        }
+    }
+
+    // Returns the records as agreements embed them: type, ID and the fields of the property file
+    private static String[] writeCommercialProperties(File file) throws IOException {
+        String[] embedded = new String[PROPERTIES];
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 1; i <= PROPERTIES; i++) {
+                String fields = i + " " + ADDRESSES[i % ADDRESSES.length] + "," + (i * 1000000.0) + "," + STATUSES[i % 2]
+                        + "," + BUSINESS_TYPES[i % BUSINESS_TYPES.length] + "," + (i % 10) + "," + (i * 10.0);
+                writer.write("CP" + i + "," + fields);
+                writer.newLine();
+                embedded[i - 1] = "CommercialProperty;CP" + i + ";" + fields.replace(',', ';');
+            }
+        }
+        return embedded;
+    }
+
+    private static String[] writeResidentialProperties(File file) throws IOException {
+        String[] embedded = new String[PROPERTIES];
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 1; i <= PROPERTIES; i++) {
+                String fields = i + " " + ADDRESSES[i % ADDRESSES.length] + "," + (i * 500000.0) + "," + STATUSES[i % 2]
+                        + "," + (1 + i % 5) + "," + (i % 2 == 0) + "," + (i % 3 == 0);
+                writer.write("RP" + i + "," + fields);
+                writer.newLine();
+                embedded[i - 1] = "ResidentialProperty;RP" + i + ";" + fields.replace(',', ';');
+            }
+        }
+        return embedded;
+    }
+
+    private static void writePayments(File file, int count, int tenants, Random random) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (int i = 1; i <= count; i++) {
+                writer.write("P" + i + ",T" + (1 + random.nextInt(tenants)) + "," + (1000.0 * (1 + random.nextInt(10000)))
+                        + "," + date(random, "dd-MM-yyyy") + "," + PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void writeAgreements(File file, int count, int owners, int tenants, int hosts,
+                                        String[] commercial, String[] residential, Random random) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (int i = 1; i <= count; i++) {
+                String property = random.nextBoolean()
+                        ? commercial[random.nextInt(commercial.length)]
+                        : residential[random.nextInt(residential.length)];
+                writer.write("RA" + i + "," + date(random, "yyyy-MM-dd") + ",O" + (1 + random.nextInt(owners))
+                        + ",T" + (1 + random.nextInt(tenants))
+                        + ",T" + (1 + random.nextInt(tenants)) + ";T" + (1 + random.nextInt(tenants)) + ";"
+                        + "," + property
+                        + ",H" + (1 + random.nextInt(hosts)) + ";"
+                        + ",MONTHLY," + (1 + random.nextInt(24)) + ",Standard terms apply,"
+                        + (1000.0 * (100 + random.nextInt(900))) + ",ACTIVE");
+                writer.newLine();
+            }
+        }
+    }
+
+    // A day in 2024, in the given field order of day, month and year
+    private static String date(Random random, String pattern) {
+        int dayOfMonth = 1 + random.nextInt(28);
+        int monthOfYear = 1 + random.nextInt(12);
+        String day = (dayOfMonth < 10 ? "0" : "") + dayOfMonth;
+        String month = (monthOfYear < 10 ? "0" : "") + monthOfYear;
+        return pattern.equals("yyyy-MM-dd") ? "2024-" + month + "-" + day : day + "-" + month + "-2024";
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Measures full reads of payments.txt and rental_agreements.txt through their DAOs, with the entities
+ * they reference loaded beforehand. The reader is chosen by the storage options, which are fixed when
+ * the JVM starts, so the buffered reader and the memory-mapped reader are compared over two runs:
+ *
+ *   java -Drental.mmap=false -Drental.parallel.minBytes=9223372036854775807 -cp /path/to/out Benchmark.MappedReadBenchmark
+ *   java -Drental.parallel.minBytes=9223372036854775807 -cp /path/to/out Benchmark.MappedReadBenchmark
+ *
+ * Without the rental.parallel.minBytes option, payment files of 16 MB or more go to the parallel
+ * mapped reader instead. Run from a directory generated by {@link BenchmarkData}; see there for the
+ * record counts of 10 MB, 100 MB and 1 GB files. Reading the 1 GB files needs a heap of about 12 GB.
+ *
+ *   Arguments: [rounds] [warmups]
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Benchmark;
+
+import Classes.*;
+import DAO.FileEntityLookup;
+import DAO.PaymentDAO;
+import DAO.RentalAgreementDAO;
+import DAO.StorageOptions;
+
+import java.io.File;
+import java.util.List;
+
+public class MappedReadBenchmark {
+
+    public static void main(String[] args) {
+        int rounds = Measurement.intArg(args, 0, 5);
+        int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        FileEntityLookup entities = new FileEntityLookup();
+        entities.ensureLoaded();
+        List<Owner> owners = entities.owners();
+        List<Tenant> tenants = entities.tenants();
+        List<Host> hosts = entities.hosts();
+        List<CommercialProperty> commercialProperties = entities.commercialProperties();
+        List<ResidentialProperty> residentialProperties = entities.residentialProperties();
+
+        String reader = !StorageOptions.MAPPED_READ_ENABLED ? "buffered reader"
+                : StorageOptions.PARALLEL_LOAD_MIN_BYTES == Long.MAX_VALUE ? "memory-mapped reader"
+                : "memory-mapped reader, parallel from " + (StorageOptions.PARALLEL_LOAD_MIN_BYTES >> 20) + " MB";
+        System.out.println("Reading through the " + reader);
+
+        PaymentDAO paymentDAO = new PaymentDAO(entities);
+        Measurement.run(label("payments.txt"), warmups, rounds, () -> paymentDAO.readFromFile(tenants));
+
+        RentalAgreementDAO rentalAgreementDAO = new RentalAgreementDAO(entities);
+        Measurement.run(label("rental_agreements.txt"), warmups, rounds, () -> rentalAgreementDAO.readFromFile(
+                owners, tenants, hosts, commercialProperties, residentialProperties));
+    }
+
+    private static String label(String fileName) {
+        File file = new File("FurtherAsm1/src/File", fileName);
+        return String.format("%s (%.0f MB)", fileName, file.length() / 1e6);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Timing and allocation measurement shared by the benchmark programs.
+ * The project has no build file to run JMH from, so each benchmark is a plain main class: a workload
+ * is run a few times to warm up the JIT, then measured over several rounds on the calling thread,
+ * each started after a garbage collection.
+ * Allocation is read from the thread's allocated-bytes counter, which HotSpot JVMs provide.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+final class Measurement {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+    private static volatile Object sink; // Holds the result of a round until the next one
+
+    private Measurement() {
+    }
+
+    /**
+     * Runs a workload for the warm-up rounds, then measures it and prints the median and best time
+     * with the median allocation.
+     *
+     * @param label    The name printed in front of the results.
+     * @param warmups  The number of unmeasured rounds.
+     * @param rounds   The number of measured rounds.
+     * @param workload The work of one round; its result is kept so the JIT cannot drop the work.
+     * @return The median time of a round in nanoseconds.
+     */
+    static long run(String label, int warmups, int rounds, Supplier<?> workload) {
+        for (int i = 0; i < warmups; i++) {
+            sink = workload.get();
+        }
+        long[] nanos = new long[rounds];
+        long[] bytes = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            sink = null;
+            System.gc(); // Collect the previous round's garbage before the clock starts, not during the round
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            sink = workload.get();
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = allocatedBytes() - allocatedBefore;
+        }
+        sink = null;
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        System.out.printf("%-44s median %9.1f ms  best %9.1f ms  allocated %9.1f MB%n",
+                label, nanos[rounds / 2] / 1e6, nanos[0] / 1e6, bytes[rounds / 2] / 1e6);
+        return nanos[rounds / 2];
+    }
+
+    /**
+     * Returns the bytes allocated so far by the calling thread, or 0 if the JVM does not count them.
+     * Work handed to other threads (e.g. a parallel read) is not included.
+     *
+     * @return The allocated bytes of the calling thread.
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Reads a positive number argument, or returns the default when it is missing.
+     *
+     * @param args         The program arguments.
+     * @param index        The position of the argument.
+     * @param defaultValue The value used when there is no such argument.
+     * @return The parsed number.
+     */
+    static int intArg(String[] args, int index, int defaultValue) {
+        if (args.length <= index) {
+            return defaultValue;
+        }
+        int value = Integer.parseInt(args[index]);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Expected a positive number: " + args[index]);
+        }
+        return value;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        System.out.println("Allocation is not measured: the JVM does not count allocated bytes per thread.");
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Measures loading the payment ledger with tenants resolved through the per-load hash index, against
+ * the previous resolution, which read the tenant file again and searched it linearly for every payment.
+ * The previous resolution takes hours for a large ledger, so it is timed over the first payments
+ * only and extrapolated to the whole file.
+ *
+ * Run from a directory generated by {@link BenchmarkData}, e.g. with 50,000 tenants and 1,000,000 payments:
+ *
+ *   java -Xmx2g -cp /path/to/out Benchmark.PaymentLoadBenchmark [rounds] [samplePayments]
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Benchmark;
+
+import Classes.Payment;
+import Classes.Tenant;
+import DAO.FileEntityLookup;
+import DAO.PaymentDAO;
+import DAO.TenantDAO;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class PaymentLoadBenchmark {
+    private static final String PAYMENTS_FILE = "FurtherAsm1/src/File/payments.txt";
+
+    public static void main(String[] args) throws IOException {
+        int rounds = Measurement.intArg(args, 0, 5);
+        int samplePayments = Measurement.intArg(args, 1, 200);
+
+        TenantDAO tenantDAO = new TenantDAO();
+        List<Tenant> tenants = tenantDAO.readFromFile();
+        PaymentDAO paymentDAO = new PaymentDAO(new FileEntityLookup());
+        List<Payment> payments = paymentDAO.readFromFile(tenants);
+        System.out.println("Loading " + payments.size() + " payments against " + tenants.size() + " tenants");
+
+        long indexed = Measurement.run("Load payments, indexed tenants", 2, rounds, () -> paymentDAO.readFromFile(tenants));
+
+        Set<Tenant> sharedTenants = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Payment payment : payments) {
+            sharedTenants.add(payment.getTenant());
+        }
+        System.out.println("The payments share " + sharedTenants.size() + " Tenant instances");
+
+        // Previous resolution: the tenant file is read again and searched from the start for every payment
+        List<String> tenantIds = readTenantIds(samplePayments);
+        long previous = Measurement.run("Resolve " + tenantIds.size() + " payments, previous", 0, 1, () -> {
+            int found = 0;
+            for (String tenantId : tenantIds) {
+                for (Tenant tenant : tenantDAO.readFromFile()) {
+                    if (tenant.getId().equals(tenantId)) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            return found;
+        });
+        double previousTotal = (double) previous / tenantIds.size() * payments.size();
+        System.out.printf("Previous resolution extrapolated to %d payments: %.1f s, %.0fx the indexed load%n",
+                payments.size(), previousTotal / 1e9, previousTotal / indexed);
+    }
+
+    // The tenant ID is the second field of a payment record
+    private static List<String> readTenantIds(int count) throws IOException {
+        List<String> tenantIds = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(PAYMENTS_FILE))) {
+            String line;
+            while (tenantIds.size() < count && (line = reader.readLine()) != null) {
+                tenantIds.add(line.split(",")[1]);
+            }
+        }
+        return tenantIds;
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Compares parsing payment and rental agreement records with String.split, as the DAOs did before,
+ * against the reusable CsvTokenizer they use now. Both parsers read every field of a record into its
+ * type the way the DAOs do, including the ';'-separated sub-tenants, property and hosts of an agreement;
+ * references are not resolved, so only the parsing is measured. Dates are decoded with the same
+ * DateCodec on both sides. The records are read into memory before the measurement.
+ *
+ * Run from a directory generated by {@link BenchmarkData}:
+ *
+ *   java -cp /path/to/out Benchmark.TokenizerBenchmark [rounds] [maxRecords]
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Benchmark;
+
+import Classes.DateCodec;
+import Classes.Property;
+import Classes.RentalAgreement;
+import DAO.CsvTokenizer;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TokenizerBenchmark {
+    private static final RentalAgreement.RentalCycleType[] RENTAL_CYCLES = RentalAgreement.RentalCycleType.values();
+    private static final RentalAgreement.RentalAgreementStatus[] AGREEMENT_STATUSES = RentalAgreement.RentalAgreementStatus.values();
+    private static final Property.PropertyStatus[] PROPERTY_STATUSES = Property.PropertyStatus.values();
+
+    // Parse one record into a checksum of its fields, so the work cannot be dropped
+    private interface LineParser {
+        long parse(String line) throws ParseException;
+    }
+
+    private interface TokenizerParser {
+        long parse(CsvTokenizer fields) throws ParseException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rounds = Measurement.intArg(args, 0, 5);
+        int maxRecords = Measurement.intArg(args, 1, 1000000);
+
+        List<String> payments = readLines("FurtherAsm1/src/File/payments.txt", maxRecords);
+        compare("payments.txt", payments, rounds, TokenizerBenchmark::splitPayment,
+                new CsvTokenizer(','), TokenizerBenchmark::tokenizePayment);
+
+        List<String> agreements = readLines("FurtherAsm1/src/File/rental_agreements.txt", maxRecords);
+        CsvTokenizer nested = new CsvTokenizer(';');
+        compare("rental_agreements.txt", agreements, rounds, TokenizerBenchmark::splitAgreement,
+                new CsvTokenizer(','), fields -> tokenizeAgreement(fields, nested));
+    }
+
+    private static void compare(String file, List<String> lines, int rounds, LineParser split, CsvTokenizer tokenizer,
+                                TokenizerParser tokenized) {
+        System.out.println(file + ": " + lines.size() + " records");
+        long splitNanos = Measurement.run("  String.split", 2, rounds, () -> parseAll(lines, split));
+        long splitBytes = allocationOf(lines, split);
+        LineParser viaTokenizer = line -> tokenized.parse(tokenizer.reset(line));
+        long tokenizerNanos = Measurement.run("  CsvTokenizer", 2, rounds, () -> parseAll(lines, viaTokenizer));
+        long tokenizerBytes = allocationOf(lines, viaTokenizer);
+        System.out.printf("  per record: String.split %.0f ns, %d bytes; CsvTokenizer %.0f ns, %d bytes%n",
+                (double) splitNanos / lines.size(), splitBytes / lines.size(),
+                (double) tokenizerNanos / lines.size(), tokenizerBytes / lines.size());
+    }
+
+    private static long allocationOf(List<String> lines, LineParser parser) {
+        long before = Measurement.allocatedBytes();
+        parseAll(lines, parser);
+        return Measurement.allocatedBytes() - before;
+    }
+
+    private static long parseAll(List<String> lines, LineParser parser) {
+        long checksum = 0;
+        try {
+            for (String line : lines) {
+                checksum += parser.parse(line);
+            }
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+        return checksum;
+    }
+
+    // Previous payment parsing: ID, tenant ID, amount, date and payment method
+    private static long splitPayment(String line) throws ParseException {
+        String[] parts = line.split(",");
+        String paymentId = parts[0];
+        String tenantId = parts[1];
+        double amount = Double.parseDouble(parts[2]);
+        long date = DateCodec.DD_MM_YYYY.parseEpochDay(parts[3]);
+        String paymentMethod = parts[4];
+        return paymentId.length() + tenantId.length() + (long) amount + date + paymentMethod.length();
+    }
+
+    private static long tokenizePayment(CsvTokenizer fields) throws ParseException {
+        String paymentId = fields.nextString();
+        String tenantId = fields.nextString();
+        double amount = fields.nextDouble();
+        long date = fields.nextEpochDay(DateCodec.DD_MM_YYYY);
+        String paymentMethod = fields.nextString();
+        return paymentId.length() + tenantId.length() + (long) amount + date + paymentMethod.length();
+    }
+
+    // Previous agreement parsing: the record is split on ',' and the embedded lists and property on ';'
+    private static long splitAgreement(String line) throws ParseException {
+        String[] parts = line.split(",");
+        long checksum = parts[0].length() + DateCodec.YYYY_MM_DD.parseEpochDay(parts[1]) + parts[2].length() + parts[3].length();
+        for (String subTenantId : parts[4].split(";")) {
+            checksum += subTenantId.length();
+        }
+        String[] property = parts[5].split(";");
+        checksum += property[1].length() + property[2].length() + (long) Double.parseDouble(property[3])
+                + Property.PropertyStatus.valueOf(property[4]).ordinal();
+        if (property[0].equals("CommercialProperty")) {
+            checksum += property[5].length() + Integer.parseInt(property[6]) + (long) Double.parseDouble(property[7]);
+        } else {
+            checksum += Integer.parseInt(property[5]) + (Boolean.parseBoolean(property[6]) ? 1 : 0)
+                    + (Boolean.parseBoolean(property[7]) ? 1 : 0);
+        }
+        for (String hostId : parts[6].split(";")) {
+            checksum += hostId.length();
+        }
+        return checksum + RentalAgreement.RentalCycleType.valueOf(parts[7]).ordinal() + Integer.parseInt(parts[8])
+                + parts[9].length() + (long) Double.parseDouble(parts[10])
+                + RentalAgreement.RentalAgreementStatus.valueOf(parts[11]).ordinal();
+    }
+
+    private static long tokenizeAgreement(CsvTokenizer fields, CsvTokenizer nested) throws ParseException {
+        long checksum = fields.nextString().length() + fields.nextEpochDay(DateCodec.YYYY_MM_DD)
+                + fields.nextString().length() + fields.nextString().length();
+        checksum += sumOfIds(fields.nextInto(nested));
+        CsvTokenizer property = fields.nextInto(nested);
+        boolean commercial = property.nextString().equals("CommercialProperty");
+        checksum += property.nextString().length() + property.nextString().length() + (long) property.nextDouble()
+                + property.nextEnum(PROPERTY_STATUSES).ordinal();
+        if (commercial) {
+            checksum += property.nextString().length() + property.nextInt() + (long) property.nextDouble();
+        } else {
+            checksum += property.nextInt() + (property.nextBoolean() ? 1 : 0) + (property.nextBoolean() ? 1 : 0);
+        }
+        checksum += sumOfIds(fields.nextInto(nested));
+        return checksum + fields.nextEnum(RENTAL_CYCLES).ordinal() + fields.nextInt() + fields.nextString().length()
+                + (long) fields.nextDouble() + fields.nextEnum(AGREEMENT_STATUSES).ordinal();
+    }
+
+    // The sub-tenant and host lists end with a ';', which leaves an empty last field
+    private static long sumOfIds(CsvTokenizer ids) {
+        long checksum = 0;
+        while (ids.hasNext()) {
+            if (ids.nextIsEmpty()) {
+                ids.skip();
+            } else {
+                checksum += ids.nextString().length();
+            }
+        }
+        return checksum;
+    }
+
+    private static List<String> readLines(String path, int maxRecords) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while (lines.size() < maxRecords && (line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -32,6 +32,16 @@ public class CommercialProperty extends Property implements Comparable<Commercia
         this.squareFootage = squareFootage;
     }
 
+    /**
+     * Constructs a CommercialProperty object with only an ID, e.g. for a rental agreement whose property
+     * is missing from the property file.
+     *
+     * @param propertyId The unique ID of the property.
+     */
+    public CommercialProperty(String propertyId) {
+        super(propertyId);
+    }
+
     public String getBusinessType() {
         return businessType;
     }
@@ -0,0 +1,219 @@
+/**
+ * Fixed-pattern date codec for the two date layouts used by the rental system:
+ * `dd-MM-yyyy` (people, payments and display) and `yyyy-MM-dd` (rental agreement files).
+ *
+ * Unlike SimpleDateFormat, the codec holds no mutable state, so one constant can be shared by any
+ * number of threads without locks. Dates are parsed straight from the characters to an epoch day
+ * and formatted by appending digits, so no formatter, Calendar or intermediate String is created.
+ * Like a lenient SimpleDateFormat, out-of-range days and months roll over (31-02-2024 is 02-03-2024)
+ * and a Date stands for local midnight in the default time zone. Dates use the proleptic Gregorian
+ * calendar, which only differs from SimpleDateFormat before the year 1582.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Classes;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+public enum DateCodec {
+    DD_MM_YYYY(2, 1, 0),
+    YYYY_MM_DD(0, 1, 2);
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    // Cached once: TimeZone.getDefault() returns a fresh clone on every call
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    // Position (0, 1 or 2) of each component in the pattern
+    private final int yearPos;
+    private final int monthPos;
+    private final int dayPos;
+
+    DateCodec(int yearPos, int monthPos, int dayPos) {
+        this.yearPos = yearPos;
+        this.monthPos = monthPos;
+        this.dayPos = dayPos;
+    }
+
+    /**
+     * Parses a date string into a Date at local midnight.
+     *
+     * @param text The date text, e.g. "29-11-2024".
+     * @return The parsed date.
+     * @throws ParseException If the text does not match the pattern.
+     */
+    public Date parse(CharSequence text) throws ParseException {
+        return toDate(parseEpochDay(text, 0, text.length()));
+    }
+
+    /**
+     * Parses a date string into the number of days since 1970-01-01.
+     *
+     * @param text The date text.
+     * @return The epoch day.
+     * @throws ParseException If the text does not match the pattern.
+     */
+    public int parseEpochDay(CharSequence text) throws ParseException {
+        return parseEpochDay(text, 0, text.length());
+    }
+
+    /**
+     * Parses a range of characters into the number of days since 1970-01-01, without copying it.
+     *
+     * @param text The characters holding the date.
+     * @param from The first index of the date.
+     * @param to   The index after the last character of the date.
+     * @return The epoch day.
+     * @throws ParseException If the range does not match the pattern.
+     */
+    public int parseEpochDay(CharSequence text, int from, int to) throws ParseException {
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int i = from;
+        for (int component = 0; component < 3; component++) {
+            if (component > 0) {
+                if (i >= to || text.charAt(i) != '-') {
+                    throw unparseable(text, from, to, i);
+                }
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < to && text.charAt(i) >= '0' && text.charAt(i) <= '9' && digits < 9) {
+                value = value * 10 + (text.charAt(i) - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0) {
+                throw unparseable(text, from, to, i);
+            }
+            if (component == yearPos) {
+                year = value;
+            } else if (component == monthPos) {
+                month = value;
+            } else {
+                day = value;
+            }
+        }
+        if (i != to) {
+            throw unparseable(text, from, to, i);
+        }
+        // Roll months and days over the way a lenient calendar does
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+        return epochDayOf(year, month, 1) + day - 1;
+    }
+
+    /**
+     * Formats a date.
+     *
+     * @param date The date to format.
+     * @return The formatted date, e.g. "29-11-2024".
+     */
+    public String format(Date date) {
+        return formatTo(new StringBuilder(10), date).toString();
+    }
+
+    /**
+     * Appends a formatted date to a buffer, so callers building a record or a row can reuse one buffer.
+     *
+     * @param buffer The buffer to append to.
+     * @param date   The date to format.
+     * @return The buffer.
+     */
+    public StringBuilder formatTo(StringBuilder buffer, Date date) {
+        return formatEpochDayTo(buffer, epochDay(date));
+    }
+
+    /**
+     * Appends a formatted epoch day to a buffer.
+     *
+     * @param buffer   The buffer to append to.
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The buffer.
+     */
+    public StringBuilder formatEpochDayTo(StringBuilder buffer, int epochDay) {
+        // Civil-from-days (H. Hinnant): shift the era to start on March 1st so leap days come last
+        long z = epochDay + 719_468L;
+        long era = Math.floorDiv(z, 146_097L);
+        long dayOfEra = z - era * 146_097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        for (int component = 0; component < 3; component++) {
+            if (component > 0) {
+                buffer.append('-');
+            }
+            if (component == yearPos) {
+                appendPadded(buffer, year, 4);
+            } else if (component == monthPos) {
+                appendPadded(buffer, month, 2);
+            } else {
+                appendPadded(buffer, day, 2);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Converts a Date to the local epoch day it falls on.
+     *
+     * @param date The date.
+     * @return The number of days since 1970-01-01 in the default time zone.
+     */
+    public static int epochDay(Date date) {
+        long millis = date.getTime();
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Converts an epoch day to a Date at local midnight, as SimpleDateFormat.parse would return.
+     *
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The Date at the start of that day in the default time zone.
+     */
+    public static Date toDate(int epochDay) {
+        long localMidnight = epochDay * MILLIS_PER_DAY;
+        long millis = localMidnight - ZONE.getOffset(localMidnight - ZONE.getRawOffset());
+        // Correct once more in case the guess landed on the other side of a DST change
+        millis = localMidnight - ZONE.getOffset(millis);
+        if (millis + ZONE.getOffset(millis) != localMidnight) {
+            // Midnight falls in a forward gap: like a lenient calendar, read it with the offset before the gap
+            millis = localMidnight - ZONE.getOffset(localMidnight - ZONE.getRawOffset() - MILLIS_PER_DAY);
+        }
+        return new Date(millis);
+    }
+
+    // Days-from-civil (H. Hinnant) for a proleptic Gregorian date
+    private static int epochDayOf(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (int) (era * 146_097 + dayOfEra - 719_468);
+    }
+
+    private static void appendPadded(StringBuilder buffer, int value, int width) {
+        if (value < 0) {
+            buffer.append(value);
+            return;
+        }
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) {
+                buffer.append('0');
+            }
+        }
+        buffer.append(value);
+    }
+
+    private static ParseException unparseable(CharSequence text, int from, int to, int errorIndex) {
+        return new ParseException("Unparseable date: \"" + text.subSequence(from, to) + "\"", errorIndex - from);
+    }
+}
@@ -6,7 +6,6 @@
  * @author <Truong Phung Tan Tai - s3974929>
  */
 package Classes;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Objects;
 
@@ -105,12 +104,11 @@ public class Payment {
      */
     @Override
     public String toString() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
         return String.format("|%-15s|%-15s|%-15s|%-15s|%-30s|",
                 paymentId,
                 tenant.getFullName(),
                 amount,
-                dateFormat.format(date),
+                DateCodec.DD_MM_YYYY.format(date),
                 paymentMethod);
     }
 }
@@ -6,7 +6,6 @@
  * @author <Truong Phung Tan Tai - s3974929>
  */
 package Classes;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Objects;
 
@@ -95,11 +94,10 @@ public abstract class Person {
      */
     @Override
     public String toString() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
         return String.format("|%-15s|%-20s|%-15s|%-25s",
                 id,
                 fullName,
-                dateFormat.format(dateOfBirth),
+                DateCodec.DD_MM_YYYY.format(dateOfBirth),
                 contactInfo);
     }
 }
@@ -3,8 +3,8 @@
  */
 package Classes;
 
-import java.text.SimpleDateFormat;
 import java.time.Period;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -23,6 +23,17 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
     private double rentalFee;
     private RentalAgreementStatus status;
 
+    // IDs of the references not looked up yet; null once resolved or set
+    private String ownerId;
+    private String mainTenantId;
+    // The owner or main tenant was looked up and not found; its ID is kept for saving, without another lookup
+    private boolean ownerMissing;
+    private boolean mainTenantMissing;
+    private List<String> subTenantIds;
+    private List<String> hostIds;
+    private Resolver resolver;
+    private ChangeListener changeListener; // The manager holding the agreement, told about changes to indexed fields
+
     // Enum defining the status of the agreement
     public enum RentalAgreementStatus {
         NEW, ACTIVE, COMPLETED;
@@ -51,9 +62,55 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
         this.status = status;
     }
 
+    /**
+     * Constructor for a RentalAgreement whose owner, tenants and hosts are loaded lazily: only their IDs
+     * are kept, and each of them is looked up through the resolver the first time its getter is called,
+     * then kept from then on; an ID no entity has is not looked up again until the reference is set.
+     * The ID getters never trigger a lookup.
+     *
+     * @param ownerId      The ID of the owner.
+     * @param mainTenantId The ID of the main tenant.
+     * @param subTenantIds The IDs of the sub-tenants.
+     * @param hostIds      The IDs of the hosts.
+     * @param resolver     Looks the owner, tenants and hosts up by ID, e.g. in the loaded managers.
+     */
+    public RentalAgreement(String contractId, Date ConDate, String ownerId, String mainTenantId, List<String> subTenantIds,
+                           Property rentedProperty, List<String> hostIds, RentalCycleType rentalCycle,
+                           int duration, String contractTerms, double rentalFee, RentalAgreementStatus status,
+                           Resolver resolver) {
+        this(contractId, ConDate, null, null, null, rentedProperty, null, rentalCycle, duration, contractTerms, rentalFee, status);
+        this.ownerId = ownerId;
+        this.mainTenantId = mainTenantId;
+        this.subTenantIds = subTenantIds;
+        this.hostIds = hostIds;
+        this.resolver = resolver;
+    }
+
     public RentalAgreement() {
     }
 
+    /**
+     * Looks up the owner, tenants and hosts of a lazily built agreement by ID.
+     * Returns null when no entity has the ID.
+     */
+    public interface Resolver {
+        Owner owner(String id);
+
+        Tenant tenant(String id);
+
+        Host host(String id);
+    }
+
+    /**
+     * Is told when the status or the rental fee of an agreement changes, so an index over that
+     * field can move it.
+     */
+    public interface ChangeListener {
+        void statusChanged(RentalAgreement agreement, RentalAgreementStatus oldStatus);
+
+        void rentalFeeChanged(RentalAgreement agreement, double oldFee);
+    }
+
     // Getters and Setters
     public RentalCycleType getRentalCycle() { return rentalCycle; }
 
@@ -71,21 +128,71 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
 
     public void setContractDate(Date contractDate) { this.ContractDate = contractDate; }
 
-    public Tenant getMainTenant() { return mainTenant; }
+    public Tenant getMainTenant() {
+        if (mainTenantId != null && !mainTenantMissing) {
+            mainTenant = resolver.tenant(mainTenantId);
+            if (mainTenant != null) {
+                mainTenantId = null;
+            } else {
+                mainTenantMissing = true; // A missing tenant keeps its ID
+            }
+        }
+        return mainTenant;
+    }
 
-    public void setMainTenant(Tenant mainTenant) { this.mainTenant = mainTenant; }
+    public void setMainTenant(Tenant mainTenant) {
+        this.mainTenant = mainTenant;
+        this.mainTenantId = null;
+        this.mainTenantMissing = false;
+    }
 
-    public List<Tenant> getSubTenants() { return subTenants; }
+    public List<Tenant> getSubTenants() {
+        if (subTenantIds != null) {
+            List<Tenant> resolved = new ArrayList<>(subTenantIds.size());
+            for (String id : subTenantIds) {
+                Tenant tenant = resolver.tenant(id);
+                if (tenant != null) {
+                    resolved.add(tenant);
+                } else {
+                    System.err.println("SubTenant not found for ID: " + id);
+                }
+            }
+            subTenants = resolved;
+            subTenantIds = null;
+        }
+        return subTenants;
+    }
 
-    public void setSubTenants(List<Tenant> subTenants) { this.subTenants = subTenants; }
+    public void setSubTenants(List<Tenant> subTenants) {
+        this.subTenants = subTenants;
+        this.subTenantIds = null;
+    }
 
     public Property getRentedProperty() { return rentedProperty; }
 
     public void setRentedProperty(Property rentedProperty) { this.rentedProperty = rentedProperty; }
 
-    public List<Host> getHosts() { return hosts; }
+    public List<Host> getHosts() {
+        if (hostIds != null) {
+            List<Host> resolved = new ArrayList<>(hostIds.size());
+            for (String id : hostIds) {
+                Host host = resolver.host(id);
+                if (host != null) {
+                    resolved.add(host);
+                } else {
+                    System.err.println("Host not found for ID: " + id);
+                }
+            }
+            hosts = resolved;
+            hostIds = null;
+        }
+        return hosts;
+    }
 
-    public void setHosts(List<Host> hosts) { this.hosts = hosts; }
+    public void setHosts(List<Host> hosts) {
+        this.hosts = hosts;
+        this.hostIds = null;
+    }
 
     public String getContractTerms() { return contractTerms; }
 
@@ -93,15 +200,78 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
 
     public double getRentalFee() { return rentalFee; }
 
-    public void setRentalFee(double rentalFee) { this.rentalFee = rentalFee; }
+    public void setRentalFee(double rentalFee) {
+        double oldFee = this.rentalFee;
+        this.rentalFee = rentalFee;
+        if (changeListener != null && Double.compare(oldFee, rentalFee) != 0) {
+            changeListener.rentalFeeChanged(this, oldFee);
+        }
+    }
 
     public RentalAgreementStatus getStatus() { return status; }
 
-    public void setStatus(RentalAgreementStatus status) { this.status = status; }
+    public void setStatus(RentalAgreementStatus status) {
+        RentalAgreementStatus oldStatus = this.status;
+        this.status = status;
+        if (changeListener != null && oldStatus != status) {
+            changeListener.statusChanged(this, oldStatus);
+        }
+    }
 
-    public Owner getOwner() { return owner; }
+    public void setChangeListener(ChangeListener changeListener) { this.changeListener = changeListener; }
 
-    public void setOwner(Owner owner) { this.owner = owner; }
+    public Owner getOwner() {
+        if (ownerId != null && !ownerMissing) {
+            owner = resolver.owner(ownerId);
+            if (owner != null) {
+                ownerId = null;
+            } else {
+                ownerMissing = true; // A missing owner keeps its ID
+            }
+        }
+        return owner;
+    }
+
+    public void setOwner(Owner owner) {
+        this.owner = owner;
+        this.ownerId = null;
+        this.ownerMissing = false;
+    }
+
+    // ID getters: answer from the pending ID or the resolved object, without a lookup
+    public String getOwnerId() { return owner != null ? owner.getId() : ownerId; }
+
+    public String getMainTenantId() { return mainTenant != null ? mainTenant.getId() : mainTenantId; }
+
+    public List<String> getSubTenantIds() {
+        if (subTenantIds != null) {
+            return subTenantIds;
+        }
+        List<String> ids = new ArrayList<>();
+        if (subTenants != null) {
+            for (Tenant tenant : subTenants) {
+                if (tenant != null) {
+                    ids.add(tenant.getId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    public List<String> getHostIds() {
+        if (hostIds != null) {
+            return hostIds;
+        }
+        List<String> ids = new ArrayList<>();
+        if (hosts != null) {
+            for (Host host : hosts) {
+                if (host != null) {
+                    ids.add(host.getId());
+                }
+            }
+        }
+        return ids;
+    }
 
     /**
      * Compares this rental agreement with another based on the rental fee.
@@ -147,10 +317,10 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
     @Override
     public String toString() {
         // Format the contractDate
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
-        String formattedDate = (ContractDate != null) ? dateFormat.format(ContractDate) : "N/A";
+        String formattedDate = (ContractDate != null) ? DateCodec.DD_MM_YYYY.format(ContractDate) : "N/A";
 
         // String of full names for each subTenant
+        List<Tenant> subTenants = getSubTenants();
         StringBuilder subTenantsNames = new StringBuilder();
         if (subTenants != null && !subTenants.isEmpty()) {
             for (Tenant tenant : subTenants) {
@@ -165,6 +335,7 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
         }
 
         // String of full names for each host
+        List<Host> hosts = getHosts();
         StringBuilder hostsNames = new StringBuilder();
         if (hosts != null && !hosts.isEmpty()) {
             for (Host host : hosts) {
@@ -180,8 +351,8 @@ public class RentalAgreement implements Comparable<RentalAgreement> {
 
         return "| ContractId: " + contractId + "\n" +
                 "| ContractDate: " + formattedDate + "\n" +
-                "| FullName_Owner: " + owner.getFullName() + "\n" +
-                "| MainTenant: " + mainTenant.getFullName() + " | SubTenants: " + subTenantsNames + "\n" +
+                "| FullName_Owner: " + getOwner().getFullName() + "\n" +
+                "| MainTenant: " + getMainTenant().getFullName() + " | SubTenants: " + subTenantsNames + "\n" +
                 "| RentedProperty: " + "\n" + rentedProperty + "\n" +
                 "| Hosts: " + hostsNames + "\n" +
                 "| rentalCycle: " + rentalCycle + "\n" +
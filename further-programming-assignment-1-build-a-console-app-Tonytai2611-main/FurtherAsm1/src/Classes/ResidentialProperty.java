@@ -30,6 +30,16 @@ public class ResidentialProperty extends Property {
         this.petFriendliness = petFriendliness;
     }
 
+    /**
+     * Constructs a ResidentialProperty object with only an ID, e.g. for a rental agreement whose property
+     * is missing from the property file.
+     *
+     * @param propertyId The unique ID of the property.
+     */
+    public ResidentialProperty(String propertyId) {
+        super(propertyId);
+    }
+
     public int getNumBedrooms() {
         return numBedrooms;
     }
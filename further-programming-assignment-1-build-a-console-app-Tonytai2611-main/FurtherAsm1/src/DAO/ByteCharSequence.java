@@ -0,0 +1,92 @@
+/**
+ * Read-only CharSequence view over encoded text bytes, e.g. a window of a memory-mapped data file.
+ * charAt returns the raw byte, which is exact for the ASCII delimiters, digits, enum names and
+ * quotes the tokenizer looks at, as long as the charset encodes ASCII as single bytes that no
+ * other character uses (UTF-8, US-ASCII, ISO-8859-1). Only {@link #decode(int, int)} and toString
+ * turn bytes into characters, so just the fields that become Strings (IDs, names, addresses) are decoded.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.nio.charset.Charset;
+
+public final class ByteCharSequence implements CharSequence {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final Charset charset;
+
+    /**
+     * Constructs a view over a range of a byte array. The array is not copied.
+     *
+     * @param bytes   The array holding the encoded text.
+     * @param offset  The index of the first byte of the view.
+     * @param length  The number of bytes in the view.
+     * @param charset The charset the text was written in.
+     */
+    public ByteCharSequence(byte[] bytes, int offset, int length, Charset charset) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.charset = charset;
+    }
+
+    /**
+     * Checks whether text in a charset can be scanned byte by byte with this class.
+     *
+     * @param charset The charset to check.
+     * @return True for UTF-8, US-ASCII and ISO-8859-1.
+     */
+    public static boolean supports(Charset charset) {
+        String name = charset.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1");
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    /**
+     * Finds the next occurrence of an ASCII character.
+     *
+     * @param c    The character to find.
+     * @param from The index to start at.
+     * @return The index of the character, or -1 if it does not occur.
+     */
+    public int indexOf(char c, int from) {
+        for (int i = from; i < length; i++) {
+            if (bytes[offset + i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a range of the view into a String, copying the bytes once.
+     *
+     * @param start The index of the first byte.
+     * @param end   The index after the last byte.
+     * @return The decoded text.
+     */
+    public String decode(int start, int end) {
+        return new String(bytes, offset + start, end - start, charset);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteCharSequence(bytes, offset + start, end - start, charset);
+    }
+
+    @Override
+    public String toString() {
+        return decode(0, length);
+    }
+}
@@ -14,10 +14,12 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class CommercialPropertyDAO {
     private static final String FILE_PATH = "FurtherAsm1/src/File/commercial_properties.txt";
     private static final Scanner scanner = new Scanner(System.in);
+    private static final PropertyStatus[] PROPERTY_STATUSES = PropertyStatus.values();
 
     /**
      * Converts a CommercialProperty object to a string representation suitable for saving to a file.
@@ -29,10 +31,10 @@ public class CommercialPropertyDAO {
     private String convertToString(CommercialProperty property) {
         return String.join(",",
                 property.getPropertyId(),
-                property.getAddress(),
+                CsvTokenizer.quote(property.getAddress()),
                 String.valueOf(property.getPricing()),
                 property.getStatus().name(),
-                property.getBusinessType(),
+                CsvTokenizer.quote(property.getBusinessType()),
                 String.valueOf(property.getParkingSpaces()),
                 String.valueOf(property.getSquareFootage())
         );
@@ -41,21 +43,20 @@ public class CommercialPropertyDAO {
     /**
      * Converts a line of text from the file into a CommercialProperty object.
      *
-     * @param line The line of text to convert.
+     * @param fields The tokenizer positioned at the start of a CommercialProperty record.
      * @return A CommercialProperty object, or null if the line is invalid.
      */
     // Convert String to a CommercialProperty object
-    private CommercialProperty convertToProperty(String line){
-        String[] parts = line.split(",");
-        if (parts.length < 7) return null;
-
-        String propertyId = parts[0];
-        String address = parts[1];
-        double pricing = Double.parseDouble(parts[2]);
-        PropertyStatus status = PropertyStatus.valueOf(parts[3]);
-        String businessType = parts[4];
-        int parkingSpaces = Integer.parseInt(parts[5]);
-        double squareFootage = Double.parseDouble(parts[6]);
+    private CommercialProperty convertToProperty(CsvTokenizer fields){
+        if (fields.countFields() < 7) return null;
+
+        String propertyId = fields.nextString();
+        String address = fields.nextString();
+        double pricing = fields.nextDouble();
+        PropertyStatus status = fields.nextEnum(PROPERTY_STATUSES);
+        String businessType = fields.nextString();
+        int parkingSpaces = fields.nextInt();
+        double squareFootage = fields.nextDouble();
         return new CommercialProperty(propertyId, address, pricing, status, businessType, parkingSpaces, squareFootage);
     }
 
@@ -81,11 +82,12 @@ public class CommercialPropertyDAO {
             }
         }
 
-        // Read data from the file if it exists
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+        // Read data from the file if it exists, with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                CommercialProperty property = convertToProperty(line);
+                CommercialProperty property = convertToProperty(fields.reset(line));
                 if (property != null) properties.add(property);
             }
         } catch (IOException e) {
@@ -94,6 +96,32 @@ public class CommercialPropertyDAO {
         return properties;
     }
 
+    /**
+     * Reads one commercial property by its ID through the `.idx` sidecar of the file, without reading the other records.
+     *
+     * @param propertyId The ID of the commercial property.
+     * @return The CommercialProperty object, or null if there is no commercial property with that ID.
+     */
+    public CommercialProperty readOne(String propertyId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(propertyId);
+            return line == null ? null : convertToProperty(new CsvTokenizer(',').reset(line));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the commercial properties of the file one at a time, without building a list.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the commercial properties in file order, empty if the file does not exist.
+     */
+    public Stream<CommercialProperty> stream() {
+        return RecordStreams.of(FILE_PATH, () -> this::convertToProperty);
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -112,12 +140,12 @@ public class CommercialPropertyDAO {
     }
 
     /**
-     * Writes a list of CommercialProperty objects to the file.
+     * Writes CommercialProperty objects to the file.
      *
-     * @param properties The list of properties to write.
+     * @param properties The properties to write.
      * @param FILE_PATH  The file path where the data will be saved.
      */
-    public void writeToFile(List<CommercialProperty> properties, String FILE_PATH){
+    public void writeToFile(Iterable<CommercialProperty> properties, String FILE_PATH){
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))){
             for (CommercialProperty property : properties){
                 writer.write(convertToString(property));
@@ -125,6 +153,10 @@ public class CommercialPropertyDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(CommercialPropertyDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
         }
     }
 
@@ -134,6 +166,13 @@ public class CommercialPropertyDAO {
      * @param property The property to add.
      */
     public void addProperty(CommercialProperty property){
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).insert(property.getPropertyId(), convertToString(property))) {
+                System.out.println("Commercial property added successfully.");
+            }
+            return;
+        }
         List<CommercialProperty> properties = readFromFile();
         properties.add(property);
         writeToFile(properties, FILE_PATH);
@@ -147,6 +186,16 @@ public class CommercialPropertyDAO {
      * @return True if the property was updated, false otherwise.
      */
     public boolean updateProperty(CommercialProperty updatedProperty){
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            boolean updated = RecordJournal.forFile(FILE_PATH).update(updatedProperty.getPropertyId(), convertToString(updatedProperty));
+            if (updated) {
+                System.out.println("Commercial property updated successfully.");
+            } else {
+                System.out.println("Commercial property does not exist.");
+            }
+            return updated;
+        }
         List<CommercialProperty> properties = readFromFile();
         boolean updated = false;
 
@@ -174,6 +223,16 @@ public class CommercialPropertyDAO {
      * @return True if the property was deleted, false otherwise.
      */
     public boolean deleteProperty(String propertyId){
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            boolean removed = RecordJournal.forFile(FILE_PATH).delete(propertyId);
+            if (removed) {
+                System.out.println("Commercial property deleted successfully.");
+            } else {
+                System.out.println("Commercial property cannot found.");
+            }
+            return removed;
+        }
         List<CommercialProperty> properties = readFromFile();
         boolean removed = properties.removeIf(property -> property.getPropertyId().equals(propertyId));
 
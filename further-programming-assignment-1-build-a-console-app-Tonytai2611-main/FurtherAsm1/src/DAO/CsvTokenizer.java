@@ -0,0 +1,452 @@
+/**
+ * Reusable cursor-style tokenizer for the delimiter-separated records of the data files.
+ * Fields are scanned in place over a CharSequence, so numeric, boolean and enum fields are parsed
+ * without creating a String or a String[] per record; only fields read with {@link #nextString()}
+ * allocate. Fields may be quoted ("a, b") with doubled quotes as escapes, which lets free text such
+ * as contract terms contain the delimiter. Unquoted records are read exactly as before.
+ *
+ * A tokenizer is not thread-safe; each reading loop uses its own instance and resets it per line.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import Classes.DateCodec;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.NoSuchElementException;
+
+public class CsvTokenizer {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final char delimiter;
+    private CharSequence seq;
+    private int start;
+    private int pos;
+    private int end;
+    private boolean exhausted;
+
+    // Bounds of the field read last
+    private int fieldStart;
+    private int fieldEnd;
+    private boolean fieldQuoted;
+    private boolean fieldEscaped;
+
+    /**
+     * Constructs a tokenizer for the given delimiter, e.g. ',' for records or ';' for embedded lists.
+     *
+     * @param delimiter The field delimiter.
+     */
+    public CsvTokenizer(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Points the tokenizer at a whole record.
+     *
+     * @param record The record to tokenize.
+     * @return This tokenizer.
+     */
+    public CsvTokenizer reset(CharSequence record) {
+        return reset(record, 0, record.length());
+    }
+
+    /**
+     * Points the tokenizer at a range of a character sequence.
+     *
+     * @param source The characters to tokenize.
+     * @param from   The first index of the range.
+     * @param to     The index after the last character of the range.
+     * @return This tokenizer.
+     */
+    public CsvTokenizer reset(CharSequence source, int from, int to) {
+        this.seq = source;
+        this.start = from;
+        this.pos = from;
+        this.end = to;
+        this.exhausted = false;
+        return this;
+    }
+
+    /**
+     * Returns the whole record being tokenized, e.g. for error messages.
+     *
+     * @return The record as a String.
+     */
+    public String record() {
+        return seq.subSequence(start, end).toString();
+    }
+
+    /**
+     * Counts the fields of the record without consuming any of them.
+     * Like String.split, trailing empty fields are not counted.
+     *
+     * @return The number of fields.
+     */
+    public int countFields() {
+        int count = 0;
+        int nonEmpty = 0;
+        boolean inQuotes = false;
+        boolean fieldHasContent = false;
+        for (int i = start; i < end; i++) {
+            char c = seq.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                fieldHasContent = true;
+            } else if (c == delimiter && !inQuotes) {
+                count++;
+                if (fieldHasContent) {
+                    nonEmpty = count;
+                }
+                fieldHasContent = false;
+            } else {
+                fieldHasContent = true;
+            }
+        }
+        count++;
+        if (fieldHasContent) {
+            nonEmpty = count;
+        }
+        return nonEmpty;
+    }
+
+    /**
+     * Checks whether another field can be read.
+     *
+     * @return True if at least one more field remains.
+     */
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    /**
+     * Skips the next field.
+     */
+    public void skip() {
+        advance();
+    }
+
+    /**
+     * Reads the next field as a String. This is the only read that allocates.
+     *
+     * @return The field value, with quotes removed and escapes resolved.
+     */
+    public String nextString() {
+        advance();
+        return currentString();
+    }
+
+    /**
+     * Checks whether the next field is empty, without consuming it.
+     *
+     * @return True if the next field has no characters.
+     */
+    public boolean nextIsEmpty() {
+        return exhausted || pos >= end || seq.charAt(pos) == delimiter;
+    }
+
+    /**
+     * Reads the next field as an int, parsing the digits in place.
+     *
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is not a valid int.
+     */
+    public int nextInt() {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + currentString() + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field as a long, parsing the digits in place.
+     *
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is not a valid long.
+     */
+    public long nextLong() {
+        advance();
+        int i = fieldStart;
+        boolean negative = false;
+        if (i < fieldEnd && (seq.charAt(i) == '-' || seq.charAt(i) == '+')) {
+            negative = seq.charAt(i) == '-';
+            i++;
+        }
+        if (i == fieldEnd || fieldEnd - i > 18) {
+            return Long.parseLong(currentString()); // Empty, or long enough to overflow: let the JDK decide
+        }
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = seq.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + currentString() + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next field as a double. Plain decimals such as "1000000.0" or "4.0E8" whose digits
+     * fit in 53 bits are converted exactly in place (one correctly rounded multiply or divide);
+     * anything else falls back to Double.parseDouble.
+     *
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is not a valid double.
+     */
+    public double nextDouble() {
+        advance();
+        int i = fieldStart;
+        boolean negative = false;
+        if (i < fieldEnd && (seq.charAt(i) == '-' || seq.charAt(i) == '+')) {
+            negative = seq.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0; // Number of digits after the decimal point
+        boolean seenPoint = false;
+        boolean seenDigit = false;
+        for (; i < fieldEnd; i++) {
+            char c = seq.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (seenPoint) {
+                    scale++;
+                }
+                if (digits > 15) {
+                    return slowDouble();
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!seenDigit) {
+            return slowDouble(); // No digit before the exponent, e.g. "", "-", "." or "e5", which Double.parseDouble rejects
+        }
+        int exponent = 0;
+        if (i < fieldEnd) {
+            char c = seq.charAt(i);
+            if (c != 'e' && c != 'E') {
+                return slowDouble();
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < fieldEnd && (seq.charAt(i) == '-' || seq.charAt(i) == '+')) {
+                negativeExponent = seq.charAt(i) == '-';
+                i++;
+            }
+            if (i == fieldEnd || fieldEnd - i > 3) {
+                return slowDouble();
+            }
+            for (; i < fieldEnd; i++) {
+                int digit = seq.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return slowDouble();
+                }
+                exponent = exponent * 10 + digit;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (mantissa >= MAX_EXACT_MANTISSA) {
+            return slowDouble();
+        }
+        int power = exponent - scale;
+        double value;
+        if (power >= 0 && power < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[power];
+        } else if (power < 0 && -power < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-power];
+        } else {
+            return slowDouble();
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next field as a boolean with the same rules as Boolean.parseBoolean.
+     *
+     * @return True if the field is "true", ignoring case; false otherwise.
+     */
+    public boolean nextBoolean() {
+        advance();
+        return fieldEnd - fieldStart == 4 && regionMatches("true", true);
+    }
+
+    /**
+     * Reads the next field as an enum constant by comparing it with the constant names in place.
+     *
+     * @param constants The constants of the enum, e.g. {@code Status.values()} cached by the caller.
+     * @return The matching constant.
+     * @throws IllegalArgumentException If no constant has that name, as Enum.valueOf would.
+     */
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        advance();
+        for (E constant : constants) {
+            String name = constant.name();
+            if (name.length() == fieldEnd - fieldStart && regionMatches(name, false)) {
+                return constant;
+            }
+        }
+        String enumName = constants.length > 0 ? constants[0].getDeclaringClass().getName() : "enum";
+        throw new IllegalArgumentException("No enum constant " + enumName + "." + currentString());
+    }
+
+    /**
+     * Reads the next field as a date, decoding the digits in place.
+     *
+     * @param codec The date pattern of the field.
+     * @return The parsed date at local midnight.
+     * @throws ParseException If the field does not match the pattern.
+     */
+    public Date nextDate(DateCodec codec) throws ParseException {
+        return DateCodec.toDate(nextEpochDay(codec));
+    }
+
+    /**
+     * Reads the next field as an epoch day, decoding the digits in place.
+     *
+     * @param codec The date pattern of the field.
+     * @return The number of days since 1970-01-01.
+     * @throws ParseException If the field does not match the pattern.
+     */
+    public int nextEpochDay(DateCodec codec) throws ParseException {
+        advance();
+        if (fieldEscaped) {
+            return codec.parseEpochDay(currentString());
+        }
+        return codec.parseEpochDay(seq, fieldStart, fieldEnd);
+    }
+
+    /**
+     * Points another tokenizer at the next field, e.g. to read an embedded ';'-separated list
+     * without copying it.
+     *
+     * @param inner The tokenizer to reset onto the field.
+     * @return The inner tokenizer.
+     */
+    public CsvTokenizer nextInto(CsvTokenizer inner) {
+        advance();
+        if (fieldEscaped) {
+            return inner.reset(currentString()); // Rare: resolve the escapes once, then tokenize the copy
+        }
+        return inner.reset(seq, fieldStart, fieldEnd);
+    }
+
+    /**
+     * Quotes a field for writing if it contains the delimiter, a quote or a line break.
+     * Fields that need no quoting are returned unchanged, so existing files keep their format.
+     *
+     * @param field     The field value, may be null.
+     * @param delimiter The delimiter of the record the field is written into.
+     * @return The field ready to be joined with the delimiter.
+     */
+    public static String quote(String field, char delimiter) {
+        if (field == null) {
+            return "null";
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return field;
+        }
+        String flattened = field.replace("\r", " ").replace("\n", " "); // Records are line-based
+        return '"' + flattened.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Quotes a field of a comma-separated record; see {@link #quote(String, char)}.
+     *
+     * @param field The field value.
+     * @return The field ready to be joined with commas.
+     */
+    public static String quote(String field) {
+        return quote(field, ',');
+    }
+
+    // Move to the next field and remember its bounds
+    private void advance() {
+        if (exhausted) {
+            throw new NoSuchElementException("Missing field in record: " + record());
+        }
+        fieldQuoted = pos < end && seq.charAt(pos) == '"';
+        fieldEscaped = false;
+        if (fieldQuoted) {
+            fieldStart = pos + 1;
+            int i = fieldStart;
+            while (true) {
+                if (i >= end) {
+                    fieldEnd = end; // Unterminated quote: take the rest of the record
+                    pos = end;
+                    break;
+                }
+                if (seq.charAt(i) == '"') {
+                    if (i + 1 < end && seq.charAt(i + 1) == '"') {
+                        fieldEscaped = true;
+                        i += 2;
+                        continue;
+                    }
+                    fieldEnd = i;
+                    pos = i + 1;
+                    while (pos < end && seq.charAt(pos) != delimiter) {
+                        pos++; // Ignore anything between the closing quote and the delimiter
+                    }
+                    break;
+                }
+                i++;
+            }
+        } else {
+            fieldStart = pos;
+            int i = pos;
+            while (i < end && seq.charAt(i) != delimiter) {
+                i++;
+            }
+            fieldEnd = i;
+            pos = i;
+        }
+        if (pos >= end) {
+            exhausted = true;
+        } else {
+            pos++; // Step over the delimiter
+        }
+    }
+
+    private String currentString() {
+        String value = seq instanceof ByteCharSequence
+                ? ((ByteCharSequence) seq).decode(fieldStart, fieldEnd) // Decode the bytes without a view object
+                : seq.subSequence(fieldStart, fieldEnd).toString();
+        return fieldEscaped ? value.replace("\"\"", "\"") : value;
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(currentString());
+    }
+
+    private boolean regionMatches(String expected, boolean ignoreCase) {
+        for (int i = 0; i < expected.length(); i++) {
+            char a = seq.charAt(fieldStart + i);
+            char b = expected.charAt(i);
+            if (a != b && !(ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
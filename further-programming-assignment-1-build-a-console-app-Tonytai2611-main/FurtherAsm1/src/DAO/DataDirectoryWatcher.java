@@ -0,0 +1,106 @@
+/**
+ * Follows the data directories with a WatchService on a daemon thread and tells the
+ * {@link FileChangeTracker}s about every created, modified or deleted file they track, so edits by
+ * another process invalidate the cached state of the managers without waiting for the next load.
+ * Used when {@link StorageOptions#WATCH_ENABLED} is set.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+public class DataDirectoryWatcher {
+    private static DataDirectoryWatcher instance;
+
+    private final Map<Path, List<FileChangeTracker>> trackersByDirectory = new HashMap<>();
+    private WatchService watchService;
+
+    private DataDirectoryWatcher() {
+    }
+
+    /**
+     * Returns the watcher of this process, starting its thread on first use.
+     *
+     * @return The shared watcher.
+     */
+    public static synchronized DataDirectoryWatcher getInstance() {
+        if (instance == null) {
+            instance = new DataDirectoryWatcher();
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Reports changes of the given files to a tracker from now on.
+     *
+     * @param tracker The tracker to notify.
+     * @param files   The files it tracks; their directories are watched.
+     */
+    public synchronized void watch(FileChangeTracker tracker, List<File> files) {
+        if (watchService == null) {
+            return; // Watching is not available; the trackers still compare fingerprints on every load
+        }
+        for (File file : files) {
+            Path directory = file.getParentFile().toPath();
+            List<FileChangeTracker> trackers = trackersByDirectory.get(directory);
+            if (trackers == null) {
+                try {
+                    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                } catch (IOException e) {
+                    System.err.println("Cannot watch directory: " + directory);
+                    continue;
+                }
+                trackers = new ArrayList<>();
+                trackersByDirectory.put(directory, trackers);
+            }
+            if (!trackers.contains(tracker)) {
+                trackers.add(tracker);
+            }
+        }
+    }
+
+    // Open the watch service and deliver its events on a daemon thread
+    private void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("File watching is not available: " + e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(this::run, "data-directory-watcher");
+        thread.setDaemon(true); // Never keeps the application from exiting
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                File changed = event.kind() == StandardWatchEventKinds.OVERFLOW
+                        ? null // Events were lost: every tracker of the directory verifies its files
+                        : directory.resolve((Path) event.context()).toFile();
+                for (FileChangeTracker tracker : trackersOf(directory)) {
+                    tracker.onChange(changed);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private synchronized List<FileChangeTracker> trackersOf(Path directory) {
+        List<FileChangeTracker> trackers = trackersByDirectory.get(directory);
+        return trackers == null ? Collections.emptyList() : new ArrayList<>(trackers);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Finds the loaded owners, tenants, hosts and properties that payments and rental agreements reference.
+ * The DAOs of those records are given one by their caller, which holds the loaded entities, so the
+ * DAO layer does not depend on the classes managing them. {@link FileEntityLookup} reads the entity
+ * files instead, for a DAO used on its own.
+ * Lazily built agreements keep the lookup of the DAO that read them as their resolver, so they
+ * always find the entities currently loaded.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import Classes.*;
+
+import java.util.List;
+
+public interface EntityLookup extends RentalAgreement.Resolver {
+
+    /**
+     * Loads the referenced entities, unless they were loaded already.
+     */
+    void ensureLoaded();
+
+    /**
+     * Checks whether the entities are loaded, so single records can be looked up without loading whole files.
+     *
+     * @return True once the entities were loaded.
+     */
+    boolean isLoaded();
+
+    List<Owner> owners();
+
+    List<Tenant> tenants();
+
+    List<Host> hosts();
+
+    List<CommercialProperty> commercialProperties();
+
+    List<ResidentialProperty> residentialProperties();
+
+    // Single lookups by ID, next to the owner, tenant and host lookups of the Resolver; null when no entity has the ID
+    CommercialProperty commercialProperty(String id);
+
+    ResidentialProperty residentialProperty(String id);
+}
@@ -0,0 +1,296 @@
+/**
+ * Remembers the state of the files a manager was last loaded from or saved to, so loading them
+ * again can be skipped while nothing changed. Each tracked file (a data file, its journal and the
+ * files its records link to) is fingerprinted by size, modification time and a CRC32 of its content.
+ *
+ * Size and time are checked first. The content is only hashed when the time differs, e.g. after a
+ * rewrite with the same content, or when the file was modified so close to the recording that a
+ * second write could keep the same timestamp. With {@link StorageOptions#WATCH_ENABLED} a
+ * {@link DataDirectoryWatcher} also reports changes as they happen.
+ *
+ * Fingerprints of a load are taken before the files are parsed, so a write that lands during the
+ * parse makes the next check fail instead of being missed. When only the data file grew, its
+ * fingerprint is extended over the appended bytes instead of hashing the whole file again.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class FileChangeTracker {
+    private static final long RACY_MILLIS = 2000; // Coarsest timestamp granularity of common file systems
+    private static final int HASH_BUFFER_BYTES = 1 << 16;
+
+    private final List<File> files = new ArrayList<>();
+    private Fingerprint[] recorded; // Null until recorded, and after an invalidating change
+    private int recordedModCount;
+    private boolean verify; // A change was reported for a file whose size and time still match
+
+    /**
+     * Constructs a tracker for a data file, its journal and the data files its records link to.
+     *
+     * @param dataPath       The data file the manager loads and saves.
+     * @param referencePaths The data files of the entities the records link to.
+     */
+    public FileChangeTracker(String dataPath, String... referencePaths) {
+        addWithJournal(dataPath);
+        for (String path : referencePaths) {
+            addWithJournal(path);
+        }
+        if (StorageOptions.WATCH_ENABLED) {
+            DataDirectoryWatcher.getInstance().watch(this, files);
+        }
+    }
+
+    /**
+     * Checks whether a manager can skip loading: the files are as recorded and the manager's list
+     * did not change since.
+     *
+     * @param modCount The current modification count of the manager's list.
+     * @return True if loading again would produce the content the manager already holds.
+     */
+    public synchronized boolean isUnchanged(int modCount) {
+        if (recorded == null || modCount != recordedModCount) {
+            return false;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Fingerprint now = recorded[i].check(files.get(i), verify);
+            if (now == null) {
+                return false;
+            }
+            recorded[i] = now;
+        }
+        verify = false;
+        return true;
+    }
+
+    /**
+     * Checks whether the manager can merge records appended to its data file instead of loading it
+     * again: the list did not change, every other tracked file is as recorded, and the data file grew.
+     * Whether the old content is still in place is for the DAO's tail cursor to verify.
+     *
+     * @param modCount The current modification count of the manager's list.
+     * @return True if only the data file changed, and it is longer than recorded.
+     */
+    public synchronized boolean isAppendable(int modCount) {
+        if (recorded == null || modCount != recordedModCount || verify) {
+            return false;
+        }
+        File dataFile = files.get(0);
+        if (!recorded[0].exists || !dataFile.exists() || dataFile.length() <= recorded[0].length) {
+            return false;
+        }
+        for (int i = 1; i < files.size(); i++) {
+            Fingerprint now = recorded[i].check(files.get(i), false);
+            if (now == null) {
+                return false;
+            }
+            recorded[i] = now;
+        }
+        return true;
+    }
+
+    /**
+     * Fingerprints the tracked files as they are now. Taken before a load, and recorded after it.
+     *
+     * @return The fingerprints to pass to {@link #record(Recording, int)}.
+     */
+    public synchronized Recording startRecording() {
+        Fingerprint[] fingerprints = new Fingerprint[files.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = Fingerprint.of(files.get(i));
+        }
+        return new Recording(fingerprints);
+    }
+
+    /**
+     * Fingerprints the tracked files before appended records are merged, hashing only the bytes
+     * added to the data file since the last recording. Only valid after {@link #isAppendable(int)}.
+     *
+     * @return The fingerprints to pass to {@link #record(Recording, int)}.
+     */
+    public synchronized Recording startAppendRecording() {
+        Fingerprint[] fingerprints = recorded.clone();
+        fingerprints[0] = recorded[0].extend(files.get(0));
+        recorded = null; // The running CRC moved on; until the merge is recorded, the next load reads everything
+        return new Recording(fingerprints);
+    }
+
+    /**
+     * Records fingerprints taken before the manager's last load or merge.
+     *
+     * @param recording The fingerprints from {@link #startRecording()} or {@link #startAppendRecording()}.
+     * @param modCount  The modification count of the manager's list after the load.
+     */
+    public synchronized void record(Recording recording, int modCount) {
+        recorded = recording.fingerprints;
+        recordedModCount = modCount;
+        verify = false;
+    }
+
+    /**
+     * Records the files as they are now, after the manager saved its list to them.
+     *
+     * @param modCount The modification count of the manager's list after the save.
+     */
+    public void record(int modCount) {
+        record(startRecording(), modCount);
+    }
+
+    /**
+     * Records the data file's journal as it is now, after the manager appended its own change to it.
+     * Only the journal is hashed, so this costs the size of the journal rather than of the data file;
+     * the data file is fingerprinted again only if the append checkpointed the journal into it.
+     *
+     * @param modCount The modification count of the manager's list after the change.
+     */
+    public synchronized void recordJournal(int modCount) {
+        if (recorded == null) {
+            return; // Nothing recorded to keep: the next load reads the files anyway
+        }
+        File dataFile = files.get(0);
+        if (!recorded[0].hasSameSize(dataFile) || dataFile.lastModified() != recorded[0].lastModified) {
+            recorded[0] = Fingerprint.of(dataFile); // The append checkpointed the journal into the data file
+        }
+        recorded[1] = Fingerprint.of(files.get(1));
+        recordedModCount = modCount;
+    }
+
+    /**
+     * Called by the directory watcher when a tracked file was created, modified or deleted.
+     * A different size drops the recorded state right away; otherwise the change may be the manager's
+     * own save or a rewrite with the same content, and the content is compared on the next check.
+     *
+     * @param file The file that changed in a watched directory, or null when the watcher lost events.
+     */
+    synchronized void onChange(File file) {
+        if (recorded == null) {
+            return;
+        }
+        if (file == null) {
+            verify = true;
+            return;
+        }
+        int index = files.indexOf(file);
+        if (index < 0) {
+            return; // Another file of the same directory
+        }
+        if (recorded[index].hasSameSize(file)) {
+            verify = true;
+        } else {
+            recorded = null;
+        }
+    }
+
+    private void addWithJournal(String path) {
+        files.add(new File(path).getAbsoluteFile());
+        files.add(RecordJournal.forFile(path).getLogFile().getAbsoluteFile());
+    }
+
+    /**
+     * Fingerprints of the tracked files taken at one moment.
+     */
+    public static final class Recording {
+        private final Fingerprint[] fingerprints;
+
+        private Recording(Fingerprint[] fingerprints) {
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    /**
+     * Size, modification time and content hash of a file at one moment.
+     */
+    private static class Fingerprint {
+        private final boolean exists;
+        private final long length;
+        private final long lastModified;
+        private final long crc;
+        private final CRC32 state; // Running CRC of the first length bytes, to extend over appended bytes
+        private final long takenAt;
+
+        private Fingerprint(boolean exists, long length, long lastModified, CRC32 state, long takenAt) {
+            this.exists = exists;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.crc = state == null ? -1 : state.getValue();
+            this.state = state;
+            this.takenAt = takenAt;
+        }
+
+        static Fingerprint of(File file) {
+            long takenAt = System.currentTimeMillis();
+            if (!file.exists()) {
+                return new Fingerprint(false, 0, 0, null, takenAt);
+            }
+            long lastModified = file.lastModified();
+            CRC32 state = new CRC32();
+            long length = hash(file, 0, state);
+            return new Fingerprint(true, length, lastModified, length < 0 ? null : state, takenAt);
+        }
+
+        // This fingerprint continued over the bytes appended after length; the running CRC moves on
+        Fingerprint extend(File file) {
+            long takenAt = System.currentTimeMillis();
+            long lastModified = file.lastModified();
+            long extended = state == null ? -1 : hash(file, length, state);
+            return new Fingerprint(true, extended < 0 ? length : extended, lastModified, extended < 0 ? null : state, takenAt);
+        }
+
+        boolean hasSameSize(File file) {
+            return file.exists() == exists && (!exists || file.length() == length);
+        }
+
+        // The fingerprint to keep if the file still has the recorded content, or null if it changed
+        Fingerprint check(File file, boolean verify) {
+            if (file.exists() != exists) {
+                return null;
+            }
+            if (!exists) {
+                return this;
+            }
+            long currentLength = file.length();
+            long currentModified = file.lastModified();
+            if (currentLength != length) {
+                return null;
+            }
+            boolean racy = currentModified >= takenAt - RACY_MILLIS;
+            if (currentModified == lastModified && !racy && !verify) {
+                return this;
+            }
+            // Same size but a new or unreliable timestamp: compare the content
+            long takenNow = System.currentTimeMillis();
+            CRC32 current = new CRC32();
+            if (state == null || hash(file, 0, current) != length || current.getValue() != crc) {
+                return null;
+            }
+            return new Fingerprint(true, currentLength, currentModified, current, takenNow);
+        }
+
+        // Feed the file from an offset to its end into a CRC; returns the end offset, or -1 if unreadable
+        private static long hash(File file, long from, CRC32 crc) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_BYTES);
+            long position = from;
+            try (FileChannel channel = FileChannel.open(file.toPath())) {
+                channel.position(from);
+                int read;
+                while ((read = channel.read(buffer)) >= 0) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                    position += read;
+                }
+            } catch (IOException e) {
+                return -1;
+            }
+            return position;
+        }
+    }
+}
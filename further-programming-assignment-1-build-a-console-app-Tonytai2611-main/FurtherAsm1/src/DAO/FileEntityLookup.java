@@ -0,0 +1,122 @@
+/**
+ * Entity lookup reading the entity files itself, for a DAO used without the console application.
+ * Until the files are loaded, a single entity is read through the index of its own file, so a
+ * lookup never loads whole files.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import Classes.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class FileEntityLookup implements EntityLookup {
+    private final OwnerDAO ownerDAO = new OwnerDAO();
+    private final TenantDAO tenantDAO = new TenantDAO();
+    private final HostDAO hostDAO = new HostDAO();
+    private final CommercialPropertyDAO commercialPropertyDAO = new CommercialPropertyDAO();
+    private final ResidentialPropertyDAO residentialPropertyDAO = new ResidentialPropertyDAO();
+
+    private List<Owner> owners;
+    private List<Tenant> tenants;
+    private List<Host> hosts;
+    private List<CommercialProperty> commercialProperties;
+    private List<ResidentialProperty> residentialProperties;
+    private Map<String, Owner> ownersById;
+    private Map<String, Tenant> tenantsById;
+    private Map<String, Host> hostsById;
+    private Map<String, CommercialProperty> commercialPropertiesById;
+    private Map<String, ResidentialProperty> residentialPropertiesById;
+    private volatile boolean loaded;
+
+    @Override
+    public synchronized void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        tenants = tenantDAO.readFromFile();
+        owners = ownerDAO.readFromFile();
+        hosts = hostDAO.readFromFile();
+        commercialProperties = commercialPropertyDAO.readFromFile();
+        residentialProperties = residentialPropertyDAO.readFromFile();
+        tenantsById = indexById(tenants, Tenant::getId);
+        ownersById = indexById(owners, Owner::getId);
+        hostsById = indexById(hosts, Host::getId);
+        commercialPropertiesById = indexById(commercialProperties, Property::getPropertyId);
+        residentialPropertiesById = indexById(residentialProperties, Property::getPropertyId);
+        loaded = true;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public List<Owner> owners() {
+        ensureLoaded();
+        return owners;
+    }
+
+    @Override
+    public List<Tenant> tenants() {
+        ensureLoaded();
+        return tenants;
+    }
+
+    @Override
+    public List<Host> hosts() {
+        ensureLoaded();
+        return hosts;
+    }
+
+    @Override
+    public List<CommercialProperty> commercialProperties() {
+        ensureLoaded();
+        return commercialProperties;
+    }
+
+    @Override
+    public List<ResidentialProperty> residentialProperties() {
+        ensureLoaded();
+        return residentialProperties;
+    }
+
+    @Override
+    public Owner owner(String id) {
+        return loaded ? ownersById.get(id) : ownerDAO.readOne(id);
+    }
+
+    @Override
+    public Tenant tenant(String id) {
+        return loaded ? tenantsById.get(id) : tenantDAO.readOne(id);
+    }
+
+    @Override
+    public Host host(String id) {
+        return loaded ? hostsById.get(id) : hostDAO.readOne(id);
+    }
+
+    @Override
+    public CommercialProperty commercialProperty(String id) {
+        return loaded ? commercialPropertiesById.get(id) : commercialPropertyDAO.readOne(id);
+    }
+
+    @Override
+    public ResidentialProperty residentialProperty(String id) {
+        return loaded ? residentialPropertiesById.get(id) : residentialPropertyDAO.readOne(id);
+    }
+
+    // The first entity wins when IDs are duplicated, as in the managers
+    private static <T> Map<String, T> indexById(List<T> items, Function<T, String> idOf) {
+        Map<String, T> index = new HashMap<>(items.size() * 2);
+        for (T item : items) {
+            index.putIfAbsent(idOf.apply(item), item);
+        }
+        return index;
+    }
+}
@@ -10,15 +10,16 @@
 
 package DAO;
 
+import Classes.DateCodec;
 import Classes.Host;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.io.*;
+import java.util.stream.Stream;
 
 public class HostDAO {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
+    private static final DateCodec dateFormat = DateCodec.DD_MM_YYYY;
     private static final String FILE_PATH = "FurtherAsm1/src/File/hosts.txt";
     private static final Scanner scanner = new Scanner(System.in);
 
@@ -33,44 +34,49 @@ public class HostDAO {
     private String convertHostToString(Host host) {
         return String.join(",",
                 host.getId(),
-                host.getFullName(),
+                CsvTokenizer.quote(host.getFullName()),
                 host.getDateOfBirth() != null ? dateFormat.format(host.getDateOfBirth())  : "",
-                host.getContactInfo()
+                CsvTokenizer.quote(host.getContactInfo())
                 );
     }
 
     /**
      * Converts a string representation of a host from the file into a `Host` object.
      *
-     * @param line The string representation of a host.
+     * @param fields The tokenizer positioned at the start of a Host record.
      * @return A `Host` object or `null` if the input is invalid.
      * @throws ParseException If the date format in the string is invalid.
      */
     // Convert String from file to Host object
-    private Host convertStringToHost(String line) throws ParseException {
-        String[] parts = line.split(",");
-        if (parts.length < 4) {
-            System.err.println("Invalid format: " + line);
+    private Host convertStringToHost(CsvTokenizer fields) throws ParseException {
+        if (fields.countFields() < 4) {
+            System.err.println("Invalid format: " + fields.record());
             return null;
         }
 
-        String id = parts[0];
-        String fullName = parts[1];
-        Date dateOfBirth = parts[2].isEmpty() ? null : dateFormat.parse(parts[2]);
-        String contactInfo = parts[3];
+        String id = fields.nextString();
+        String fullName = fields.nextString();
+        Date dateOfBirth;
+        if (fields.nextIsEmpty()) {
+            fields.skip();
+            dateOfBirth = null;
+        } else {
+            dateOfBirth = fields.nextDate(dateFormat);
+        }
+        String contactInfo = fields.nextString();
 
         // Currently not restoring managedProperties and cooperatingOwners from file
         return new Host(fullName, id, dateOfBirth, contactInfo, null, null); // Still solving
     }
 
     /**
-     * Writes a list of `Host` objects to the file, overwriting the existing content.
+     * Writes `Host` objects to the file, overwriting the existing content.
      *
-     * @param hosts The list of hosts to write to the file.
+     * @param hosts The hosts to write to the file.
      * @param FILE_PATH The path of the file where data will be written.
      */
     // Write a list of hosts to a file ( overwrite file content)
-    public void writeToFile(List<Host> hosts, String FILE_PATH) {
+    public void writeToFile(Iterable<Host> hosts, String FILE_PATH) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (Host host : hosts) {
                 writer.write(convertHostToString(host));
@@ -78,6 +84,10 @@ public class HostDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(HostDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
         }
     }
 
@@ -103,10 +113,12 @@ public class HostDAO {
                 return hosts;
             }
         }
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+        // Read the data file with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                Host host = convertStringToHost(line);
+                Host host = convertStringToHost(fields.reset(line));
                 if (host != null) {
                     hosts.add(host);
                 }
@@ -117,6 +129,32 @@ public class HostDAO {
         return hosts;
     }
 
+    /**
+     * Reads one host by its ID through the `.idx` sidecar of the file, without reading the other records.
+     *
+     * @param hostId The ID of the host.
+     * @return The Host object, or null if there is no host with that ID.
+     */
+    public Host readOne(String hostId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(hostId);
+            return line == null ? null : convertStringToHost(new CsvTokenizer(',').reset(line));
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the hosts of the file one at a time, without building a list.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the hosts in file order, empty if the file does not exist.
+     */
+    public Stream<Host> stream() {
+        return RecordStreams.of(FILE_PATH, () -> this::convertStringToHost);
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -142,6 +180,16 @@ public class HostDAO {
      */
     // Update host information in the list and write it back to the file
     public boolean update(Host updatedHost) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).update(updatedHost.getId(), convertHostToString(updatedHost))) {
+                System.out.println("Host updated successfully!");
+                return true;
+            }
+            System.out.println("Host not found");
+            return false;
+        }
+
         List<Host> hosts = readFromFile();
 
         boolean hostFound = false;
@@ -170,6 +218,16 @@ public class HostDAO {
      */
     // Delete host by hostId and update the file
     public  boolean delete(String hostId) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).delete(hostId)) {
+                System.out.println("Host deleted successfully!");
+                return true;
+            }
+            System.out.println("Host not found!");
+            return false;
+        }
+
         List<Host> hosts = readFromFile();
 
         boolean hostFound = false;
@@ -0,0 +1,966 @@
+/**
+ * Log-structured merge store of text records keyed by ID, used for payments when
+ * {@link StorageOptions#LSM_PAYMENTS_ENABLED} is set. The store keeps its own directory:
+ *
+ *   wal.log     write-ahead log of the writes still held in the memtable
+ *   seg-N.sst   immutable segments sorted by key, with a sparse key index, a bloom filter and the
+ *               time range of their records in a footer
+ *   MANIFEST    the names of the live segments, newest first
+ *
+ * A write is appended to the log and put into a sorted in-memory memtable, so it costs O(log n);
+ * a full memtable is written out as the newest segment. A delete writes a tombstone that hides older
+ * versions of the record until compaction drops it. A lookup checks the memtable and then the
+ * segments from newest to oldest, skipping those whose bloom filter rules the key out and reading a
+ * single sparse-index interval of the others. Once {@link #COMPACTION_TRIGGER} segments exist, a
+ * background thread merges them into one.
+ *
+ * Every record carries a time (for payments, the payment date), so a scan over a time range only
+ * reads the segments whose time range overlaps it. The directory is owned by one process at a time.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LsmStore {
+    private static final String MANIFEST = "MANIFEST";
+    private static final String LOG = "wal.log";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)\\.sst(\\.tmp)?");
+    private static final int SEGMENT_MAGIC = 0x4C534D31; // "LSM1"
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int INDEX_INTERVAL = 64; // Records per sparse index entry
+    private static final int BLOOM_BITS_PER_KEY = 10; // About 1% false positives with 7 hashes
+    private static final int BLOOM_HASHES = 7;
+    private static final int COMPACTION_TRIGGER = 4; // Segments that start a background compaction
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Order of the keys in the memtable and the segments: shorter keys first, then alphabetical,
+     * so IDs such as "P9" and "P10" keep their numeric order.
+     */
+    public static final Comparator<String> KEY_ORDER = Comparator.comparingInt(String::length)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final File directory;
+    private final int memtableLimit;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Readers vs. flush and segment swaps
+    private final Object compactionSignal = new Object();
+    private final Thread compactor;
+    private ConcurrentSkipListMap<String, Entry> memtable = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private List<Segment> segments = new ArrayList<>(); // Newest first; replaced as a whole, never modified
+    private DataOutputStream log;
+    private long nextSegment = 1;
+    private boolean initialized; // A manifest exists, i.e. the store was filled before
+    private boolean compactionRequested;
+    private boolean closed;
+
+    /**
+     * Opens the store in a directory, creating the directory if needed. Writes left in the log by a
+     * crash are recovered into a segment, and segments a crash left out of the manifest are removed.
+     *
+     * @param directoryPath        The directory of the store.
+     * @param memtableLimit        The number of records after which the memtable is written out.
+     * @param compactionThreadName The name of the background compaction thread.
+     * @throws IOException If the directory, the manifest or a segment cannot be read.
+     */
+    public LsmStore(String directoryPath, int memtableLimit, String compactionThreadName) throws IOException {
+        this.directory = new File(directoryPath);
+        this.memtableLimit = memtableLimit;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create store directory: " + directory);
+        }
+
+        File manifest = new File(directory, MANIFEST);
+        Set<String> live = new HashSet<>();
+        if (manifest.exists()) {
+            initialized = true;
+            for (String name : Files.readAllLines(manifest.toPath())) {
+                if (!name.isEmpty()) {
+                    segments.add(Segment.open(new File(directory, name)));
+                    live.add(name);
+                }
+            }
+        }
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+            if (matcher.matches()) {
+                nextSegment = Math.max(nextSegment, Long.parseLong(matcher.group(1)) + 1);
+                if (!live.contains(file.getName())) {
+                    Files.deleteIfExists(file.toPath()); // Left by a flush or compaction that did not finish
+                }
+            }
+        }
+
+        replayLog();
+        flush(); // Recovered writes go to a segment, so the log always starts clean
+        if (log == null) {
+            log = openLog();
+        }
+
+        compactor = new Thread(this::compactInBackground, compactionThreadName);
+        compactor.setDaemon(true); // Never keeps the application from exiting
+        compactor.start();
+        if (segments.size() >= COMPACTION_TRIGGER) {
+            requestCompaction();
+        }
+    }
+
+    /**
+     * Checks whether the store was filled before, so a new store can be seeded, e.g. from a data file.
+     *
+     * @return True once the store has a manifest.
+     */
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Seeds the store with existing records, written as its oldest segment without going through the log.
+     * When a key appears more than once, its first record wins.
+     *
+     * @param entries The records to import, in any order.
+     * @throws IOException If the segment or the manifest cannot be written.
+     */
+    public synchronized void importEntries(List<Entry> entries) throws IOException {
+        TreeMap<String, Entry> sorted = new TreeMap<>(KEY_ORDER);
+        for (Entry entry : entries) {
+            sorted.putIfAbsent(entry.key, entry);
+        }
+        Segment segment = Segment.write(segmentFile(nextSegment++), sorted.values().iterator(), sorted.size());
+        lock.writeLock().lock();
+        try {
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(segment); // Older than anything written since the store was opened
+            writeManifest(updated);
+            segments = updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        requestCompaction();
+    }
+
+    /**
+     * Inserts or replaces a record.
+     *
+     * @param key   The ID of the record.
+     * @param time  The time of the record, used by {@link #scanTime(long, long)}.
+     * @param value The serialized record.
+     * @throws IOException If the write cannot be logged.
+     */
+    public synchronized void put(String key, long time, String value) throws IOException {
+        write(new Entry(key, time, value));
+    }
+
+    /**
+     * Deletes a record by writing a tombstone for its key.
+     *
+     * @param key The ID of the record.
+     * @throws IOException If the write cannot be logged.
+     */
+    public synchronized void delete(String key) throws IOException {
+        write(new Entry(key, 0, null));
+    }
+
+    /**
+     * Looks up the current version of a record.
+     *
+     * @param key The ID of the record.
+     * @return The serialized record, or null if it does not exist or was deleted.
+     * @throws IOException If a segment cannot be read.
+     */
+    public String get(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            Entry entry = memtable.get(key);
+            for (int i = 0; entry == null && i < segments.size(); i++) {
+                entry = segments.get(i).get(key);
+            }
+            return entry == null ? null : entry.value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes the current version of every record to an action, in {@link #KEY_ORDER}.
+     *
+     * @param action Receives each live record.
+     * @throws IOException If a segment cannot be read.
+     */
+    public void scan(Consumer<Entry> action) throws IOException {
+        try (Cursor cursor = openCursor()) {
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Opens a cursor over the current version of every record, in {@link #KEY_ORDER}. The cursor reads
+     * the segments that were live when it was opened and keeps them open until it is closed, even if
+     * compaction replaces them, so the store can be written while a cursor is in use.
+     *
+     * @return A cursor to close when done.
+     */
+    public Cursor openCursor() {
+        lock.readLock().lock();
+        try {
+            List<Segment> current = segments;
+            for (Segment segment : current) {
+                segment.pin();
+            }
+            return new Cursor(memtable, current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current version of every record whose time lies in a range. Segments whose records
+     * all fall outside the range are not read.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to   The end of the range, inclusive.
+     * @return The matching records in {@link #KEY_ORDER}.
+     * @throws IOException If a segment cannot be read.
+     */
+    public List<Entry> scanTime(long from, long to) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<Entry> found = new ArrayList<>();
+            for (Entry entry : memtable.values()) {
+                if (entry.isLive() && entry.time >= from && entry.time <= to) {
+                    found.add(entry);
+                }
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                if (segment.maxTime < from || segment.minTime > to) {
+                    continue; // Pruned by the time range in the footer
+                }
+                try (SegmentScanner scanner = segment.scanner()) {
+                    while (scanner.hasNext()) {
+                        Entry entry = scanner.next();
+                        if (entry.isLive() && entry.time >= from && entry.time <= to && !isShadowed(entry.key, i)) {
+                            found.add(entry);
+                        }
+                    }
+                }
+            }
+            found.sort((a, b) -> KEY_ORDER.compare(a.key, b.key));
+            return found;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the compaction thread, after the compaction it may be running, and closes the files.
+     * Records still in the memtable are kept in the log and recovered on the next open.
+     */
+    public void close() {
+        synchronized (compactionSignal) {
+            closed = true;
+            compactionSignal.notifyAll();
+        }
+        try {
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            lock.writeLock().lock();
+            try {
+                log.close();
+                for (Segment segment : segments) {
+                    segment.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Log a write, apply it to the memtable and write the memtable out once it is full
+    private void write(Entry entry) throws IOException {
+        writeEntry(log, entry);
+        log.flush(); // Survives a crash of the process once this returns
+        memtable.put(entry.key, entry);
+        if (memtable.size() >= memtableLimit) {
+            flush();
+        }
+    }
+
+    // Write the memtable out as the newest segment and start an empty log
+    private void flush() throws IOException {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Segment segment = Segment.write(segmentFile(nextSegment++), memtable.values().iterator(), memtable.size());
+            List<Segment> updated = new ArrayList<>(segments.size() + 1);
+            updated.add(segment);
+            updated.addAll(segments);
+            writeManifest(updated);
+            segments = updated;
+            memtable = new ConcurrentSkipListMap<>(KEY_ORDER);
+            if (log != null) {
+                log.close();
+            }
+            log = openLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (segments.size() >= COMPACTION_TRIGGER) {
+            requestCompaction();
+        }
+    }
+
+    // Reload the writes of the last run that did not reach a segment; a torn last record is dropped
+    private void replayLog() throws IOException {
+        File file = new File(directory, LOG);
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_BYTES))) {
+            while (true) {
+                Entry entry = readEntry(in);
+                memtable.put(entry.key, entry);
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // End of the log, or a record cut short by a crash
+        }
+    }
+
+    private DataOutputStream openLog() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, LOG), false)));
+    }
+
+    // Replace the manifest in one step, so a crash leaves either the old or the new segment list
+    private void writeManifest(List<Segment> live) throws IOException {
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
+            for (Segment segment : live) {
+                writer.write(segment.file.getName());
+                writer.newLine();
+            }
+        }
+        Files.move(temp.toPath(), new File(directory, MANIFEST).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        initialized = true;
+    }
+
+    private File segmentFile(long number) {
+        return new File(directory, "seg-" + number + ".sst");
+    }
+
+    private synchronized long allocateSegmentNumber() {
+        return nextSegment++;
+    }
+
+    private void requestCompaction() {
+        synchronized (compactionSignal) {
+            compactionRequested = true;
+            compactionSignal.notifyAll();
+        }
+    }
+
+    private void compactInBackground() {
+        while (true) {
+            synchronized (compactionSignal) {
+                while (!compactionRequested && !closed) {
+                    try {
+                        compactionSignal.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                compactionRequested = false;
+            }
+            try {
+                compact();
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Merges every segment into one, keeping the newest version of each record. Tombstones are dropped,
+     * since no older segment is left for them to hide a record in. Segments flushed while merging stay
+     * in front of the result. Runs on the compaction thread only.
+     *
+     * @throws IOException If a segment cannot be read or written.
+     */
+    private void compact() throws IOException {
+        List<Segment> merged;
+        lock.readLock().lock();
+        try {
+            merged = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (merged.size() < COMPACTION_TRIGGER) {
+            return;
+        }
+
+        List<SegmentScanner> scanners = new ArrayList<>();
+        Segment compacted;
+        try {
+            long expected = 0;
+            for (Segment segment : merged) {
+                SegmentScanner scanner = segment.scanner();
+                scanners.add(scanner);
+                expected += segment.count;
+            }
+            // Only this thread closes segments, so the merged ones can be read without the lock
+            compacted = Segment.write(segmentFile(allocateSegmentNumber()),
+                    new MergingIterator(new ArrayList<>(scanners)), expected);
+        } finally {
+            for (SegmentScanner scanner : scanners) {
+                scanner.close();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Segment> updated = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (!merged.contains(segment)) {
+                    updated.add(segment); // Flushed during the merge, so newer than the result
+                }
+            }
+            updated.add(compacted);
+            writeManifest(updated);
+            segments = updated;
+            for (Segment segment : merged) {
+                segment.retire(); // Deleted now, or when the last cursor reading it is closed
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void writeEntry(DataOutput out, Entry entry) throws IOException {
+        out.writeBoolean(entry.isLive());
+        out.writeUTF(entry.key);
+        out.writeLong(entry.time);
+        if (entry.isLive()) {
+            out.writeUTF(entry.value);
+        }
+    }
+
+    private static Entry readEntry(DataInput in) throws IOException {
+        boolean live = in.readBoolean();
+        String key = in.readUTF();
+        long time = in.readLong();
+        return new Entry(key, time, live ? in.readUTF() : null);
+    }
+
+    /**
+     * Checks whether a source newer than a segment holds another version of a key.
+     *
+     * @param key          The key found in the segment.
+     * @param segmentIndex The position of the segment, newest first.
+     * @return True if the memtable or a newer segment has the key.
+     */
+    private boolean isShadowed(String key, int segmentIndex) {
+        if (memtable.containsKey(key)) {
+            return true;
+        }
+        try {
+            for (int i = 0; i < segmentIndex; i++) {
+                if (segments.get(i).get(key) != null) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return false;
+    }
+
+    /**
+     * One version of a record: its key, its time and its serialized value, or a tombstone.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long time;
+        private final String value; // Null for a tombstone
+
+        public Entry(String key, long time, String value) {
+            this.key = key;
+            this.time = time;
+            this.value = value;
+        }
+
+        public String getKey() { return key; }
+
+        public long getTime() { return time; }
+
+        public String getValue() { return value; }
+
+        boolean isLive() { return value != null; }
+    }
+
+    /**
+     * Iterator over the live records of the memtable and the segments taken by {@link #openCursor()}.
+     * Records written while it is open may or may not be returned. Reading a segment fails with an
+     * {@link UncheckedIOException}.
+     */
+    public static final class Cursor implements Iterator<Entry>, Closeable {
+        private final List<Segment> pinned;
+        private final List<SegmentScanner> scanners = new ArrayList<>();
+        private final MergingIterator merged;
+        private boolean closed;
+
+        private Cursor(ConcurrentSkipListMap<String, Entry> memtable, List<Segment> pinned) {
+            this.pinned = pinned;
+            List<Iterator<Entry>> sources = new ArrayList<>();
+            sources.add(memtable.values().iterator());
+            for (Segment segment : pinned) {
+                SegmentScanner scanner = segment.scanner();
+                scanners.add(scanner);
+                sources.add(scanner);
+            }
+            this.merged = new MergingIterator(sources);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !closed && merged.hasNext();
+        }
+
+        @Override
+        public Entry next() {
+            if (closed) {
+                throw new NoSuchElementException();
+            }
+            return merged.next();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (SegmentScanner scanner : scanners) {
+                scanner.close();
+            }
+            for (Segment segment : pinned) {
+                try {
+                    segment.unpin();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * An immutable segment file and the footer kept in memory to search it.
+     */
+    private static final class Segment {
+        private final File file;
+        private final FileChannel channel;
+        private final String[] indexKeys; // Key of every INDEX_INTERVAL-th record
+        private final long[] indexOffsets;
+        private final long[] bloom;
+        private final long minTime;
+        private final long maxTime;
+        private final long count;
+        private final long dataEnd; // The footer starts right after the last record
+        private int readers; // Open cursors reading this segment
+        private boolean retired; // Replaced by compaction; deleted once no cursor reads it
+
+        private Segment(File file, FileChannel channel, String[] indexKeys, long[] indexOffsets, long[] bloom,
+                        long minTime, long maxTime, long count, long dataEnd) {
+            this.file = file;
+            this.channel = channel;
+            this.indexKeys = indexKeys;
+            this.indexOffsets = indexOffsets;
+            this.bloom = bloom;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.count = count;
+            this.dataEnd = dataEnd;
+        }
+
+        // Write sorted records to a new segment file and open it
+        static Segment write(File file, Iterator<Entry> sorted, long expectedCount) throws IOException {
+            File temp = new File(file.getPath() + ".tmp");
+            long[] bloom = new long[(int) Math.max(1, (Math.max(1, expectedCount) * BLOOM_BITS_PER_KEY + 63) / 64)];
+            List<String> indexKeys = new ArrayList<>();
+            List<Long> indexOffsets = new ArrayList<>();
+            try (CountingOutputStream counter = new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp), BUFFER_BYTES));
+                 DataOutputStream out = new DataOutputStream(counter)) {
+                long count = 0;
+                long minTime = Long.MAX_VALUE;
+                long maxTime = Long.MIN_VALUE;
+                while (sorted.hasNext()) {
+                    Entry entry = sorted.next();
+                    if (count % INDEX_INTERVAL == 0) {
+                        indexKeys.add(entry.key);
+                        indexOffsets.add(counter.count);
+                    }
+                    writeEntry(out, entry);
+                    addToBloom(bloom, entry.key);
+                    if (entry.isLive()) {
+                        minTime = Math.min(minTime, entry.time);
+                        maxTime = Math.max(maxTime, entry.time);
+                    }
+                    count++;
+                }
+
+                long footerStart = counter.count;
+                out.writeInt(indexKeys.size());
+                for (int i = 0; i < indexKeys.size(); i++) {
+                    out.writeUTF(indexKeys.get(i));
+                    out.writeLong(indexOffsets.get(i));
+                }
+                out.writeInt(bloom.length);
+                for (long word : bloom) {
+                    out.writeLong(word);
+                }
+                out.writeLong(minTime);
+                out.writeLong(maxTime);
+                out.writeLong(count);
+                out.writeLong(footerStart);
+                out.writeInt(SEGMENT_MAGIC);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(file);
+        }
+
+        // Open a segment file and read its footer
+        static Segment open(File file) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath());
+            try {
+                long size = channel.size();
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+                if (size < TRAILER_BYTES || channel.read(trailer, size - TRAILER_BYTES) != TRAILER_BYTES) {
+                    throw new IOException("Damaged segment: " + file);
+                }
+                trailer.flip();
+                long footerStart = trailer.getLong();
+                if (trailer.getInt() != SEGMENT_MAGIC) {
+                    throw new IOException("Damaged segment: " + file);
+                }
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        new ChannelInputStream(channel, footerStart, size - TRAILER_BYTES), BUFFER_BYTES))) {
+                    int indexSize = in.readInt();
+                    String[] indexKeys = new String[indexSize];
+                    long[] indexOffsets = new long[indexSize];
+                    for (int i = 0; i < indexSize; i++) {
+                        indexKeys[i] = in.readUTF();
+                        indexOffsets[i] = in.readLong();
+                    }
+                    long[] bloom = new long[in.readInt()];
+                    for (int i = 0; i < bloom.length; i++) {
+                        bloom[i] = in.readLong();
+                    }
+                    return new Segment(file, channel, indexKeys, indexOffsets, bloom, in.readLong(), in.readLong(), in.readLong(), footerStart);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // Find a key: bloom filter first, then one sparse-index interval
+        Entry get(String key) throws IOException {
+            if (!mightContain(bloom, key)) {
+                return null;
+            }
+            int low = 0;
+            int high = indexKeys.length - 1;
+            int interval = -1; // Last index entry whose key is not greater than the key
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (KEY_ORDER.compare(indexKeys[mid], key) <= 0) {
+                    interval = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (interval < 0) {
+                return null;
+            }
+            int records = (int) Math.min(INDEX_INTERVAL, count - (long) interval * INDEX_INTERVAL);
+            long end = interval + 1 < indexOffsets.length ? indexOffsets[interval + 1] : dataEnd;
+            int bufferSize = (int) Math.max(1, Math.min(BUFFER_BYTES, end - indexOffsets[interval]));
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new ChannelInputStream(channel, indexOffsets[interval], end), bufferSize))) {
+                for (int i = 0; i < records; i++) {
+                    Entry entry = readEntry(in);
+                    int order = KEY_ORDER.compare(entry.key, key);
+                    if (order == 0) {
+                        return entry;
+                    }
+                    if (order > 0) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        SegmentScanner scanner() {
+            return new SegmentScanner(new DataInputStream(new BufferedInputStream(
+                    new ChannelInputStream(channel, 0, dataEnd), BUFFER_BYTES)), count);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        synchronized void pin() {
+            readers++;
+        }
+
+        synchronized void unpin() throws IOException {
+            if (--readers == 0 && retired) {
+                discard();
+            }
+        }
+
+        synchronized void retire() throws IOException {
+            retired = true;
+            if (readers == 0) {
+                discard();
+            }
+        }
+
+        private void discard() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file.toPath());
+        }
+
+        private static void addToBloom(long[] bloom, String key) {
+            long bits = bloom.length * 64L;
+            int hash = key.hashCode();
+            int step = secondHash(hash);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hash + (long) i * step, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        private static boolean mightContain(long[] bloom, String key) {
+            long bits = bloom.length * 64L;
+            int hash = key.hashCode();
+            int step = secondHash(hash);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hash + (long) i * step, bits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int secondHash(int hash) {
+            int mixed = hash * 0x9E3779B9;
+            return (mixed ^ (mixed >>> 16)) | 1;
+        }
+    }
+
+    /**
+     * Reads the records of a segment in order.
+     */
+    private static final class SegmentScanner implements Iterator<Entry>, Closeable {
+        private final DataInputStream in;
+        private long remaining;
+
+        SegmentScanner(DataInputStream in, long count) {
+            this.in = in;
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Entry next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            try {
+                return readEntry(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close(); // Leaves the shared channel open
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Merges sorted sources, newest first, into the newest live version of every key.
+     */
+    private static final class MergingIterator implements Iterator<Entry> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+        private Entry next;
+
+        MergingIterator(List<Iterator<Entry>> sources) {
+            for (int rank = 0; rank < sources.size(); rank++) {
+                advance(new Head(sources.get(rank), rank));
+            }
+            next = findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry current = next;
+            next = findNext();
+            return current;
+        }
+
+        private Entry findNext() {
+            while (!heads.isEmpty()) {
+                Head newest = heads.poll();
+                Entry entry = newest.entry;
+                advance(newest);
+                while (!heads.isEmpty() && heads.peek().entry.key.equals(entry.key)) {
+                    advance(heads.poll()); // Older versions of the same key
+                }
+                if (entry.isLive()) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private void advance(Head head) {
+            if (head.source.hasNext()) {
+                head.entry = head.source.next();
+                heads.add(head);
+            }
+        }
+
+        private static final class Head implements Comparable<Head> {
+            private final Iterator<Entry> source;
+            private final int rank; // Lower is newer
+            private Entry entry;
+
+            Head(Iterator<Entry> source, int rank) {
+                this.source = source;
+                this.rank = rank;
+            }
+
+            @Override
+            public int compareTo(Head other) {
+                int order = KEY_ORDER.compare(entry.key, other.entry.key);
+                return order != 0 ? order : Integer.compare(rank, other.rank);
+            }
+        }
+    }
+
+    /**
+     * Reads a byte range of a shared channel with positional reads, so several readers can use it at once.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Counts the bytes written, to record the offsets of the sparse index.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Memory-mapped reader for line-based data files.
+ * The file is mapped with FileChannel.map in ranges that end on a line break. The mapped bytes are
+ * moved into a small reusable byte window with bulk copies (no read calls, no decoding), and records
+ * are tokenized straight from the window through a {@link ByteCharSequence}: delimiters, numbers,
+ * dates and enums are read from the bytes, and only the fields that become Strings are decoded.
+ * Nothing goes through a Reader, a char[] or a String per line.
+ *
+ * Text is decoded with the platform default charset, the one the DAOs write with through FileWriter.
+ * The reader does not replay the journal, so callers use it only when no journal records are pending.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedRecordReader {
+    private static final int WINDOW_BYTES = 1 << 20;
+
+    private MappedRecordReader() {
+    }
+
+    /**
+     * Parses every line of a file through memory-mapped windows on the calling thread.
+     * When a record fails to parse, the records before it are returned and the error is printed,
+     * which matches a reading loop that stops at the first exception.
+     *
+     * @param file   The data file to read.
+     * @param parser Converts one record into an object.
+     * @return The parsed objects in file order, without the skipped (null) records.
+     */
+    public static <T> List<T> read(File file, RecordParser<T> parser) {
+        List<T> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            CsvTokenizer fields = new CsvTokenizer(',');
+            for (long[] range : ParallelRecordReader.split(file, 1)) {
+                parseRange(channel, range[0], range[1], fields, parser, records);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return records;
+    }
+
+    /**
+     * Maps one range of a file and parses its lines into a list.
+     *
+     * @param channel The open channel of the data file.
+     * @param start   The offset of the first byte; must be the start of a line.
+     * @param end     The offset after the last byte; must be the end of a line or of the file.
+     * @param fields  The tokenizer to reuse for every line, owned by the calling thread.
+     * @param parser  Converts one record into an object.
+     * @param records The list the parsed objects are added to.
+     * @throws Exception If the range cannot be mapped or a record cannot be parsed.
+     */
+    static <T> void parseRange(FileChannel channel, long start, long end, CsvTokenizer fields,
+                               RecordParser<T> parser, List<T> records) throws Exception {
+        int size = (int) (end - start);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        Charset charset = Charset.defaultCharset();
+        byte[] window = new byte[Math.min(WINDOW_BYTES, Math.max(size, 1))];
+        int carried = 0; // Bytes of an unfinished line kept at the front of the window
+        int position = 0; // Next byte of the mapped range to copy
+        while (true) {
+            int count = Math.min(window.length - carried, size - position);
+            mapped.get(position, window, carried, count);
+            position += count;
+            int filled = carried + count;
+            boolean last = position == size;
+
+            ByteCharSequence text = new ByteCharSequence(window, 0, filled, charset);
+            int lineStart = 0;
+            while (lineStart < filled) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0 && !last) {
+                    break; // The line continues in the next window
+                }
+                int next = lineEnd < 0 ? filled : lineEnd + 1;
+                if (lineEnd < 0) {
+                    lineEnd = filled;
+                }
+                if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                    lineEnd--; // Windows line break
+                }
+                T record = parser.parse(fields.reset(text, lineStart, lineEnd));
+                if (record != null) {
+                    records.add(record);
+                }
+                lineStart = next;
+            }
+            if (last) {
+                return;
+            }
+
+            carried = filled - lineStart;
+            if (carried == window.length) {
+                window = Arrays.copyOf(window, window.length * 2); // A single line longer than the window
+            } else {
+                System.arraycopy(window, lineStart, window, 0, carried);
+            }
+        }
+    }
+}
@@ -8,15 +8,16 @@
  */
 package DAO;
 
+import Classes.DateCodec;
 import Classes.Owner;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.io.*;
+import java.util.stream.Stream;
 
 public class OwnerDAO {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
+    private static final DateCodec dateFormat = DateCodec.DD_MM_YYYY;
     private static final String FILE_PATH = "FurtherAsm1/src/File/owners.txt";
     private static final Scanner scanner = new Scanner(System.in);
 
@@ -30,43 +31,48 @@ public class OwnerDAO {
     private String convertOwnerToString(Owner owner) {
         return String.join(",",
                 owner.getId(),
-                owner.getFullName(),
+                CsvTokenizer.quote(owner.getFullName()),
                 owner.getDateOfBirth() != null ? dateFormat.format(owner.getDateOfBirth()) : "",
-                owner.getContactInfo()
+                CsvTokenizer.quote(owner.getContactInfo())
         );
     }
 
     /**
      * Converts a string from the file into an Owner object.
      *
-     * @param line A line of text representing an Owner.
+     * @param fields The tokenizer positioned at the start of an Owner record.
      * @return The corresponding Owner object, or null if the line is invalid.
      * @throws ParseException If the date format is incorrect.
      */
     // Convert String from file to Owner object
-    private Owner convertStringToOwner(String line) throws ParseException {
-        String[] parts = line.split(",");
-        if (parts.length < 4) {
-            System.err.println("Invalid format: " + line);
+    private Owner convertStringToOwner(CsvTokenizer fields) throws ParseException {
+        if (fields.countFields() < 4) {
+            System.err.println("Invalid format: " + fields.record());
             return null;
         }
 
-        String id = parts[0];
-        String fullName = parts[1];
-        Date dateOfBirth = parts[2].isEmpty() ? null : dateFormat.parse(parts[2]);
-        String contactInfo = parts[3];
+        String id = fields.nextString();
+        String fullName = fields.nextString();
+        Date dateOfBirth;
+        if (fields.nextIsEmpty()) {
+            fields.skip();
+            dateOfBirth = null;
+        } else {
+            dateOfBirth = fields.nextDate(dateFormat);
+        }
+        String contactInfo = fields.nextString();
 
         return new Owner(fullName, id, dateOfBirth, contactInfo, new ArrayList<>(), new ArrayList<>());
     }
 
     /**
-     * Writes a list of Owner objects to the file.
+     * Writes Owner objects to the file.
      *
-     * @param owners   The list of owners to write.
+     * @param owners   The owners to write.
      * @param FILE_PATH The file path where the data will be stored.
      */
     // Write a list of owners to a file (overwrite file content)
-    public void writeToFile(List<Owner> owners, String FILE_PATH) {
+    public void writeToFile(Iterable<Owner> owners, String FILE_PATH) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (Owner owner : owners) {
                 writer.write(convertOwnerToString(owner));
@@ -74,6 +80,10 @@ public class OwnerDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(OwnerDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
         }
     }
 
@@ -100,10 +110,12 @@ public class OwnerDAO {
             }
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+        // Read the data file with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                Owner owner = convertStringToOwner(line);
+                Owner owner = convertStringToOwner(fields.reset(line));
                 if (owner != null) {
                     owners.add(owner);
                 }
@@ -114,6 +126,32 @@ public class OwnerDAO {
         return owners;
     }
 
+    /**
+     * Reads one owner by its ID through the `.idx` sidecar of the file, without reading the other records.
+     *
+     * @param ownerId The ID of the owner.
+     * @return The Owner object, or null if there is no owner with that ID.
+     */
+    public Owner readOne(String ownerId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(ownerId);
+            return line == null ? null : convertStringToOwner(new CsvTokenizer(',').reset(line));
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the owners of the file one at a time, without building a list.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the owners in file order, empty if the file does not exist.
+     */
+    public Stream<Owner> stream() {
+        return RecordStreams.of(FILE_PATH, () -> this::convertStringToOwner);
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -139,6 +177,16 @@ public class OwnerDAO {
      */
     // Update owner information in the list and write it back to the file
     public boolean update(Owner updatedOwner) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).update(updatedOwner.getId(), convertOwnerToString(updatedOwner))) {
+                System.out.println("Owner updated successfully!");
+                return true;
+            }
+            System.out.println("Owner not found!");
+            return false;
+        }
+
         List<Owner> owners = readFromFile();
 
         boolean ownerFound = false;
@@ -168,6 +216,16 @@ public class OwnerDAO {
      */
     // Delete owner by ownerId and update the file
     public boolean delete(String ownerId) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).delete(ownerId)) {
+                System.out.println("Owner deleted successfully!");
+                return true;
+            }
+            System.out.println("Owner not found!");
+            return false;
+        }
+
         List<Owner> owners = readFromFile();
 
         boolean ownerFound = false;
@@ -0,0 +1,123 @@
+/**
+ * Parallel reader for large line-based data files.
+ * The file is cut into byte ranges whose boundaries are moved forward to the next line break,
+ * so every record lies in exactly one range. Each range is memory-mapped and parsed on a fork-join
+ * worker with its own tokenizer, straight from the mapped bytes (see {@link MappedRecordReader}),
+ * and the results are concatenated in range order, so the records come back in file order.
+ *
+ * A line break byte never occurs inside a multi-byte UTF-8 character, so ranges cut after '\n'
+ * always decode cleanly on their own. Callers check {@link StorageOptions#MAPPED_READ_ENABLED} first,
+ * as a mapped file cannot be replaced on every platform while the mapping is alive.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ParallelRecordReader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20; // Smaller ranges cost more in scheduling than they save
+    private static final int MAX_CHUNK_BYTES = 64 << 20; // Keeps each mapping of a range small
+    private static final int CHUNKS_PER_WORKER = 4; // Lets fast workers pick up the slack of slow ones
+
+    private ParallelRecordReader() {
+    }
+
+    /**
+     * Parses every line of a file in parallel on the common fork-join pool.
+     * When a record fails to parse, the records before it are returned and the error is printed,
+     * which matches a sequential reading loop that stops at the first exception.
+     *
+     * @param file   The data file to read.
+     * @param parser Converts one record into an object; it is called from several threads at once.
+     * @return The parsed objects in file order, without the skipped (null) records.
+     */
+    public static <T> List<T> read(File file, RecordParser<T> parser) {
+        List<Chunk<T>> chunks = new ArrayList<>();
+        int total = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            List<long[]> ranges = split(file, ForkJoinPool.commonPool().getParallelism());
+            List<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseRange(channel, range[0], range[1], parser)));
+            }
+
+            // Join in range order so the merged list keeps the file order
+            for (ForkJoinTask<Chunk<T>> task : tasks) {
+                Chunk<T> chunk = task.join();
+                chunks.add(chunk);
+                total += chunk.records.size();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        List<T> records = new ArrayList<>(total);
+        for (Chunk<T> chunk : chunks) {
+            records.addAll(chunk.records);
+            if (chunk.error != null) {
+                chunk.error.printStackTrace();
+                break; // Later ranges lie after the failing record
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Splits a file into byte ranges that start at the beginning of a line.
+     *
+     * @param file    The file to split.
+     * @param workers The number of workers that will parse the ranges.
+     * @return The ranges as {start, end} pairs, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<long[]> split(File file, int workers) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long size = raf.length();
+            long chunkSize = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / Math.max(1, workers * CHUNKS_PER_WORKER)));
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + chunkSize);
+                if (end < size) {
+                    // Move the boundary just past the next line break
+                    raf.seek(end);
+                    int b;
+                    while ((b = raf.read()) != -1 && b != '\n') {
+                        end++;
+                    }
+                    end = Math.min(size, end + 1);
+                }
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        return ranges;
+    }
+
+    // Map one range and parse its lines with a tokenizer owned by this worker
+    private static <T> Chunk<T> parseRange(FileChannel channel, long start, long end, RecordParser<T> parser) {
+        Chunk<T> chunk = new Chunk<>();
+        try {
+            MappedRecordReader.parseRange(channel, start, end, new CsvTokenizer(','), parser, chunk.records);
+        } catch (Exception e) {
+            chunk.error = e; // The records parsed before the failure stay in the chunk
+        }
+        return chunk;
+    }
+
+    /**
+     * Records parsed from one range, and the error that stopped it if any.
+     */
+    private static class Chunk<T> {
+        private final List<T> records = new ArrayList<>();
+        private Exception error;
+    }
+}
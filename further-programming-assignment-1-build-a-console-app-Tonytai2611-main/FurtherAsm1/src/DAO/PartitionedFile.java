@@ -0,0 +1,365 @@
+/**
+ * Text records split by period into one file per period, used for payments when
+ * {@link StorageOptions#PARTITIONED_PAYMENTS_ENABLED} is set. The store keeps its own directory:
+ *
+ *   name-2024-03.txt  the records of one period (a month for payments), in the order they were written
+ *   MANIFEST          one line per partition: period, record count, byte length and CRC32
+ *
+ * A read over a date range opens only the partitions of the periods it overlaps. Writing the full
+ * record set streams every record into a temporary file of its period and compares the result with
+ * the manifest: a partition whose bytes did not change is left alone. Old periods, where nothing
+ * changes any more, therefore keep their file, its timestamp and its `.idx` sidecar, and stay valid
+ * in the OS cache and in anything else keyed by them. Updating or deleting one record rewrites only
+ * its partition. The directory is owned by one process at a time.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class PartitionedFile {
+    private static final String MANIFEST = "MANIFEST";
+
+    private final File directory;
+    private final String name;
+    private final Pattern partitionName;
+    private final Function<String, String> periodOf;
+    private final TreeMap<String, Partition> partitions = new TreeMap<>(); // By period, oldest first
+
+    /**
+     * Opens the partitions in a directory, creating the directory if needed. The partition files
+     * present decide which periods exist; temporary files left by a crash are removed.
+     *
+     * @param directoryPath The directory of the partitions.
+     * @param name          The name the partition files start with, e.g. "payments".
+     * @param periodOf      Finds the period of a record line; periods sort in time order, e.g. "2024-03".
+     * @throws IOException If the directory or the manifest cannot be read.
+     */
+    public PartitionedFile(String directoryPath, String name, Function<String, String> periodOf) throws IOException {
+        this.directory = new File(directoryPath);
+        this.name = name;
+        this.partitionName = Pattern.compile(Pattern.quote(name) + "-(.+)\\.txt");
+        this.periodOf = periodOf;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create partition directory: " + directory);
+        }
+
+        Map<String, Partition> recorded = new HashMap<>();
+        File manifest = new File(directory, MANIFEST);
+        if (manifest.exists()) {
+            for (String line : Files.readAllLines(manifest.toPath())) {
+                Partition partition = Partition.parse(line);
+                if (partition != null) {
+                    recorded.put(partition.period, partition);
+                }
+            }
+        }
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            Matcher matcher = partitionName.matcher(file.getName());
+            if (matcher.matches()) {
+                Partition partition = recorded.get(matcher.group(1));
+                if (partition == null || partition.bytes != file.length()) {
+                    partition = new Partition(matcher.group(1), -1, file.length(), -1); // Not as recorded: never skipped
+                }
+                partitions.put(partition.period, partition);
+            } else if (file.getName().endsWith(".tmp")) {
+                Files.deleteIfExists(file.toPath()); // Left by a write that did not finish
+            }
+        }
+    }
+
+    /**
+     * Checks whether the partitions were written before, so a new store can be seeded, e.g. from a data file.
+     *
+     * @return True once a manifest exists.
+     */
+    public synchronized boolean isInitialized() {
+        return new File(directory, MANIFEST).exists();
+    }
+
+    /**
+     * Returns the partition files of all periods.
+     *
+     * @return The files, oldest period first.
+     */
+    public synchronized List<File> files() {
+        List<File> files = new ArrayList<>(partitions.size());
+        for (String period : partitions.keySet()) {
+            files.add(fileOf(period));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the partition files of the periods in a range; the others are not opened.
+     *
+     * @param fromPeriod The first period, inclusive.
+     * @param toPeriod   The last period, inclusive.
+     * @return The files, oldest period first.
+     */
+    public synchronized List<File> files(String fromPeriod, String toPeriod) {
+        List<File> files = new ArrayList<>();
+        if (fromPeriod.compareTo(toPeriod) > 0) {
+            return files;
+        }
+        for (String period : partitions.subMap(fromPeriod, true, toPeriod, true).keySet()) {
+            files.add(fileOf(period));
+        }
+        return files;
+    }
+
+    /**
+     * Finds the record line of an ID through the `.idx` sidecar of each partition, newest first.
+     *
+     * @param id The ID of the record.
+     * @return The record line, or null if there is no record with that ID.
+     * @throws IOException If a partition or its index cannot be read.
+     */
+    public synchronized String find(String id) throws IOException {
+        for (String period : partitions.descendingKeySet()) {
+            String line = RecordIndex.forFile(fileOf(period).getPath()).find(id);
+            if (line != null) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the partitions with a full set of records. Only the partitions whose content changed
+     * are replaced, and those of periods without records any more are deleted.
+     *
+     * @param lines The record lines, in the order to keep within each period.
+     * @return The number of records written.
+     * @throws IOException If a partition or the manifest cannot be written.
+     */
+    public synchronized int writeAll(Iterable<String> lines) throws IOException {
+        Map<String, PartitionWriter> writers = new TreeMap<>();
+        int total = 0;
+        try {
+            for (String line : lines) {
+                String period = periodOf.apply(line);
+                PartitionWriter writer = writers.get(period);
+                if (writer == null) {
+                    writer = new PartitionWriter(period, tempOf(period));
+                    writers.put(period, writer);
+                }
+                writer.write(line);
+                total++;
+            }
+            for (PartitionWriter writer : writers.values()) {
+                writer.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (PartitionWriter writer : writers.values()) {
+                writer.abandon();
+            }
+            throw e;
+        }
+
+        for (PartitionWriter writer : writers.values()) {
+            install(writer);
+        }
+        for (String period : new ArrayList<>(partitions.keySet())) {
+            if (!writers.containsKey(period)) {
+                remove(period);
+            }
+        }
+        writeManifest();
+        return total;
+    }
+
+    /**
+     * Replaces or deletes the record of an ID, rewriting only its partition, and the partition of
+     * the new period if the record moves to another period.
+     *
+     * @param id   The ID of the record.
+     * @param line The new record line, or null to delete the record.
+     * @return True if a record with that ID existed.
+     * @throws IOException If a partition or the manifest cannot be written.
+     */
+    public synchronized boolean replace(String id, String line) throws IOException {
+        String oldPeriod = null;
+        for (String period : partitions.descendingKeySet()) {
+            if (RecordIndex.forFile(fileOf(period).getPath()).find(id) != null) {
+                oldPeriod = period;
+                break;
+            }
+        }
+        if (oldPeriod == null) {
+            return false;
+        }
+        String newPeriod = line == null ? null : periodOf.apply(line);
+        boolean samePeriod = oldPeriod.equals(newPeriod);
+        rewrite(oldPeriod, id, samePeriod ? line : null); // Keeps the place of the record within its period
+        if (newPeriod != null && !samePeriod) {
+            rewrite(newPeriod, null, line);
+        }
+        writeManifest();
+        return true;
+    }
+
+    // Copy a partition with the first record of an ID replaced or dropped, or with a record appended
+    private void rewrite(String period, String replacedId, String replacement) throws IOException {
+        PartitionWriter writer = new PartitionWriter(period, tempOf(period));
+        try {
+            File file = fileOf(period);
+            boolean replaced = replacedId == null;
+            if (file.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!replaced && RecordJournal.idOf(line).equals(replacedId)) {
+                            replaced = true;
+                            if (replacement != null) {
+                                writer.write(replacement);
+                            }
+                        } else {
+                            writer.write(line);
+                        }
+                    }
+                }
+            }
+            if (replacedId == null && replacement != null) {
+                writer.write(replacement);
+            }
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            writer.abandon();
+            throw e;
+        }
+        if (writer.count == 0) {
+            Files.deleteIfExists(writer.temp.toPath());
+            remove(period);
+        } else {
+            install(writer);
+        }
+    }
+
+    // Move a written partition into place, unless the file already holds exactly these bytes
+    private void install(PartitionWriter writer) throws IOException {
+        Partition written = writer.partition();
+        Partition current = partitions.get(writer.period);
+        File file = fileOf(writer.period);
+        if (current != null && current.crc == written.crc && current.bytes == written.bytes && file.length() == written.bytes) {
+            Files.deleteIfExists(writer.temp.toPath()); // Unchanged: the old file, its timestamp and its index stay
+            return;
+        }
+        Files.move(writer.temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        partitions.put(writer.period, written);
+    }
+
+    private void remove(String period) throws IOException {
+        File file = fileOf(period);
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(new File(file.getPath() + ".idx").toPath());
+        partitions.remove(period);
+    }
+
+    private void writeManifest() throws IOException {
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
+            for (Partition partition : partitions.values()) {
+                writer.write(partition.toString());
+                writer.newLine();
+            }
+        }
+        Files.move(temp.toPath(), new File(directory, MANIFEST).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File fileOf(String period) {
+        return new File(directory, name + "-" + period + ".txt");
+    }
+
+    private File tempOf(String period) {
+        return new File(directory, name + "-" + period + ".txt.tmp");
+    }
+
+    /**
+     * Manifest entry of one partition. A count or CRC of -1 means the file is not as recorded.
+     */
+    private static final class Partition {
+        private final String period;
+        private final long count;
+        private final long bytes;
+        private final long crc;
+
+        Partition(String period, long count, long bytes, long crc) {
+            this.period = period;
+            this.count = count;
+            this.bytes = bytes;
+            this.crc = crc;
+        }
+
+        static Partition parse(String line) {
+            String[] fields = line.split(",");
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Partition(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return period + "," + count + "," + bytes + "," + crc;
+        }
+    }
+
+    /**
+     * Writes the records of one period to a temporary file, with the CRC32 of the bytes written.
+     */
+    private static final class PartitionWriter {
+        private final String period;
+        private final File temp;
+        private final CRC32 crc = new CRC32();
+        private final BufferedWriter writer;
+        private long count;
+
+        PartitionWriter(String period, File temp) throws IOException {
+            this.period = period;
+            this.temp = temp;
+            // Same encoding and line breaks as the FileWriter of the data file
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(new FileOutputStream(temp), crc), Charset.defaultCharset()));
+        }
+
+        void write(String line) throws IOException {
+            writer.write(line);
+            writer.newLine();
+            count++;
+        }
+
+        void close() throws IOException {
+            writer.close();
+        }
+
+        void abandon() {
+            try {
+                writer.close();
+                Files.deleteIfExists(temp.toPath());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        Partition partition() {
+            return new Partition(period, count, temp.length(), crc.getValue());
+        }
+    }
+}
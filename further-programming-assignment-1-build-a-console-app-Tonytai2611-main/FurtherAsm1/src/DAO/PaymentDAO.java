@@ -1,26 +1,54 @@
 /**
  * Data Access Object (DAO) for managing Payment objects.
  * Provides methods to read, write, update, and delete Payment records from a file.
- * It also uses the TenantManager to link payments to their respective tenants.
+ * It also uses the shared TenantManager to link payments to their respective tenants.
+ * With {@link StorageOptions#LSM_PAYMENTS_ENABLED}, the payments are kept in an {@link LsmStore} instead,
+ * and with {@link StorageOptions#PARTITIONED_PAYMENTS_ENABLED} in one file per month ({@link PartitionedFile}).
  *
  * @author <Truong Phung Tan Tai - s3974929>
  */
 package DAO;
 
+import Classes.DateCodec;
 import Classes.Payment;
 import Classes.Tenant;
-import Interface.TenantManager;
 
 import java.io.*;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class PaymentDAO {
-    private static final TenantManager tenantManager = new TenantManager();
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
+    private static final DateCodec dateFormat = DateCodec.DD_MM_YYYY;
     private static final String FILE_PATH = "FurtherAsm1/src/File/payments.txt"; // Link to store payment
+    private static final String STORE_PATH = "FurtherAsm1/src/File/payments.lsm"; // Link to store payments in the LSM store
+    private static final String PARTITIONS_PATH = "FurtherAsm1/src/File/payments.parts"; // Link to store payments by month
+    /** Manifest of the monthly partitions; it changes whenever a partition does. */
+    public static final String PARTITION_MANIFEST_PATH = PARTITIONS_PATH + "/MANIFEST";
+    private static LsmStore store; // Opened on first use, shared by all instances
+    private static PartitionedFile partitions; // Opened on first use, shared by all instances
+    private final TailCursor tailCursor = new TailCursor(FILE_PATH); // End of the last parsed payment, see readAppended
+    private final EntityLookup entities; // Tenants the payments reference
+
+    /**
+     * Constructs a DAO reading the tenant file itself to resolve the tenants of payments.
+     */
+    public PaymentDAO() {
+        this(new FileEntityLookup());
+    }
+
+    /**
+     * Constructs a DAO resolving the tenants of payments against already loaded tenants.
+     *
+     * @param entities Finds the loaded tenants, e.g. those of the application's TenantManager.
+     */
+    public PaymentDAO(EntityLookup entities) {
+        this.entities = entities;
+    }
 
     /**
      * Converts a Payment object into a string representation for file storage.
@@ -35,34 +63,32 @@ public class PaymentDAO {
                 payment.getTenant().getId(),  // Only save Tenant ID
                 String.valueOf(payment.getAmount()),
                 dateFormat.format(payment.getDate()),
-                payment.getPaymentMethod()
+                CsvTokenizer.quote(payment.getPaymentMethod())
         );
     }
 
     /**
-     * Converts a string from the file into a Payment object.
+     * Converts a record from the file into a Payment object.
      *
-     * @param line A line of text representing a Payment.
-     * @return The corresponding Payment object, or null if the line is invalid.
+     * @param fields  The tokenizer positioned at the start of a Payment record.
+     * @param tenants Finds the loaded tenant of an ID.
+     * @return The corresponding Payment object, or null if the record is invalid.
      * @throws ParseException If the date format is incorrect.
      */
-    // Convert String from file to Payment object
-    private Payment convertStringToPayment(String line) throws ParseException {
-        String[] parts = line.split(",");
-        if (parts.length < 5) {
-            System.err.println("Invalid format: " + line);
+    // Convert a record from file to Payment object
+    private Payment convertStringToPayment(CsvTokenizer fields, Function<String, Tenant> tenants) throws ParseException {
+        if (fields.countFields() < 5) {
+            System.err.println("Invalid format: " + fields.record());
             return null;
         }
 
-        String paymentId = parts[0];
-        String tenantId = parts[1]; // Only Tenant ID
-        double amount = Double.parseDouble(parts[2]);
-        Date date = dateFormat.parse(parts[3]);
-        String paymentMethod = parts[4];
+        String paymentId = fields.nextString();
+        String tenantId = fields.nextString(); // Only Tenant ID
+        double amount = fields.nextDouble();
+        Date date = fields.nextDate(dateFormat);
+        String paymentMethod = fields.nextString();
 
-        // Load Tenant from file using TenantManager
-        tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt");
-        Tenant tenant = tenantManager.getOne(tenantId); // Get Tenant by ID
+        Tenant tenant = tenants.apply(tenantId); // Get the shared Tenant instance by ID
 
         if (tenant == null) {
             System.err.println("Tenant not found for ID: " + tenantId);
@@ -73,13 +99,26 @@ public class PaymentDAO {
     }
 
     /**
-     * Writes a list of Payment objects to the file.
+     * Writes Payment objects to the file.
      *
-     * @param payments  The list of payments to write.
+     * @param payments  The payments to write.
      * @param FILE_PATH The file path where the data will be stored.
      */
     // Write a list of payments to a file (overwrite file content)
-    public void writeToFile(List<Payment> payments,String FILE_PATH) {
+    public void writeToFile(Iterable<Payment> payments,String FILE_PATH) {
+        if (StorageOptions.LSM_PAYMENTS_ENABLED && FILE_PATH.equals(PaymentDAO.FILE_PATH)) {
+            syncStore(payments); // The store replaces the data file
+            return;
+        }
+        if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED && FILE_PATH.equals(PaymentDAO.FILE_PATH)) {
+            try {
+                // Only the months whose payments changed are rewritten
+                partitions().writeAll(() -> StreamSupport.stream(payments.spliterator(), false).map(this::convertPaymentToString).iterator());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (Payment payment : payments) {
                 writer.write(convertPaymentToString(payment));
@@ -87,17 +126,43 @@ public class PaymentDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(PaymentDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
+            tailCursor.markParsed(new File(FILE_PATH).length()); // and so does the caller's list
         }
     }
 
     /**
      * Reads Payment objects from the file and returns them as a list.
      * Creates a new file if it does not exist.
+     * Payments are linked to the tenants given to the DAO, loaded first if nothing loaded them yet.
      *
      * @return A list of Payment objects.
      */
     // Read payments from file
     public List<Payment> readFromFile() {
+        entities.ensureLoaded();
+        return readFromFile(entities.tenants());
+    }
+
+    /**
+     * Reads Payment objects from the file, resolving their tenants against tenants that are already loaded.
+     * Creates a new file if it does not exist.
+     *
+     * @param loadedTenants The tenants to link payments to, e.g. those of the application's TenantManager.
+     * @return A list of Payment objects.
+     */
+    // Read payments from file against already loaded tenants
+    public List<Payment> readFromFile(List<Tenant> loadedTenants) {
+        if (StorageOptions.LSM_PAYMENTS_ENABLED) {
+            return readFromStore(indexTenants(loadedTenants));
+        }
+        if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+            return readPartitions(null, null, indexTenants(loadedTenants));
+        }
+
         List<Payment> payments = new ArrayList<>();
         File file = new File(FILE_PATH);  // Check if the file exists
 
@@ -113,10 +178,29 @@ public class PaymentDAO {
             }
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        Map<String, Tenant> tenants = indexTenants(loadedTenants); // Build the tenant index once per load
+
+        // Large ledgers are parsed in parallel chunks and others straight from the mapped file; both map it,
+        // so they are skipped when mapping is off. A pending journal needs the sequential replaying reader
+        if (!RecordJournal.forFile(FILE_PATH).hasPending()) {
+            tailCursor.markParsed(file.length()); // Appended payments can be read from here on
+
+            if (StorageOptions.MAPPED_READ_ENABLED) {
+                if (file.length() >= StorageOptions.PARALLEL_LOAD_MIN_BYTES) {
+                    return ParallelRecordReader.read(file, fields -> convertStringToPayment(fields, tenants::get));
+                }
+                return MappedRecordReader.read(file, fields -> convertStringToPayment(fields, tenants::get));
+            }
+        }
+
+        tailCursor.invalidate(); // The replayed payments are not a prefix of the data file
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+
+        // Read the data file with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                Payment payment = convertStringToPayment(line);  // Convert each line to a Payment object
+                Payment payment = convertStringToPayment(fields.reset(line), tenants::get);  // Convert each line to a Payment object
                 if (payment != null) {
                     payments.add(payment);  // Add the Payment object to the list
                 }
@@ -127,6 +211,396 @@ public class PaymentDAO {
         return payments;
     }
 
+    /**
+     * Reads only the payments appended to the file since it was last read or written through this DAO.
+     * Returns null when that is not possible (the file was truncated or rewritten, journal records are
+     * pending, or the tail is large enough for a full parallel read), in which case the caller reads
+     * the whole file.
+     *
+     * @param loadedTenants The tenants to link payments to.
+     * @return The appended payments in file order, or null if the whole file has to be read.
+     */
+    public List<Payment> readAppended(List<Tenant> loadedTenants) {
+        if (StorageOptions.LSM_PAYMENTS_ENABLED || StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+            return null; // Nothing is appended to the data file while the store holds the payments
+        }
+        Map<String, Tenant> tenants = indexTenants(loadedTenants);
+        return tailCursor.readAppended(fields -> convertStringToPayment(fields, tenants::get));
+    }
+
+    /**
+     * Reads one payment by its ID without reading the other records: through the `.idx` sidecar of
+     * the file or, with the LSM store, from at most one sparse-index interval of each segment whose
+     * bloom filter admits the ID. Monthly partitions are searched through their own sidecars, newest
+     * month first. Until the tenants are loaded, its tenant is read the same way, so a lookup never
+     * loads whole files.
+     *
+     * @param paymentId The ID of the payment.
+     * @return The payment, or null if it does not exist or its tenant is unknown.
+     */
+    public Payment readOne(String paymentId) {
+        try {
+            String line = StorageOptions.LSM_PAYMENTS_ENABLED ? store().get(paymentId)
+                    : StorageOptions.PARTITIONED_PAYMENTS_ENABLED ? partitions().find(paymentId)
+                    : RecordIndex.forFile(FILE_PATH).find(paymentId);
+            return line == null ? null : convertStringToPayment(new CsvTokenizer(',').reset(line), tenantLookup());
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the payments made between two dates. With the LSM store, segments holding no payment
+     * of that period are not read, and with monthly partitions only the months of the period are;
+     * otherwise the file is read.
+     *
+     * @param from The first date, inclusive.
+     * @param to   The last date, inclusive.
+     * @return The payments of the period, ordered by ID with the LSM store and by file order otherwise.
+     */
+    public List<Payment> readBetween(Date from, Date to) {
+        List<Payment> payments = new ArrayList<>();
+        if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+            entities.ensureLoaded();
+            return readPartitions(from, to, indexTenants(entities.tenants()));
+        }
+        if (!StorageOptions.LSM_PAYMENTS_ENABLED) {
+            for (Payment payment : readFromFile()) {
+                if (!payment.getDate().before(from) && !payment.getDate().after(to)) {
+                    payments.add(payment);
+                }
+            }
+            return payments;
+        }
+        try {
+            Function<String, Tenant> tenants = registeredTenants();
+            CsvTokenizer fields = new CsvTokenizer(',');
+            for (LsmStore.Entry entry : store().scanTime(from.getTime(), to.getTime())) {
+                addParsed(entry.getValue(), fields, tenants, payments);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return payments;
+    }
+
+    /**
+     * Streams the payments one at a time, without building a list: from the file in file order, from
+     * the monthly partitions month by month, or from the LSM store in ID order. The stream holds the
+     * file or the store's segments open until it is closed. Tenants are linked to those given to the DAO, which are loaded first if needed.
+     *
+     * @return A lazy stream of the payments.
+     */
+    public Stream<Payment> stream() {
+        entities.ensureLoaded();
+        Map<String, Tenant> tenants = indexTenants(entities.tenants()); // Read from several threads in a parallel stream
+        Supplier<RecordParser<Payment>> parsers = () -> fields -> convertStringToPayment(fields, tenants::get);
+        try {
+            if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+                return partitions().files().stream().flatMap(file -> RecordStreams.of(file.getPath(), parsers));
+            }
+            if (!StorageOptions.LSM_PAYMENTS_ENABLED) {
+                return RecordStreams.of(FILE_PATH, parsers);
+            }
+            LsmStore.Cursor cursor = store().openCursor();
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(cursor::close)
+                    .map(entry -> parseOrNull(entry.getValue(), tenants::get))
+                    .filter(Objects::nonNull);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Reads the payments of the monthly partitions, opening only the months of a period if one is given.
+     * Large months are parsed in parallel chunks, others lazily from the mapped file.
+     *
+     * @param from    The first date, inclusive, or null to read every month.
+     * @param to      The last date, inclusive, or null to read every month.
+     * @param tenants The tenants to link payments to.
+     * @return The payments in month order, and in file order within a month.
+     */
+    private List<Payment> readPartitions(Date from, Date to, Map<String, Tenant> tenants) {
+        List<Payment> payments = new ArrayList<>();
+        RecordParser<Payment> parser = fields -> {
+            Payment payment = convertStringToPayment(fields, tenants::get);
+            boolean inPeriod = from == null || payment == null
+                    || (!payment.getDate().before(from) && !payment.getDate().after(to));
+            return inPeriod ? payment : null;
+        };
+        try {
+            PartitionedFile paymentPartitions = partitions();
+            List<File> files = from == null ? paymentPartitions.files()
+                    : paymentPartitions.files(periodOf(dateFormat.format(from)), periodOf(dateFormat.format(to)));
+            for (File file : files) {
+                if (file.length() >= StorageOptions.PARALLEL_LOAD_MIN_BYTES && StorageOptions.MAPPED_READ_ENABLED) {
+                    payments.addAll(ParallelRecordReader.read(file, parser));
+                } else {
+                    try (Stream<Payment> month = RecordStreams.of(file.getPath(), () -> parser)) {
+                        month.forEach(payments::add);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return payments;
+    }
+
+    // Read every payment from the LSM store, ordered by ID
+    private List<Payment> readFromStore(Map<String, Tenant> tenants) {
+        List<Payment> payments = new ArrayList<>();
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every record
+        try {
+            store().scan(entry -> addParsed(entry.getValue(), fields, tenants::get, payments));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return payments;
+    }
+
+    // Parse one stored record with its own tokenizer, so records can be parsed on several threads
+    private Payment parseOrNull(String line, Function<String, Tenant> tenants) {
+        try {
+            return convertStringToPayment(new CsvTokenizer(',').reset(line), tenants);
+        } catch (ParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void addParsed(String line, CsvTokenizer fields, Function<String, Tenant> tenants, List<Payment> payments) {
+        try {
+            Payment payment = convertStringToPayment(fields.reset(line), tenants);
+            if (payment != null) {
+                payments.add(payment);
+            }
+        } catch (ParseException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Brings the LSM store in line with a full payment list, as a rewrite of the data file would,
+     * but writes only the payments that were added, changed or removed. This scans the whole store,
+     * so the manager calls it only when the list changed without its changes being written through.
+     *
+     * @param payments The complete list of payments.
+     */
+    private void syncStore(Iterable<Payment> payments) {
+        Map<String, Payment> pending = new LinkedHashMap<>();
+        for (Payment payment : payments) {
+            pending.putIfAbsent(payment.getPaymentId(), payment);
+        }
+        try {
+            LsmStore paymentStore = store();
+            List<String> removed = new ArrayList<>();
+            List<Payment> written = new ArrayList<>();
+            paymentStore.scan(entry -> { // Collected first, so the scan does not see the writes made from it
+                Payment payment = pending.remove(entry.getKey());
+                if (payment == null) {
+                    removed.add(entry.getKey());
+                } else if (!convertPaymentToString(payment).equals(entry.getValue())) {
+                    written.add(payment);
+                }
+            });
+            written.addAll(pending.values()); // Not in the store yet
+            for (String paymentId : removed) {
+                paymentStore.delete(paymentId);
+            }
+            for (Payment payment : written) {
+                paymentStore.put(payment.getPaymentId(), payment.getDate().getTime(), convertPaymentToString(payment));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes one payment, or its tombstone, to the LSM store if the payment exists there.
+     *
+     * @param paymentId The ID of the payment.
+     * @param payment   The new version of the payment, or null to delete it.
+     * @return True if the payment exists and the write was logged.
+     */
+    private boolean writeToStore(String paymentId, Payment payment) {
+        try {
+            LsmStore paymentStore = store();
+            if (paymentStore.get(paymentId) == null) {
+                return false;
+            }
+            if (payment == null) {
+                paymentStore.delete(paymentId);
+            } else {
+                paymentStore.put(paymentId, payment.getDate().getTime(), convertPaymentToString(payment));
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes a new payment straight to the LSM store, so adding a payment does not save the whole list.
+     *
+     * @param payment The payment to add.
+     * @return True if the payment was written, false if the store is not used or already holds its ID.
+     */
+    public boolean insert(Payment payment) {
+        if (!StorageOptions.LSM_PAYMENTS_ENABLED) {
+            return false;
+        }
+        try {
+            LsmStore paymentStore = store();
+            if (paymentStore.get(payment.getPaymentId()) != null) {
+                return false;
+            }
+            paymentStore.put(payment.getPaymentId(), payment.getDate().getTime(), convertPaymentToString(payment));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Replaces or deletes one payment in its monthly partition if the payment exists there.
+     *
+     * @param paymentId The ID of the payment.
+     * @param payment   The new version of the payment, or null to delete it.
+     * @return True if the payment exists and its partition was rewritten.
+     */
+    private boolean writeToPartition(String paymentId, Payment payment) {
+        try {
+            return partitions().replace(paymentId, payment == null ? null : convertPaymentToString(payment));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Opens the LSM store of the payments on first use. A new store is seeded with the payments of
+     * the data file, with the journal replayed over it.
+     *
+     * @return The shared store.
+     * @throws IOException If the store cannot be opened or seeded.
+     */
+    private static synchronized LsmStore store() throws IOException {
+        if (store == null) {
+            LsmStore opened = new LsmStore(STORE_PATH, StorageOptions.LSM_MEMTABLE_RECORDS, "payment-store-compaction");
+            if (!opened.isInitialized()) {
+                List<LsmStore.Entry> entries = new ArrayList<>();
+                if (new File(FILE_PATH).exists()) {
+                    CsvTokenizer fields = new CsvTokenizer(',');
+                    try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            entries.add(new LsmStore.Entry(RecordJournal.idOf(line), timeOf(line, fields), line));
+                        }
+                    }
+                }
+                opened.importEntries(entries);
+                System.out.println("Payment store created with " + entries.size() + " payments from " + FILE_PATH);
+            }
+            store = opened;
+        }
+        return store;
+    }
+
+    /**
+     * Opens the monthly partitions of the payments on first use. New partitions are seeded with the
+     * payments of the data file, with the journal replayed over it.
+     *
+     * @return The shared partitions.
+     * @throws IOException If the partitions cannot be opened or seeded.
+     */
+    private static synchronized PartitionedFile partitions() throws IOException {
+        if (partitions == null) {
+            CsvTokenizer fields = new CsvTokenizer(','); // Only used under the lock of the partitions
+            PartitionedFile opened = new PartitionedFile(PARTITIONS_PATH, "payments", line -> periodOf(line, fields));
+            if (!opened.isInitialized()) {
+                List<String> lines = new ArrayList<>();
+                if (new File(FILE_PATH).exists()) {
+                    try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            lines.add(line);
+                        }
+                    }
+                }
+                opened.writeAll(lines);
+                System.out.println("Payment partitions created with " + lines.size() + " payments from " + FILE_PATH);
+            }
+            partitions = opened;
+        }
+        return partitions;
+    }
+
+    // Month of a payment record as "yyyy-MM", or "0000-00" if the record has no readable date
+    private static String periodOf(String line, CsvTokenizer fields) {
+        try {
+            fields.reset(line);
+            fields.skip(); // paymentId
+            fields.skip(); // tenantId
+            fields.skip(); // amount
+            return periodOf(fields.nextString());
+        } catch (RuntimeException e) {
+            return "0000-00"; // Kept as is; it is reported when the record is read
+        }
+    }
+
+    // "dd-MM-yyyy" to "yyyy-MM", which sorts in time order
+    private static String periodOf(String date) {
+        if (date.length() != 10) {
+            return "0000-00";
+        }
+        return date.substring(6) + "-" + date.substring(3, 5);
+    }
+
+    // Date of a payment record in milliseconds, or 0 if the record has no readable date
+    private static long timeOf(String line, CsvTokenizer fields) {
+        try {
+            fields.reset(line);
+            fields.skip(); // paymentId
+            fields.skip(); // tenantId
+            fields.skip(); // amount
+            return fields.nextDate(dateFormat).getTime();
+        } catch (ParseException | RuntimeException e) {
+            return 0; // Kept as is; it is reported when the record is read
+        }
+    }
+
+    // Loaded tenants once they are loaded; otherwise each tenant is read through the index of its file
+    private Function<String, Tenant> tenantLookup() {
+        return entities::tenant;
+    }
+
+    // Loaded tenants, loaded first if nothing loaded them yet
+    private Function<String, Tenant> registeredTenants() {
+        entities.ensureLoaded();
+        return entities::tenant;
+    }
+
+    /**
+     * Indexes the loaded tenants by ID for payment resolution.
+     *
+     * @param loaded The loaded tenants.
+     * @return A map from tenant ID to Tenant; the first tenant wins when IDs are duplicated.
+     */
+    // Build a hash index by tenantId
+    private Map<String, Tenant> indexTenants(List<Tenant> loaded) {
+        Map<String, Tenant> index = new HashMap<>(loaded.size() * 2);
+        for (Tenant tenant : loaded) {
+            index.putIfAbsent(tenant.getId(), tenant);
+        }
+        return index;
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -152,6 +626,34 @@ public class PaymentDAO {
      */
     // Update payment information in the list and write it back to the file
     public boolean update (Payment updatedPayment) {
+        if (StorageOptions.LSM_PAYMENTS_ENABLED) {
+            // Log a newer version that shadows the old one until compaction
+            if (writeToStore(updatedPayment.getPaymentId(), updatedPayment)) {
+                System.out.println("Payment updated successfully");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+        if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+            // Rewrite only the month of the payment, and its new month if the date moved
+            if (writeToPartition(updatedPayment.getPaymentId(), updatedPayment)) {
+                System.out.println("Payment updated successfully");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).update(updatedPayment.getPaymentId(), convertPaymentToString(updatedPayment))) {
+                System.out.println("Payment updated successfully");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+
         List<Payment> payments = readFromFile(); // Read the payment list from the file
 
         boolean paymentFound = false;
@@ -182,6 +684,34 @@ public class PaymentDAO {
      */
     // Delete payment by paymentId and update the file
     public boolean delete (String paymentId) {
+        if (StorageOptions.LSM_PAYMENTS_ENABLED) {
+            // Log a tombstone that hides the payment until compaction drops both
+            if (writeToStore(paymentId, null)) {
+                System.out.println("Payment deleted successfully!");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+        if (StorageOptions.PARTITIONED_PAYMENTS_ENABLED) {
+            // Rewrite only the month of the payment
+            if (writeToPartition(paymentId, null)) {
+                System.out.println("Payment deleted successfully!");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).delete(paymentId)) {
+                System.out.println("Payment deleted successfully!");
+                return true;
+            }
+            System.out.println("Payment not found!");
+            return false;
+        }
+
         List<Payment> payments = readFromFile(); // Read the payment list from the file
 
         boolean paymentFound = false;
@@ -0,0 +1,293 @@
+/**
+ * Sidecar index of a data file (e.g. `payments.txt.idx`): the ID, byte offset and length of every
+ * record, sorted by ID. A single record is found with a binary search in the memory-mapped index and
+ * read with one positioned read of the data file, so looking it up does not load the file.
+ *
+ * The index holds the length and modification time of the data file it was built from, and is
+ * rebuilt with one pass over the file when it is missing or no longer matches, e.g. after a save.
+ * A record read through a stale entry is also noticed, since it must start with the ID looked up.
+ * Records changed in the journal since the last checkpoint are answered from the journal. When the
+ * files cannot be tokenized byte by byte (see {@link StorageOptions#MAPPED_READ_SUPPORTED}) a
+ * lookup reads the file line by line instead.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class RecordIndex {
+    private static final Map<String, RecordIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final int SLOT_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES; // Key position, offset, length
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final String NOT_MATCHING = new String(); // Marks a read through a stale entry
+
+    private final File dataFile;
+    private final File indexFile;
+    private ByteBuffer index; // Header, slots sorted by ID, then the IDs; null until first use
+    private FileChannel data; // Kept open between lookups where an open file can still be replaced
+    private long builtLength;
+    private long builtModified;
+    private int count;
+    private int keysStart;
+
+    private RecordIndex(String dataPath) {
+        this.dataFile = new File(dataPath);
+        this.indexFile = new File(dataPath + ".idx");
+    }
+
+    /**
+     * Returns the index of a data file. There is one index per file, shared by all DAO instances.
+     *
+     * @param dataPath The path of the entity data file.
+     * @return The index of that file.
+     */
+    static RecordIndex forFile(String dataPath) {
+        return INDEXES.computeIfAbsent(dataPath, RecordIndex::new);
+    }
+
+    /**
+     * Finds the current record line of an ID.
+     *
+     * @param id The ID of the record.
+     * @return The record line, or null if there is no record with that ID.
+     * @throws IOException If the data file or the index cannot be read.
+     */
+    synchronized String find(String id) throws IOException {
+        RecordJournal journal = RecordJournal.forFile(dataFile.getPath());
+        if (journal.isPending(id)) {
+            return journal.pendingRecord(id); // Null for a deleted record
+        }
+        if (!dataFile.exists()) {
+            return null;
+        }
+        if (!StorageOptions.MAPPED_READ_SUPPORTED) {
+            return scan(id);
+        }
+
+        if (!isCurrent()) {
+            load();
+        }
+        String record = lookup(id);
+        if (record == NOT_MATCHING) {
+            rebuild(); // Changed without a new length or timestamp
+            record = lookup(id);
+        }
+        return record == NOT_MATCHING ? null : record;
+    }
+
+    // Binary search for the ID and read its record
+    private String lookup(String id) throws IOException {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = keyAt(mid).compareTo(id);
+            if (order == 0) {
+                String record = read(mid);
+                return record.equals(id) || record.startsWith(id + ",") ? record : NOT_MATCHING;
+            }
+            if (order < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    private boolean isCurrent() {
+        return index != null && dataFile.length() == builtLength && dataFile.lastModified() == builtModified;
+    }
+
+    // Use the index file if it was built from the data file as it is now, and rebuild it otherwise
+    private void load() throws IOException {
+        if (indexFile.isFile()) {
+            ByteBuffer existing;
+            if (StorageOptions.MAPPED_READ_ENABLED) {
+                try (FileChannel channel = FileChannel.open(indexFile.toPath())) {
+                    existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                existing = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+            }
+            if (existing.limit() >= HEADER_BYTES && existing.getInt(0) == MAGIC && existing.getInt(4) == VERSION
+                    && existing.getLong(8) == dataFile.length() && existing.getLong(16) == dataFile.lastModified()) {
+                use(existing);
+                return;
+            }
+        }
+        rebuild();
+    }
+
+    /**
+     * Builds the index with one pass over the data file and writes it next to the file.
+     * If it cannot be written, the index built in memory is still used.
+     *
+     * @throws IOException If the data file cannot be read.
+     */
+    private void rebuild() throws IOException {
+        long length = dataFile.length(); // Taken first, so a write during the pass leaves the index stale
+        long modified = dataFile.lastModified();
+        List<Slot> slots = collectSlots();
+        slots.sort(Comparator.comparing((Slot slot) -> slot.id).thenComparingLong(slot -> slot.offset));
+
+        ByteArrayOutputStream keys = new ByteArrayOutputStream();
+        DataOutputStream keyOut = new DataOutputStream(keys);
+        List<Slot> unique = new ArrayList<>(slots.size());
+        List<Integer> keyPositions = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            if (!unique.isEmpty() && unique.get(unique.size() - 1).id.equals(slot.id)) {
+                continue; // The first record of an ID wins, as in a full load
+            }
+            unique.add(slot);
+            keyPositions.add(keyOut.size());
+            byte[] id = slot.id.getBytes(StandardCharsets.UTF_8);
+            keyOut.writeShort(id.length);
+            keyOut.write(id);
+        }
+
+        ByteBuffer built = ByteBuffer.allocate(HEADER_BYTES + unique.size() * SLOT_BYTES + keys.size());
+        built.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(modified).putInt(unique.size());
+        for (int i = 0; i < unique.size(); i++) {
+            built.putInt(keyPositions.get(i)).putLong(unique.get(i).offset).putInt(unique.get(i).length);
+        }
+        built.put(keys.toByteArray());
+        built.flip();
+
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(built.array(), 0, built.limit());
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot write index file: " + indexFile + " (" + e.getMessage() + ")");
+        }
+        use(built);
+    }
+
+    private void use(ByteBuffer buffer) throws IOException {
+        if (data != null) {
+            data.close(); // The data file may have been replaced since it was opened
+            data = null;
+        }
+        index = buffer;
+        builtLength = buffer.getLong(8);
+        builtModified = buffer.getLong(16);
+        count = buffer.getInt(24);
+        keysStart = HEADER_BYTES + count * SLOT_BYTES;
+    }
+
+    // Find the ID, offset and length of every line of the data file
+    private List<Slot> collectSlots() throws IOException {
+        List<Slot> slots = new ArrayList<>();
+        Charset charset = Charset.defaultCharset();
+        byte[] buffer = new byte[BUFFER_BYTES];
+        ByteArrayOutputStream id = new ByteArrayOutputStream();
+        boolean inId = true;
+        long position = 0;
+        long lineStart = 0;
+        byte previous = 0;
+        try (InputStream in = new FileInputStream(dataFile)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        long end = previous == '\r' ? position - 1 : position;
+                        addSlot(slots, id, charset, lineStart, end);
+                        id.reset();
+                        inId = true;
+                        lineStart = position + 1;
+                    } else if (inId) {
+                        if (b == ',') {
+                            inId = false;
+                        } else if (b != '\r') {
+                            id.write(b);
+                        }
+                    }
+                    previous = b;
+                }
+            }
+        }
+        addSlot(slots, id, charset, lineStart, previous == '\r' ? position - 1 : position); // Last line without a line break
+        return slots;
+    }
+
+    private static void addSlot(List<Slot> slots, ByteArrayOutputStream id, Charset charset, long start, long end) {
+        if (end > start) {
+            slots.add(new Slot(id.toString(charset), start, (int) (end - start)));
+        }
+    }
+
+    private String keyAt(int slot) {
+        int at = keysStart + index.getInt(HEADER_BYTES + slot * SLOT_BYTES);
+        byte[] key = new byte[index.getShort(at) & 0xFFFF];
+        ByteBuffer view = index.duplicate();
+        view.position(at + Short.BYTES);
+        view.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    // Read one record with a positioned read of the data file
+    private String read(int slot) throws IOException {
+        int at = HEADER_BYTES + slot * SLOT_BYTES;
+        long offset = index.getLong(at + Integer.BYTES);
+        ByteBuffer record = ByteBuffer.allocate(index.getInt(at + Integer.BYTES + Long.BYTES));
+        FileChannel channel = data != null ? data : FileChannel.open(dataFile.toPath());
+        try {
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    return NOT_MATCHING; // The file is shorter than the index says
+                }
+            }
+        } finally {
+            if (StorageOptions.MAPPED_READ_ENABLED) {
+                data = channel; // On Windows an open file cannot be replaced by a checkpoint, so it is closed
+            } else {
+                channel.close();
+            }
+        }
+        return new String(record.array(), Charset.defaultCharset());
+    }
+
+    // Fallback without an index: read the records in order until the ID is found
+    private String scan(String id) throws IOException {
+        try (RecordJournal.Reader reader = RecordJournal.forFile(dataFile.getPath()).openReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (RecordJournal.idOf(line).equals(id)) {
+                    return line;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Slot {
+        private final String id;
+        private final long offset;
+        private final int length;
+
+        Slot(String id, long offset, int length) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Append-only write-ahead journal kept next to an entity data file (e.g. `payments.txt.journal`).
+ * Updates and deletes are appended as compact records instead of rewriting the data file:
+ *
+ *   U,&lt;record line&gt;   upsert of the record whose ID is the first field of the line
+ *   D,&lt;id&gt;            tombstone of the record with that ID
+ *
+ * Reading replays the journal over the last checkpoint (the data file). A checkpoint merges the
+ * journal into the data file and removes it; it runs when the journal grows past
+ * {@link StorageOptions#JOURNAL_CHECKPOINT_RECORDS} or whenever the data file is rewritten in full.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RecordJournal {
+    private static final Map<String, RecordJournal> JOURNALS = new ConcurrentHashMap<>();
+    private static final String UPSERT = "U,";
+    private static final String TOMBSTONE = "D,";
+
+    private final File dataFile;
+    private final File logFile;
+    private LinkedHashMap<String, String> pending; // ID -> latest record line, null for a tombstone
+    private Set<String> liveIds; // IDs present after replay, built on first existence check
+
+    private RecordJournal(String dataPath) {
+        this.dataFile = new File(dataPath);
+        this.logFile = new File(dataPath + ".journal");
+    }
+
+    /**
+     * Returns the journal of a data file. There is one journal per file, shared by all DAO instances.
+     *
+     * @param dataPath The path of the entity data file.
+     * @return The journal of that file.
+     */
+    public static RecordJournal forFile(String dataPath) {
+        return JOURNALS.computeIfAbsent(dataPath, RecordJournal::new);
+    }
+
+    /**
+     * Extracts the ID of a record line, which is always its first comma-separated field.
+     *
+     * @param line The record line.
+     * @return The ID of the record.
+     */
+    public static String idOf(String line) {
+        int comma = line.indexOf(',');
+        return comma < 0 ? line : line.substring(0, comma);
+    }
+
+    public File getLogFile() { return logFile; }
+
+    /**
+     * Checks whether the journal holds records that are not yet merged into the data file.
+     *
+     * @return True if a replay is needed to read the current state.
+     */
+    public synchronized boolean hasPending() {
+        return !pending().isEmpty();
+    }
+
+    /**
+     * Checks whether a record was changed since the last checkpoint, so its data file line is outdated.
+     *
+     * @param id The ID of the record.
+     * @return True if the journal holds an upsert or a tombstone for the record.
+     */
+    public synchronized boolean isPending(String id) {
+        return pending().containsKey(id);
+    }
+
+    /**
+     * Returns the latest journaled version of a record changed since the last checkpoint.
+     *
+     * @param id The ID of the record.
+     * @return The record line, or null if the record was deleted or is not in the journal.
+     */
+    public synchronized String pendingRecord(String id) {
+        return pending().get(id);
+    }
+
+    /**
+     * Appends an upsert for an existing record.
+     *
+     * @param id     The ID of the record.
+     * @param record The full serialized record line.
+     * @return True if the record exists and the upsert was journaled, false otherwise.
+     */
+    public synchronized boolean update(String id, String record) {
+        if (!liveIds().contains(id)) {
+            return false;
+        }
+        return append(id, record);
+    }
+
+    /**
+     * Appends an upsert for a new record.
+     *
+     * @param id     The ID of the record.
+     * @param record The full serialized record line.
+     * @return True if the insert was journaled.
+     */
+    public synchronized boolean insert(String id, String record) {
+        if (append(id, record)) {
+            liveIds().add(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends a tombstone for an existing record.
+     *
+     * @param id The ID of the record to delete.
+     * @return True if the record exists and the tombstone was journaled, false otherwise.
+     */
+    public synchronized boolean delete(String id) {
+        if (!liveIds().contains(id)) {
+            return false;
+        }
+        if (append(id, null)) {
+            liveIds.remove(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Opens a reader returning the data file lines with the journal replayed over them.
+     * Updated records keep their position, deleted ones are skipped and inserted ones follow at the end.
+     *
+     * @return A reader over the current state of the records.
+     * @throws IOException If the data file cannot be opened.
+     */
+    public synchronized Reader openReader() throws IOException {
+        return new Reader(new BufferedReader(new FileReader(dataFile)), new LinkedHashMap<>(pending()));
+    }
+
+    /**
+     * Merges the journal into the data file and removes the journal.
+     * The merged file is written next to the data file and moved over it, so a crash leaves
+     * either the old checkpoint plus the journal or the new checkpoint; replaying is idempotent.
+     */
+    public synchronized void checkpoint() {
+        if (!hasPending()) {
+            return;
+        }
+        File merged = new File(dataFile.getPath() + ".checkpoint");
+        try (Reader reader = openReader();
+             BufferedWriter writer = new BufferedWriter(new FileWriter(merged))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(merged.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(logFile.toPath());
+            pending.clear();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Called after the data file was rewritten in full from memory; the journal is then obsolete.
+     */
+    public synchronized void onDataFileRewritten() {
+        try {
+            Files.deleteIfExists(logFile.toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        pending = new LinkedHashMap<>();
+        liveIds = null;
+    }
+
+    // Append one record to the log and to the in-memory pending map
+    private boolean append(String id, String record) {
+        LinkedHashMap<String, String> journal = pending();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true))) {
+            writer.write(record != null ? UPSERT + record : TOMBSTONE + id);
+            writer.newLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        journal.put(id, record);
+        if (journal.size() >= StorageOptions.JOURNAL_CHECKPOINT_RECORDS) {
+            checkpoint();
+        }
+        return true;
+    }
+
+    // Load the pending records from the log on first use (recovery after a restart)
+    private LinkedHashMap<String, String> pending() {
+        if (pending != null) {
+            return pending;
+        }
+        pending = new LinkedHashMap<>();
+        if (!logFile.exists()) {
+            return pending;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(UPSERT)) {
+                    String record = line.substring(UPSERT.length());
+                    pending.put(idOf(record), record);
+                } else if (line.startsWith(TOMBSTONE)) {
+                    pending.put(line.substring(TOMBSTONE.length()), null);
+                } // Anything else is a torn write from a crash and is ignored
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return pending;
+    }
+
+    // Collect the IDs of the current state once, then keep them in sync with every append
+    private Set<String> liveIds() {
+        if (liveIds != null) {
+            return liveIds;
+        }
+        Set<String> ids = new HashSet<>();
+        if (dataFile.exists()) {
+            try (Reader reader = openReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ids.add(idOf(line));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        liveIds = ids;
+        return liveIds;
+    }
+
+    /**
+     * Line reader over a data file with the journal replayed on top of it.
+     */
+    public static class Reader implements Closeable {
+        private final BufferedReader base;
+        private final LinkedHashMap<String, String> pending;
+        private final Set<String> replaced = new HashSet<>();
+        private Iterator<Map.Entry<String, String>> inserted;
+
+        private Reader(BufferedReader base, LinkedHashMap<String, String> pending) {
+            this.base = base;
+            this.pending = pending;
+        }
+
+        /**
+         * Reads the next record line of the current state.
+         *
+         * @return The next line, or null at the end.
+         * @throws IOException If the data file cannot be read.
+         */
+        public String readLine() throws IOException {
+            if (inserted == null) {
+                String line;
+                while ((line = base.readLine()) != null) {
+                    if (pending.isEmpty()) {
+                        return line;
+                    }
+                    String id = idOf(line);
+                    if (!pending.containsKey(id)) {
+                        return line;
+                    }
+                    if (!replaced.add(id)) {
+                        continue; // A duplicate ID in the data file: its latest version was returned at the first line
+                    }
+                    String latest = pending.get(id);
+                    if (latest != null) {
+                        return latest; // Updated in place
+                    } // Deleted: skip the line
+                }
+                inserted = pending.entrySet().iterator();
+            }
+            while (inserted.hasNext()) {
+                Map.Entry<String, String> entry = inserted.next();
+                if (entry.getValue() != null && !replaced.contains(entry.getKey())) {
+                    return entry.getValue(); // Record added after the last checkpoint
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            base.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Parses one record of a data file into an object. Used by the readers that tokenize records
+ * straight from a file buffer instead of going through one String per line.
+ *
+ * @param <T> The type of the parsed objects.
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+@FunctionalInterface
+public interface RecordParser<T> {
+    /**
+     * Parses the record the tokenizer points at.
+     *
+     * @param fields The tokenizer reset onto one record.
+     * @return The parsed object, or null to skip the record.
+     * @throws Exception If the record cannot be parsed; reading stops at that record, as in the sequential path.
+     */
+    T parse(CsvTokenizer fields) throws Exception;
+}
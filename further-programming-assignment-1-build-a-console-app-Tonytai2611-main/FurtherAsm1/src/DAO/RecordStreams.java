@@ -0,0 +1,227 @@
+/**
+ * Lazy streams over the records of a data file, for reports, exports and filters that handle one
+ * record at a time. Nothing is read before the stream is consumed, each thread holds at most one
+ * batch of parsed records, and the file is closed with the stream, so callers use try-with-resources.
+ *
+ * Without pending journal records the file is parsed in batches straight from the mapped file (see
+ * {@link MappedRecordReader}) by a spliterator that splits its byte range at line breaks, so a
+ * parallel stream parses disjoint parts of the file on several workers and still keeps the file
+ * order. With pending journal records, or where the mapped read is not used, the records come from
+ * the replaying line reader one at a time.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class RecordStreams {
+    private static final int BATCH_BYTES = 1 << 18; // Parsed at once by one worker
+    private static final int SCAN_BYTES = 4096; // Read at a time while looking for a line break
+
+    private RecordStreams() {
+    }
+
+    /**
+     * Opens a lazy stream over the records of a data file, with the journal applied.
+     * When a record fails to parse, the error is printed and the stream ends before it,
+     * which matches a reading loop that stops at the first exception.
+     *
+     * @param dataPath The path of the entity data file.
+     * @param parsers  Creates a parser for each part of the file; a parser is used by one thread only.
+     * @return A stream of the parsed objects in file order, without the skipped (null) records;
+     * empty if the file does not exist.
+     */
+    public static <T> Stream<T> of(String dataPath, Supplier<RecordParser<T>> parsers) {
+        File file = new File(dataPath);
+        if (!file.exists()) {
+            return Stream.empty();
+        }
+        try {
+            RecordJournal journal = RecordJournal.forFile(dataPath);
+            if (journal.hasPending() || !StorageOptions.MAPPED_READ_ENABLED) {
+                RecordJournal.Reader reader = journal.openReader();
+                return StreamSupport.stream(new LineSpliterator<>(reader, parsers.get()), false)
+                        .onClose(() -> closeQuietly(reader));
+            }
+            FileChannel channel = FileChannel.open(file.toPath());
+            return StreamSupport.stream(new RangeSpliterator<>(channel, 0, channel.size(), parsers), false)
+                    .onClose(() -> closeQuietly(channel));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Finds the end of the line a byte belongs to.
+     *
+     * @param channel The open channel of the data file.
+     * @param from    The offset to look from.
+     * @param limit   The offset not to look beyond.
+     * @return The offset just past the next line break, or limit if there is none before it.
+     */
+    private static long lineEnd(FileChannel channel, long from, long limit) {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+        long position = from;
+        try {
+            while (position < limit) {
+                buffer.clear();
+                buffer.limit((int) Math.min(SCAN_BYTES, limit - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    return limit;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return limit;
+    }
+
+    /**
+     * Parses a line-aligned byte range of the file one batch at a time. Splitting hands the first
+     * half of the remaining range to a new spliterator with its own parser.
+     */
+    private static final class RangeSpliterator<T> implements Spliterator<T> {
+        private final FileChannel channel;
+        private final Supplier<RecordParser<T>> parsers;
+        private final List<T> batch = new ArrayList<>();
+        private long position; // Start of the bytes not parsed yet
+        private long end;
+        private int next; // Next record of the batch to hand out
+        private RecordParser<T> parser; // Created by the first thread that parses this range
+        private CsvTokenizer fields;
+
+        RangeSpliterator(FileChannel channel, long start, long end, Supplier<RecordParser<T>> parsers) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.parsers = parsers;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (next >= batch.size()) {
+                if (position >= end) {
+                    return false;
+                }
+                parseBatch();
+            }
+            action.accept(batch.get(next++));
+            return true;
+        }
+
+        // Parse the lines of the next BATCH_BYTES into the batch
+        private void parseBatch() {
+            batch.clear();
+            next = 0;
+            if (parser == null) {
+                parser = parsers.get();
+                fields = new CsvTokenizer(',');
+            }
+            long batchEnd = lineEnd(channel, Math.min(end, position + BATCH_BYTES), end);
+            try {
+                MappedRecordReader.parseRange(channel, position, batchEnd, fields, parser, batch);
+                position = batchEnd;
+            } catch (Exception e) {
+                e.printStackTrace();
+                end = position; // The records parsed before the failure are still handed out
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (next < batch.size() || end - position < 2L * BATCH_BYTES) {
+                return null; // Records of the current batch come before any remaining range
+            }
+            long middle = lineEnd(channel, position + (end - position) / 2, end);
+            if (middle >= end) {
+                return null;
+            }
+            RangeSpliterator<T> prefix = new RangeSpliterator<>(channel, position, middle, parsers);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position; // Bytes, which is enough to balance the splits
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Parses the lines of the replaying journal reader one at a time.
+     */
+    private static final class LineSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final RecordJournal.Reader reader;
+        private final RecordParser<T> parser;
+        private final CsvTokenizer fields = new CsvTokenizer(',');
+        private boolean done;
+
+        LineSpliterator(RecordJournal.Reader reader, RecordParser<T> parser) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.reader = reader;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            T record = done ? null : readRecord();
+            if (record == null) {
+                done = true;
+                return false;
+            }
+            action.accept(record);
+            return true;
+        }
+
+        // The next record that is not skipped, or null at the end or after an error
+        private T readRecord() {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    T record = parser.parse(fields.reset(line));
+                    if (record != null) {
+                        return record;
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+}
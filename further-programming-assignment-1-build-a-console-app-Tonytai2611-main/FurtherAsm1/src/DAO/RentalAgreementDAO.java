@@ -4,20 +4,44 @@
 package DAO;
 
 import Classes.*;
-import Interface.HostManager;
-import Interface.OwnerManager;
-import Interface.TenantManager;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class RentalAgreementDAO {
-    private static final OwnerManager ownerManager = new OwnerManager();
-    private static final TenantManager tenantManager = new TenantManager();
-    private static final HostManager hostManager = new HostManager();
+    private static final String COMMERCIAL = "CommercialProperty";
+    private static final String RESIDENTIAL = "ResidentialProperty";
     private static final String FILE_PATH = "FurtherAsm1/src/File/rental_agreements.txt";
+    private static final String FORMAT_PATH = FILE_PATH + ".format"; // Format of the rows last written, see writeToFile
+    private static final String FORMAT_REFERENCES = "2";
+    private final TailCursor tailCursor = new TailCursor(FILE_PATH); // End of the last parsed agreement, see readAppended
+    private static final DateCodec CONTRACT_DATE_FORMAT = DateCodec.YYYY_MM_DD;
+    private static final RentalAgreement.RentalCycleType[] RENTAL_CYCLES = RentalAgreement.RentalCycleType.values();
+    private static final RentalAgreement.RentalAgreementStatus[] AGREEMENT_STATUSES = RentalAgreement.RentalAgreementStatus.values();
+    private static final Property.PropertyStatus[] PROPERTY_STATUSES = Property.PropertyStatus.values();
+    private final EntityLookup entities; // Owners, tenants, hosts and properties the agreements reference
+
+    /**
+     * Constructs a DAO reading the entity files itself to resolve the references of agreements.
+     */
+    public RentalAgreementDAO() {
+        this(new FileEntityLookup());
+    }
+
+    /**
+     * Constructs a DAO resolving the references of agreements against already loaded entities.
+     *
+     * @param entities Finds the loaded owners, tenants, hosts and properties, e.g. those of the application's managers.
+     */
+    public RentalAgreementDAO(EntityLookup entities) {
+        this.entities = entities;
+    }
 
     /**
      * Serializes a RentalAgreement object into a string format for file storage.
@@ -27,74 +51,113 @@ public class RentalAgreementDAO {
      */
     // Convert RentalAgreement object to String to file writing
     private String convertRentalAgreementToString(RentalAgreement agreement) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String formattedDate = dateFormat.format(agreement.getContractDate()); // Format contractDate
+        String formattedDate = CONTRACT_DATE_FORMAT.format(agreement.getContractDate()); // Format contractDate
 
         return String.join(",",
                 agreement.getContractId(),
                 formattedDate,
-                agreement.getOwner().getId(),
-                agreement.getMainTenant().getId(),
-                convertSubTenantsToString(agreement.getSubTenants()),
-                convertPropertyToString(agreement.getRentedProperty()),
-                convertHostsToString(agreement.getHosts()),
+                agreement.getOwnerId(),
+                agreement.getMainTenantId(),
+                convertIdsToString(agreement.getSubTenantIds()),
+                CsvTokenizer.quote(convertPropertyToString(agreement.getRentedProperty())),
+                convertIdsToString(agreement.getHostIds()),
                 agreement.getRentalCycle().name(),
                 String.valueOf(agreement.getDuration()),
-                agreement.getContractTerms(),
+                CsvTokenizer.quote(agreement.getContractTerms()),
                 String.valueOf(agreement.getRentalFee()),
                 agreement.getStatus().name()
         );
     }
 
     /**
-     * Deserializes a string from the file into a RentalAgreement object.
+     * Deserializes a record from the file into a RentalAgreement object.
+     * Owners, tenants and hosts are resolved right away through the identity maps built once per read or,
+     * with lazy references, through the loaded entities the first time the agreement needs them.
      *
-     * @param line A comma-separated string representing a RentalAgreement.
+     * @param fields   The tokenizer positioned at the start of a RentalAgreement record.
+     * @param nested   A ';' tokenizer reused for the embedded property, sub-tenant and host fields.
+     * @param owners   Finds the loaded owner of an ID.
+     * @param tenants  Finds the loaded tenant of an ID.
+     * @param hosts    Finds the loaded host of an ID.
+     * @param resolver Looks references up in the loaded entities on first use, or null to resolve them right away.
+     * @param commercialProperties  Finds the loaded commercial property of an ID.
+     * @param residentialProperties Finds the loaded residential property of an ID.
      * @return A RentalAgreement object, or null if deserialization fails.
      */
-    // Convert String from file to RentalAgreement object
-    private RentalAgreement convertStringToRentalAgreement(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 12) {
-            System.err.println("Invalid format: " + line);
+    // Convert a record from file to RentalAgreement object
+    private RentalAgreement convertStringToRentalAgreement(CsvTokenizer fields, CsvTokenizer nested, Function<String, Owner> owners,
+                                                           Function<String, Tenant> tenants, Function<String, Host> hosts,
+                                                           Function<String, CommercialProperty> commercialProperties,
+                                                           Function<String, ResidentialProperty> residentialProperties,
+                                                           RentalAgreement.Resolver resolver) {
+        if (fields.countFields() < 12) {
+            System.err.println("Invalid format: " + fields.record());
             return null;
         }
 
         try {
-            String contractId = parts[0];
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            Date contractDate = dateFormat.parse(parts[1]);
-
-            ownerManager.loadFromFile("FurtherAsm1/src/File/owners.txt");
-            Owner owner = ownerManager.getOne(parts[2]);
-
-            tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt");
-            Tenant mainTenant = tenantManager.getOne(parts[3]);
-
-            List<Tenant> subTenants = convertStringToSubTenants(parts[4]);
-            Property rentedProperty = convertStringToProperty(parts[5]);
-            List<Host> hosts = convertStringToHosts(parts[6]);
-            RentalAgreement.RentalCycleType rentalCycle = RentalAgreement.RentalCycleType.valueOf(parts[7]);
-            int duration = Integer.parseInt(parts[8]);
-            String contractTerms = parts[9];
-            double rentalFee = Double.parseDouble(parts[10]);
-            RentalAgreement.RentalAgreementStatus status = RentalAgreement.RentalAgreementStatus.valueOf(parts[11]);
-
-            return new RentalAgreement(contractId, contractDate, owner, mainTenant, subTenants, rentedProperty, hosts,
+            String contractId = fields.nextString();
+            Date contractDate = fields.nextDate(CONTRACT_DATE_FORMAT);
+
+            if (resolver != null) {
+                // Keep the IDs only; the agreement looks them up on first use
+                String ownerId = fields.nextString();
+                String mainTenantId = fields.nextString();
+                List<String> subTenantIds = convertStringToIds(fields.nextInto(nested));
+                Property rentedProperty = readRentedProperty(contractId, fields.nextInto(nested), commercialProperties, residentialProperties);
+                List<String> hostIds = convertStringToIds(fields.nextInto(nested));
+                return new RentalAgreement(contractId, contractDate, ownerId, mainTenantId, subTenantIds, rentedProperty, hostIds,
+                        fields.nextEnum(RENTAL_CYCLES), fields.nextInt(), fields.nextString(), fields.nextDouble(),
+                        fields.nextEnum(AGREEMENT_STATUSES), resolver);
+            }
+
+            Owner owner = owners.apply(fields.nextString());
+            Tenant mainTenant = tenants.apply(fields.nextString());
+
+            List<Tenant> subTenants = convertStringToSubTenants(fields.nextInto(nested), tenants);
+            Property rentedProperty = readRentedProperty(contractId, fields.nextInto(nested), commercialProperties, residentialProperties);
+            List<Host> hostList = convertStringToHosts(fields.nextInto(nested), hosts);
+            RentalAgreement.RentalCycleType rentalCycle = fields.nextEnum(RENTAL_CYCLES);
+            int duration = fields.nextInt();
+            String contractTerms = fields.nextString();
+            double rentalFee = fields.nextDouble();
+            RentalAgreement.RentalAgreementStatus status = fields.nextEnum(AGREEMENT_STATUSES);
+
+            return new RentalAgreement(contractId, contractDate, owner, mainTenant, subTenants, rentedProperty, hostList,
                     rentalCycle, duration, contractTerms, rentalFee, status);
         } catch (ParseException e) {
-            System.err.println("Error parsing contract date: " + parts[1]);
+            System.err.println("Error parsing contract date: " + e.getMessage());
             e.printStackTrace();
             return null;
         } catch (Exception e) {
-            System.err.println("Error processing line: " + line);
+            System.err.println("Error processing line: " + fields.record());
             e.printStackTrace();
             return null;
         }
     }
 
     /**
-     * Serializes a Property object (either CommercialProperty or ResidentialProperty) into a string format.
+     * Builds an identity map from ID to the already-loaded object, so every agreement
+     * referencing the same owner, tenant, host or property shares one instance.
+     *
+     * @param items The loaded items.
+     * @param idOf  Extracts the ID of an item.
+     * @return A map from ID to item; the first item wins when IDs are duplicated.
+     */
+    // Index a loaded list by ID once per read
+    private static <T> Map<String, T> indexById(List<T> items, Function<T, String> idOf) {
+        Map<String, T> index = new HashMap<>(items.size() * 2);
+        for (T item : items) {
+            index.putIfAbsent(idOf.apply(item), item);
+        }
+        return index;
+    }
+
+    /**
+     * Serializes the rented property of an agreement. A property of the loaded property lists is written
+     * as a reference, `CommercialProperty;CP1` (format 2), so every agreement on it shares the one loaded
+     * instance when read. Any other property is embedded in full (format 1), so its data is not lost,
+     * except a property known only by its ID, which keeps its reference.
      *
      * @param property The Property object to serialize.
      * @return A semicolon-separated string representation of the property.
@@ -102,94 +165,183 @@ public class RentalAgreementDAO {
      */
     // Serialize Property object to String
     private String convertPropertyToString(Property property) {
+        String reference = referenceOf(property);
+        if (isReferenceOnly(property) || isLoaded(property)) {
+            return reference;
+        }
         if (property instanceof CommercialProperty) {
             CommercialProperty cp = (CommercialProperty) property;
             return String.join(";",
-                    "CommercialProperty",
+                    COMMERCIAL,
                     cp.getPropertyId(),
-                    cp.getAddress(),
+                    CsvTokenizer.quote(cp.getAddress(), ';'),
                     String.valueOf(cp.getPricing()),
                     cp.getStatus().name(),
-                    cp.getBusinessType(),
+                    CsvTokenizer.quote(cp.getBusinessType(), ';'),
                     String.valueOf(cp.getParkingSpaces()),
                     String.valueOf(cp.getSquareFootage())
             );
-        } else if (property instanceof ResidentialProperty) {
+        } else {
             ResidentialProperty rp = (ResidentialProperty) property;
             return String.join(";",
-                    "ResidentialProperty",
+                    RESIDENTIAL,
                     rp.getPropertyId(),
-                    rp.getAddress(),
+                    CsvTokenizer.quote(rp.getAddress(), ';'),
                     String.valueOf(rp.getPricing()),
                     rp.getStatus().name(),
                     String.valueOf(rp.getNumBedrooms()),
                     String.valueOf(rp.isGardenAvailability()),
                     String.valueOf(rp.isPetFriendliness())
             );
-        } else {
-            throw new IllegalArgumentException("Unknow propterty type: " + property.getClass().getSimpleName());
         }
     }
 
     /**
-     * Deserializes a string into a Property object.
-     * Supports both CommercialProperty and ResidentialProperty.
+     * Builds the format 2 reference of a property, e.g. `CommercialProperty;CP1`.
+     *
+     * @param property The property.
+     * @return The type name and ID of the property.
+     * @throws IllegalArgumentException If the property type is unrecognized.
+     */
+    static String referenceOf(Property property) {
+        if (property instanceof CommercialProperty) {
+            return COMMERCIAL + ";" + property.getPropertyId();
+        } else if (property instanceof ResidentialProperty) {
+            return RESIDENTIAL + ";" + property.getPropertyId();
+        }
+        throw new IllegalArgumentException("Unknow propterty type: " + (property == null ? null : property.getClass().getSimpleName()));
+    }
+
+    // Read the rented property of an agreement, warning when it is missing from the property files
+    private Property readRentedProperty(String contractId, CsvTokenizer parts, Function<String, CommercialProperty> commercialProperties,
+                                        Function<String, ResidentialProperty> residentialProperties) {
+        Property property = convertStringToProperty(parts, commercialProperties, residentialProperties);
+        if (isReferenceOnly(property)) {
+            System.err.println("Property not found for agreement: " + contractId + ", keeping its reference " + referenceOf(property));
+        }
+        return property;
+    }
+
+    /**
+     * Deserializes an embedded property field into a Property object.
+     * A reference (format 2) is resolved against the loaded properties; an embedded copy (format 1)
+     * also resolves to the loaded property when there is one, and is built from its fields otherwise.
+     * A reference to a property that is not loaded gives a property with only its ID, so the
+     * reference is kept.
      *
-     * @param propertyString A semicolon-separated string representing a property.
+     * @param parts                 A ';' tokenizer positioned at the start of the property field.
+     * @param commercialProperties  Finds the loaded commercial property of an ID.
+     * @param residentialProperties Finds the loaded residential property of an ID.
      * @return A Property object (CommercialProperty or ResidentialProperty).
      * @throws IllegalArgumentException If the property type is unrecognized.
      */
-    // Deserialize Property from String
-    private Property convertStringToProperty(String propertyString) {
-        String[] parts = propertyString.split(";");
-        String propertyType = parts[0];
+    // Deserialize Property from the embedded field
+    private Property convertStringToProperty(CsvTokenizer parts, Function<String, CommercialProperty> commercialProperties,
+                                             Function<String, ResidentialProperty> residentialProperties) {
+        String propertyType = parts.nextString();
+        String propertyId = parts.nextString();
+        Property canonical;
         switch (propertyType) {
-            case "CommercialProperty":
-                return new CommercialProperty(
-                        parts[1], parts[2], Double.parseDouble(parts[3]), Property.PropertyStatus.valueOf(parts[4]),
-                        parts[5], Integer.parseInt(parts[6]), Double.parseDouble(parts[7]));
-            case "ResidentialProperty":
-                return new ResidentialProperty(
-                        parts[1], parts[2], Double.parseDouble(parts[3]), Property.PropertyStatus.valueOf(parts[4]),
-                        Integer.parseInt(parts[5]), Boolean.parseBoolean(parts[6]), Boolean.parseBoolean(parts[7]));
+            case COMMERCIAL:
+                canonical = commercialProperties.apply(propertyId);
+                break;
+            case RESIDENTIAL:
+                canonical = residentialProperties.apply(propertyId);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown property type: " + propertyType);
         }
+        if (canonical != null) {
+            return canonical; // Shared instance
+        }
+        if (!parts.hasNext()) {
+            // Format 2 reference to a property missing from the property files: keep the reference
+            return propertyType.equals(COMMERCIAL) ? new CommercialProperty(propertyId) : new ResidentialProperty(propertyId);
+        }
+
+        // Format 1 row of a property that is not in the property files: keep the embedded copy
+        if (propertyType.equals(COMMERCIAL)) {
+            return new CommercialProperty(
+                    propertyId, parts.nextString(), parts.nextDouble(), parts.nextEnum(PROPERTY_STATUSES),
+                    parts.nextString(), parts.nextInt(), parts.nextDouble());
+        }
+        return new ResidentialProperty(
+                propertyId, parts.nextString(), parts.nextDouble(), parts.nextEnum(PROPERTY_STATUSES),
+                parts.nextInt(), parts.nextBoolean(), parts.nextBoolean());
     }
 
     /**
-     * Serializes a list of Tenant objects into a semicolon-separated string of their IDs.
+     * Checks whether a property is in the loaded property lists, looked up through the entities given to the DAO.
      *
-     * @param subTenants The list of Tenant objects to serialize.
-     * @return A semicolon-separated string of tenant IDs.
+     * @param property The property.
+     * @return True if the loaded property lists have a property of the same type and ID.
      */
+    private boolean isLoaded(Property property) {
+        if (property instanceof CommercialProperty) {
+            return entities.commercialProperty(property.getPropertyId()) != null;
+        }
+        return entities.residentialProperty(property.getPropertyId()) != null;
+    }
 
-    // Convert subTenants list to String
-    private String convertSubTenantsToString(List<Tenant> subTenants) {
+    // A property built from a reference to a property missing from the property files has only its ID
+    private static boolean isReferenceOnly(Property property) {
+        return property.getStatus() == null;
+    }
+
+    /**
+     * Serializes a list of tenant or host IDs into a semicolon-separated string.
+     *
+     * @param ids The IDs to serialize.
+     * @return A semicolon-separated string of the IDs.
+     */
+
+    // Convert a sub-tenant or host ID list to String
+    private String convertIdsToString(List<String> ids) {
         StringBuilder result = new StringBuilder();
-        for (Tenant tenant : subTenants) {
-            result.append(tenant.getId()).append(";");
+        for (String id : ids) {
+            result.append(id).append(";");
         }
         return result.toString();
     }
 
     /**
-     * Deserializes a semicolon-separated string of tenant IDs into a list of Tenant objects.
+     * Reads a semicolon-separated field of tenant or host IDs without looking them up.
      *
-     * @param subTenantsString A semicolon-separated string of tenant IDs.
+     * @param ids A ';' tokenizer positioned at the start of the sub-tenant or host field.
+     * @return The IDs in the field.
+     */
+
+    // Convert the sub-tenant or host field to an ID list
+    private List<String> convertStringToIds(CsvTokenizer ids) {
+        List<String> result = new ArrayList<>();
+        while (ids.hasNext()) {
+            if (ids.nextIsEmpty()) {
+                ids.skip();
+            } else {
+                result.add(ids.nextString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Deserializes a semicolon-separated field of tenant IDs into a list of Tenant objects.
+     *
+     * @param ids     A ';' tokenizer positioned at the start of the sub-tenant field.
+     * @param tenants Finds the loaded tenant of an ID.
      * @return A list of Tenant objects.
      */
 
-    // Convert String to subTenants list
-    private List<Tenant> convertStringToSubTenants(String subTenantsString) {
+    // Convert the sub-tenant field to a subTenants list
+    private List<Tenant> convertStringToSubTenants(CsvTokenizer ids, Function<String, Tenant> tenants) {
         List<Tenant> subTenants = new ArrayList<>();
-        String[] ids = subTenantsString.split(";");
 
-        tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt"); // Load the list of Tenants from the file
-
-        for (String id : ids) {
-            if (!id.isEmpty()) {
-                Tenant tenant = tenantManager.getOne(id); // Retrieve the full Tenant object from TenantManager
+        while (ids.hasNext()) {
+            if (ids.nextIsEmpty()) {
+                ids.skip();
+            } else {
+                String id = ids.nextString();
+                Tenant tenant = tenants.apply(id); // Retrieve the shared Tenant object from the identity map
                 if (tenant != null) {
                     subTenants.add(tenant);
                 } else {
@@ -201,38 +353,23 @@ public class RentalAgreementDAO {
     }
 
     /**
-     * Serializes a list of Host objects into a semicolon-separated string of their IDs.
-     *
-     * @param hosts The list of Host objects to serialize.
-     * @return A semicolon-separated string of host IDs.
-     */
-
-    // Convert hosts list to String
-    private String convertHostsToString(List<Host> hosts) {
-        StringBuilder result = new StringBuilder();
-        for (Host host : hosts) {
-            result.append(host.getId()).append(";");
-        }
-        return result.toString();
-    }
-
-    /**
-     * Deserializes a semicolon-separated string of host IDs into a list of Host objects.
+     * Deserializes a semicolon-separated field of host IDs into a list of Host objects.
      *
-     * @param hostsString A semicolon-separated string of host IDs.
+     * @param ids       A ';' tokenizer positioned at the start of the host field.
+     * @param hostIndex Finds the loaded host of an ID.
      * @return A list of Host objects.
      */
 
-    // Convert String to hosts list
-    private List<Host> convertStringToHosts(String hostsString) {
+    // Convert the host field to a hosts list
+    private List<Host> convertStringToHosts(CsvTokenizer ids, Function<String, Host> hostIndex) {
         List<Host> hosts = new ArrayList<>();
-        String[] ids = hostsString.split(";");
 
-        hostManager.loadFromFile("FurtherAsm1/src/File/hosts.txt"); // Load the list of Hosts from the file
-
-        for (String id : ids) {
-            if (!id.isEmpty()) {
-                Host host = hostManager.getOne(id); // Retrieve the full Host object from HostManager
+        while (ids.hasNext()) {
+            if (ids.nextIsEmpty()) {
+                ids.skip();
+            } else {
+                String id = ids.nextString();
+                Host host = hostIndex.apply(id); // Retrieve the shared Host object from the identity map
                 if (host != null) {
                     hosts.add(host);
                 } else {
@@ -244,14 +381,16 @@ public class RentalAgreementDAO {
     }
 
     /**
-     * Writes a list of RentalAgreement objects to a file, overwriting the existing content.
+     * Writes RentalAgreement objects to a file, overwriting the existing content.
+     * Rows are written in format 2 (see convertPropertyToString); writing the data file also records
+     * that format in its `.format` marker, so the migration knows the file is converted already.
      *
-     * @param agreements The list of RentalAgreement objects to write.
+     * @param agreements The RentalAgreement objects to write.
      * @param FILE_PATH The file path where the data will be stored.
      */
 
     // Write a list of RentalAgreements to a file
-    public void writeToFile(List<RentalAgreement> agreements, String FILE_PATH) {
+    public void writeToFile(Iterable<RentalAgreement> agreements, String FILE_PATH) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (RentalAgreement agreement : agreements) {
                 writer.write(convertRentalAgreementToString(agreement));
@@ -259,18 +398,57 @@ public class RentalAgreementDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(RentalAgreementDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
+            tailCursor.markParsed(new File(FILE_PATH).length()); // and so does the caller's list
+            try {
+                Files.writeString(Path.of(FORMAT_PATH), FORMAT_REFERENCES);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     /**
      * Reads RentalAgreement objects from the file and returns them as a list.
      * If the file does not exist, an empty list is returned.
+     * Agreements are linked to the owners, tenants, hosts and properties given to the DAO,
+     * loaded first if nothing loaded them yet.
      *
      * @return A list of RentalAgreement objects.
      */
 
     // Read a list of RentalAgreements from a file
     public List<RentalAgreement> readFromFile() {
+        if (!new File(FILE_PATH).exists()) {
+            System.out.println("Rental agreements file does not exist.");
+            return new ArrayList<>(); // Return an empty list
+        }
+
+        entities.ensureLoaded();
+        return readFromFile(entities.owners(), entities.tenants(), entities.hosts(),
+                entities.commercialProperties(), entities.residentialProperties());
+    }
+
+    /**
+     * Reads RentalAgreement objects from the file, resolving their references against
+     * owners, tenants, hosts and properties that are already loaded.
+     * If the file does not exist, an empty list is returned.
+     *
+     * @param loadedOwners                The owners to link agreements to.
+     * @param loadedTenants               The tenants to link agreements to.
+     * @param loadedHosts                 The hosts to link agreements to.
+     * @param loadedCommercialProperties  The commercial properties to link agreements to.
+     * @param loadedResidentialProperties The residential properties to link agreements to.
+     * @return A list of RentalAgreement objects.
+     */
+
+    // Read a list of RentalAgreements from a file against already loaded entities
+    public List<RentalAgreement> readFromFile(List<Owner> loadedOwners, List<Tenant> loadedTenants, List<Host> loadedHosts,
+                                              List<CommercialProperty> loadedCommercialProperties,
+                                              List<ResidentialProperty> loadedResidentialProperties) {
         List<RentalAgreement> agreements = new ArrayList<>();
         File file = new File(FILE_PATH);
 
@@ -279,20 +457,169 @@ public class RentalAgreementDAO {
             return agreements; // Return an empty list
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        RecordParser<RentalAgreement> parser = parserFor(loadedOwners, loadedTenants, loadedHosts,
+                loadedCommercialProperties, loadedResidentialProperties);
+
+        // Tokenize straight from the mapped file unless journal records must be replayed
+        if (!RecordJournal.forFile(FILE_PATH).hasPending()) {
+            tailCursor.markParsed(file.length()); // Appended agreements can be read from here on
+            if (StorageOptions.MAPPED_READ_ENABLED) {
+                return MappedRecordReader.read(file, parser);
+            }
+        } else {
+            tailCursor.invalidate(); // The replayed agreements are not a prefix of the data file
+        }
+
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+
+        // Read the data file with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                RentalAgreement agreement = convertStringToRentalAgreement(line);
+                RentalAgreement agreement = parser.parse(fields.reset(line));
                 if (agreement != null) {
                     agreements.add(agreement);
                 }
             }
-        } catch (IOException e) {
+        } catch (Exception e) {
             e.printStackTrace();
         }
         return agreements;
     }
 
+    /**
+     * Reads only the agreements appended to the file since it was last read or written through this DAO.
+     * Returns null when that is not possible (the file was truncated or rewritten, journal records are
+     * pending, or the tail is large enough for a full read), in which case the caller reads the whole file.
+     *
+     * @param loadedOwners                The owners to link agreements to.
+     * @param loadedTenants               The tenants to link agreements to.
+     * @param loadedHosts                 The hosts to link agreements to.
+     * @param loadedCommercialProperties  The commercial properties to link agreements to.
+     * @param loadedResidentialProperties The residential properties to link agreements to.
+     * @return The appended agreements in file order, or null if the whole file has to be read.
+     */
+    public List<RentalAgreement> readAppended(List<Owner> loadedOwners, List<Tenant> loadedTenants, List<Host> loadedHosts,
+                                              List<CommercialProperty> loadedCommercialProperties,
+                                              List<ResidentialProperty> loadedResidentialProperties) {
+        return tailCursor.readAppended(parserFor(loadedOwners, loadedTenants, loadedHosts,
+                loadedCommercialProperties, loadedResidentialProperties));
+    }
+
+    /**
+     * Reads one agreement by its ID through the `.idx` sidecar of the file, without reading the other
+     * records. Its references are linked to the entities given to the DAO once they are loaded;
+     * until then each of them is read through the index of its own file, so a lookup never loads whole files.
+     *
+     * @param contractId The ID of the agreement.
+     * @return The RentalAgreement object, or null if there is no agreement with that ID.
+     */
+    public RentalAgreement readOne(String contractId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(contractId);
+            if (line == null) {
+                return null;
+            }
+            CsvTokenizer fields = new CsvTokenizer(',').reset(line);
+            CsvTokenizer nested = new CsvTokenizer(';');
+            return convertStringToRentalAgreement(fields, nested, entities::owner, entities::tenant, entities::host,
+                    entities::commercialProperty, entities::residentialProperty, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the agreements of the file one at a time, without building a list, linked to the
+     * entities given to the DAO, which are loaded first if needed.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the agreements in file order, empty if the file does not exist.
+     */
+    public Stream<RentalAgreement> stream() {
+        entities.ensureLoaded();
+        return RecordStreams.of(FILE_PATH, parsersFor(entities.owners(), entities.tenants(), entities.hosts(),
+                entities.commercialProperties(), entities.residentialProperties()));
+    }
+
+    /**
+     * Builds the identity maps of one read and a parser resolving records against them.
+     *
+     * @param loadedOwners                The owners to link agreements to.
+     * @param loadedTenants               The tenants to link agreements to.
+     * @param loadedHosts                 The hosts to link agreements to.
+     * @param loadedCommercialProperties  The commercial properties to link agreements to.
+     * @param loadedResidentialProperties The residential properties to link agreements to.
+     * @return A parser converting one record into a RentalAgreement, or null to skip it.
+     */
+    private RecordParser<RentalAgreement> parserFor(List<Owner> loadedOwners, List<Tenant> loadedTenants, List<Host> loadedHosts,
+                                                    List<CommercialProperty> loadedCommercialProperties,
+                                                    List<ResidentialProperty> loadedResidentialProperties) {
+        return parsersFor(loadedOwners, loadedTenants, loadedHosts, loadedCommercialProperties, loadedResidentialProperties).get();
+    }
+
+    /**
+     * Builds the identity maps of one read once, and creates parsers resolving records against them.
+     * Each parser has its own tokenizer for the nested property fields, so parsers can run on
+     * several threads at once.
+     *
+     * @return A supplier of parsers converting one record into a RentalAgreement, or null to skip it.
+     */
+    private Supplier<RecordParser<RentalAgreement>> parsersFor(List<Owner> loadedOwners, List<Tenant> loadedTenants,
+                                                               List<Host> loadedHosts,
+                                                               List<CommercialProperty> loadedCommercialProperties,
+                                                               List<ResidentialProperty> loadedResidentialProperties) {
+        // Build the identity maps for this read
+        Map<String, Owner> owners = indexById(loadedOwners, Owner::getId);
+        Map<String, Tenant> tenants = indexById(loadedTenants, Tenant::getId);
+        Map<String, Host> hosts = indexById(loadedHosts, Host::getId);
+        Map<String, CommercialProperty> commercialProperties = indexById(loadedCommercialProperties, Property::getPropertyId);
+        Map<String, ResidentialProperty> residentialProperties = indexById(loadedResidentialProperties, Property::getPropertyId);
+        // Lazy agreements look up the entities loaded when they are first used, not the ones of this read
+        RentalAgreement.Resolver resolver = StorageOptions.LAZY_REFERENCES_ENABLED ? entities : null;
+        return () -> {
+            CsvTokenizer nested = new CsvTokenizer(';');
+            return fields -> convertStringToRentalAgreement(fields, nested, owners::get, tenants::get, hosts::get,
+                    commercialProperties::get, residentialProperties::get, resolver);
+        };
+    }
+
+    /**
+     * Converts the data file to format 2: every agreement whose property is in the property files
+     * stores a reference instead of an embedded copy. The previous file is kept as a `.v1.bak` copy.
+     * A file whose `.format` marker says it is in format 2 already is left as it is, and an existing
+     * backup is never overwritten, so it always holds the original file.
+     *
+     * @return The number of agreements read, and how many of them still embed their property
+     *         because it is not in the property files, or null if the file is in format 2 already.
+     * @throws IOException If the backup cannot be written, or a backup exists already.
+     */
+    public int[] migrateToPropertyReferences() throws IOException {
+        File file = new File(FILE_PATH);
+        if (isInReferenceFormat()) {
+            return null;
+        }
+        List<RentalAgreement> agreements = readFromFile();
+        Files.copy(file.toPath(), new File(FILE_PATH + ".v1.bak").toPath()); // Fails rather than replace an older backup
+
+        int embedded = 0;
+        for (RentalAgreement agreement : agreements) {
+            Property property = agreement.getRentedProperty();
+            if (!isReferenceOnly(property) && !isLoaded(property)) {
+                embedded++;
+            }
+        }
+        writeToFile(agreements, FILE_PATH);
+        return new int[]{agreements.size(), embedded};
+    }
+
+    // Check the format marker written with the data file
+    private static boolean isInReferenceFormat() throws IOException {
+        Path marker = Path.of(FORMAT_PATH);
+        return Files.exists(marker) && Files.readString(marker).trim().equals(FORMAT_REFERENCES);
+    }
+
     /**
      * Updates an existing RentalAgreement in the file with new details.
      *
@@ -302,6 +629,15 @@ public class RentalAgreementDAO {
 
     // Update rental agreement information in the list and write it back to the file
     public boolean update(RentalAgreement updatedAgreement) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).update(updatedAgreement.getContractId(), convertRentalAgreementToString(updatedAgreement))) {
+                return true;
+            }
+            System.out.println("Rental Agreement not found!");
+            return false;
+        }
+
         List<RentalAgreement> agreements = readFromFile();
 
         boolean agreementFound = false;
@@ -331,6 +667,16 @@ public class RentalAgreementDAO {
 
     // Delete rental agreement by contractId and update the file
     public boolean delete(String contractId) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).delete(contractId)) {
+                System.out.println("Rental Agreement deleted successfully!");
+                return true;
+            }
+            System.out.println("Rental Agreement not found!");
+            return false;
+        }
+
         List<RentalAgreement> agreements = readFromFile();
 
         boolean agreementFound = false;
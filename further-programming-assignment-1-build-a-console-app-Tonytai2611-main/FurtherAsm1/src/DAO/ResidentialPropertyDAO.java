@@ -18,11 +18,13 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class ResidentialPropertyDAO {
 
     private static final String FILE_PATH = "FurtherAsm1/src/File/residential_properties.txt";
     private static final Scanner scanner = new Scanner(System.in);
+    private static final PropertyStatus[] PROPERTY_STATUSES = PropertyStatus.values();
 
     /**
      * Converts a ResidentialProperty object into a string representation for file storage.
@@ -34,7 +36,7 @@ public class ResidentialPropertyDAO {
     private String convertToString(ResidentialProperty property) {
         return String.join(",",
                 property.getPropertyId(),
-                property.getAddress(),
+                CsvTokenizer.quote(property.getAddress()),
                 String.valueOf(property.getPricing()),
                 property.getStatus().name(),
                 String.valueOf(property.getNumBedrooms()),
@@ -46,21 +48,20 @@ public class ResidentialPropertyDAO {
     /**
      * Converts a string from the file into a ResidentialProperty object.
      *
-     * @param line A line of text representing a ResidentialProperty.
+     * @param fields The tokenizer positioned at the start of a ResidentialProperty record.
      * @return A ResidentialProperty object, or null if the string is invalid.
      */
     // Convert String to a ResidentialProperty object
-    private ResidentialProperty convertToProperty(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 7) return null;
-
-        String propertyId = parts[0];
-        String address = parts[1];
-        double pricing = Double.parseDouble(parts[2]);
-        PropertyStatus status = PropertyStatus.valueOf(parts[3]);
-        int numBedrooms = Integer.parseInt(parts[4]);
-        boolean gardenAvailability = Boolean.parseBoolean(parts[5]);
-        boolean petFriendliness = Boolean.parseBoolean(parts[6]);
+    private ResidentialProperty convertToProperty(CsvTokenizer fields) {
+        if (fields.countFields() < 7) return null;
+
+        String propertyId = fields.nextString();
+        String address = fields.nextString();
+        double pricing = fields.nextDouble();
+        PropertyStatus status = fields.nextEnum(PROPERTY_STATUSES);
+        int numBedrooms = fields.nextInt();
+        boolean gardenAvailability = fields.nextBoolean();
+        boolean petFriendliness = fields.nextBoolean();
 
         return new ResidentialProperty(propertyId, address, pricing, status, numBedrooms, gardenAvailability, petFriendliness);
     }
@@ -87,11 +88,12 @@ public class ResidentialPropertyDAO {
             }
         }
 
-        // Read data from the file if it exists
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))){
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+        // Read data from the file if it exists, with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line =reader.readLine()) != null) {
-                ResidentialProperty property = convertToProperty(line);
+                ResidentialProperty property = convertToProperty(fields.reset(line));
                 if ( property != null) properties.add(property);
             }
         } catch (IOException e){
@@ -100,6 +102,32 @@ public class ResidentialPropertyDAO {
         return properties;
     }
 
+    /**
+     * Reads one residential property by its ID through the `.idx` sidecar of the file, without reading the other records.
+     *
+     * @param propertyId The ID of the residential property.
+     * @return The ResidentialProperty object, or null if there is no residential property with that ID.
+     */
+    public ResidentialProperty readOne(String propertyId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(propertyId);
+            return line == null ? null : convertToProperty(new CsvTokenizer(',').reset(line));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the residential properties of the file one at a time, without building a list.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the residential properties in file order, empty if the file does not exist.
+     */
+    public Stream<ResidentialProperty> stream() {
+        return RecordStreams.of(FILE_PATH, () -> this::convertToProperty);
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -118,12 +146,12 @@ public class ResidentialPropertyDAO {
     }
 
     /**
-     * Writes a list of ResidentialProperty objects to the file.
+     * Writes ResidentialProperty objects to the file.
      *
-     * @param properties The list of ResidentialProperty objects to write.
+     * @param properties The ResidentialProperty objects to write.
      * @param FILE_PATH  The file path where the data will be stored.
      */
-    public void writeToFile(List<ResidentialProperty> properties, String FILE_PATH){
+    public void writeToFile(Iterable<ResidentialProperty> properties, String FILE_PATH){
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (ResidentialProperty property : properties) {
                 writer.write(convertToString(property));
@@ -131,6 +159,10 @@ public class ResidentialPropertyDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(ResidentialPropertyDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
         }
     }
 
@@ -140,6 +172,13 @@ public class ResidentialPropertyDAO {
      * @param property The ResidentialProperty object to add.
      */
     public void addProperty(ResidentialProperty property) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).insert(property.getPropertyId(), convertToString(property))) {
+                System.out.println("Residential property added successfully.");
+            }
+            return;
+        }
         List<ResidentialProperty> properties = readFromFile();
         properties.add(property);
         writeToFile(properties, FILE_PATH);
@@ -153,6 +192,16 @@ public class ResidentialPropertyDAO {
      * @return True if the property was updated successfully, false otherwise.
      */
     public boolean updateProperty(ResidentialProperty updatedProperty) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            boolean updated = RecordJournal.forFile(FILE_PATH).update(updatedProperty.getPropertyId(), convertToString(updatedProperty));
+            if (updated) {
+                System.out.println("Residential property updated successfully. ");
+            } else {
+                System.out.print("Property not found");
+            }
+            return updated;
+        }
         List<ResidentialProperty> properties = readFromFile();
         boolean updated = false;
 
@@ -180,6 +229,16 @@ public class ResidentialPropertyDAO {
      * @return True if the property was deleted successfully, false otherwise.
      */
     public boolean deleteProperty(String propertyId) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            boolean removed = RecordJournal.forFile(FILE_PATH).delete(propertyId);
+            if (removed) {
+                System.out.println("Residential property deleted successfully.");
+            } else {
+                System.out.println("Property not found. ");
+            }
+            return removed;
+        }
         List<ResidentialProperty> properties = readFromFile();
         boolean removed = properties.removeIf(property -> property.getPropertyId().equals(propertyId));
 
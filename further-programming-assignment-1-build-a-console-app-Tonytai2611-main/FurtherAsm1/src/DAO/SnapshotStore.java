@@ -0,0 +1,636 @@
+/**
+ * Binary snapshot of every entity list, written on a clean exit and memory-mapped on the next start
+ * so the text files do not have to be parsed again.
+ *
+ * Layout (big-endian): a header with the magic number, the format version and the size,
+ * modification time and CRC32 of every data file and journal the snapshot was taken from; a dictionary of
+ * all distinct strings with an offset table; one section per entity type, payments last; and a
+ * CRC32 of everything before it. Strings are stored as dictionary indices, dates as epoch days,
+ * amounts as fixed-point cents and references between entities as indices into the tenant, owner,
+ * host and property sections.
+ *
+ * Loading only decodes the small sections. Strings are decoded when a record first needs them,
+ * and the payment section, by far the largest, is decoded when the payments are first used.
+ *
+ * The snapshot stores what the data files store and nothing more, so loading it gives the same
+ * objects as parsing the files: references to people that are not in the loaded lists are dropped
+ * or left null exactly like the text readers do. It is ignored when the size, modification time or
+ * content of any source file changed since it was written, or when its own checksum does not match.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import Classes.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class SnapshotStore {
+    private static final int MAGIC = 0x52534E50; // "RSNP"
+    private static final int VERSION = 3; // 2: rented properties stored as references, 3: content checksums of the sources
+    private static final int HEADER_BYTES = 16; // Magic, version, source count and the smallest trailer
+    private static final long RAW_AMOUNT = Long.MIN_VALUE; // Marks an amount that is not a whole number of cents
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte COMMERCIAL = 1;
+    private static final byte RESIDENTIAL = 2;
+    private static final byte COMMERCIAL_REFERENCE = 3;
+    private static final byte RESIDENTIAL_REFERENCE = 4;
+
+    private static final Property.PropertyStatus[] PROPERTY_STATUSES = Property.PropertyStatus.values();
+    private static final RentalAgreement.RentalCycleType[] RENTAL_CYCLES = RentalAgreement.RentalCycleType.values();
+    private static final RentalAgreement.RentalAgreementStatus[] AGREEMENT_STATUSES = RentalAgreement.RentalAgreementStatus.values();
+
+    private final File file;
+    private final List<File> sources = new ArrayList<>();
+
+    /**
+     * Constructs a store for a snapshot file taken from the given data files.
+     *
+     * @param snapshotPath The path of the snapshot file.
+     * @param dataPaths    The entity data files; their journals are tracked as well.
+     */
+    public SnapshotStore(String snapshotPath, List<String> dataPaths) {
+        this.file = new File(snapshotPath);
+        for (String dataPath : dataPaths) {
+            sources.add(new File(dataPath));
+            sources.add(RecordJournal.forFile(dataPath).getLogFile());
+        }
+    }
+
+    public File getFile() { return file; }
+
+    /**
+     * Writes a snapshot of the given state. The file is written next to the old one and moved over it,
+     * so a crash never leaves a half-written snapshot behind.
+     *
+     * @param state The entity lists to store.
+     * @return True if the snapshot was written, false if it failed (the old snapshot is removed then).
+     */
+    public boolean write(State state) {
+        return write(() -> state);
+    }
+
+    /**
+     * Writes a snapshot of the state read by the given supplier, normally from the data files.
+     * The data files are fingerprinted before the state is read, so a file that changes while it is
+     * read leaves a stale snapshot, never one that claims to match the new content.
+     *
+     * @param readState Reads the entity lists to store.
+     * @return True if the snapshot was written, false if it failed (the old snapshot is removed then).
+     */
+    public boolean write(Supplier<State> readState) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            byte[] fingerprints = fingerprints();
+            State state = readState.get();
+            Writer writer = new Writer();
+            byte[] body = writer.encode(state);
+
+            CRC32 crc = new CRC32();
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(fingerprints);
+                writer.writeDictionary(out);
+                out.write(body);
+                out.flush();
+                new DataOutputStream(fileOut).writeLong(crc.getValue()); // The trailer is not part of the checksum
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error while writing snapshot: " + file.getPath());
+            e.printStackTrace();
+            temp.delete();
+            file.delete(); // An outdated snapshot must not be loaded instead of the data files
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether the snapshot was taken from the data files as they are now, without decoding it.
+     *
+     * @return True if the snapshot exists and no data file or journal changed since it was written.
+     */
+    public boolean isCurrent() {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer buffer = load(channel);
+            return buffer.limit() >= HEADER_BYTES && buffer.getInt() == MAGIC && buffer.getInt() == VERSION
+                    && fingerprintsMatch(buffer);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the snapshot by memory-mapping it.
+     *
+     * @return The stored state, or null if there is no snapshot, it is stale or it is damaged.
+     */
+    public State read() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer buffer = load(channel);
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !fingerprintsMatch(buffer)) {
+                return null; // Another format, or the data files changed after the snapshot was taken
+            }
+            int checked = buffer.limit() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(checked));
+            if (crc.getValue() != buffer.getLong(checked)) {
+                System.out.println("Snapshot checksum mismatch, loading the data files instead: " + file.getPath());
+                return null;
+            }
+            return new Reader(buffer.limit(checked)).decode();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error while reading snapshot: " + file.getPath());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Map the snapshot, or read it into memory where a live mapping would keep the file from being replaced
+    private static ByteBuffer load(FileChannel channel) throws IOException {
+        if (StorageOptions.MAPPED_READ_ENABLED) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Keep reading until the buffer is full
+        }
+        return buffer.flip();
+    }
+
+    // Record the size, modification time and checksum of every source file; all 0 stand for a missing file
+    private byte[] fingerprints() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(sources.size());
+        for (File source : sources) {
+            out.writeUTF(source.getPath());
+            out.writeLong(source.length());
+            out.writeLong(source.lastModified());
+            out.writeLong(checksumOf(source));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // CRC32 of the content of a file, or 0 if it does not exist
+    private static long checksumOf(File source) throws IOException {
+        if (!source.isFile()) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel channel = FileChannel.open(source.toPath())) {
+            while (channel.read(chunk) >= 0) {
+                crc.update(chunk.flip());
+                chunk.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Compare the recorded fingerprints with the files on disk; the content is only read when size and time match
+    private boolean fingerprintsMatch(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != sources.size()) {
+            return false;
+        }
+        for (File source : sources) {
+            byte[] path = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(path);
+            if (!new String(path, StandardCharsets.UTF_8).equals(source.getPath())
+                    || buffer.getLong() != source.length() || buffer.getLong() != source.lastModified()
+                    || buffer.getLong() != checksumOf(source)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The entity lists stored in a snapshot. Payments may be decoded on demand, see {@link #getPayments()}.
+     */
+    public static class State {
+        private final List<Tenant> tenants;
+        private final List<Owner> owners;
+        private final List<Host> hosts;
+        private final List<CommercialProperty> commercialProperties;
+        private final List<ResidentialProperty> residentialProperties;
+        private final List<RentalAgreement> rentalAgreements;
+        private final int paymentCount;
+        private final Supplier<List<Payment>> payments;
+
+        public State(List<Tenant> tenants, List<Owner> owners, List<Host> hosts,
+                     List<CommercialProperty> commercialProperties, List<ResidentialProperty> residentialProperties,
+                     List<Payment> payments, List<RentalAgreement> rentalAgreements) {
+            this(tenants, owners, hosts, commercialProperties, residentialProperties, rentalAgreements,
+                    payments.size(), () -> payments);
+        }
+
+        private State(List<Tenant> tenants, List<Owner> owners, List<Host> hosts,
+                      List<CommercialProperty> commercialProperties, List<ResidentialProperty> residentialProperties,
+                      List<RentalAgreement> rentalAgreements, int paymentCount, Supplier<List<Payment>> payments) {
+            this.tenants = tenants;
+            this.owners = owners;
+            this.hosts = hosts;
+            this.commercialProperties = commercialProperties;
+            this.residentialProperties = residentialProperties;
+            this.rentalAgreements = rentalAgreements;
+            this.paymentCount = paymentCount;
+            this.payments = payments;
+        }
+
+        public List<Tenant> getTenants() { return tenants; }
+
+        public List<Owner> getOwners() { return owners; }
+
+        public List<Host> getHosts() { return hosts; }
+
+        public List<CommercialProperty> getCommercialProperties() { return commercialProperties; }
+
+        public List<ResidentialProperty> getResidentialProperties() { return residentialProperties; }
+
+        public List<RentalAgreement> getRentalAgreements() { return rentalAgreements; }
+
+        /**
+         * Returns the payments. For a loaded snapshot every call decodes the payment section again,
+         * so callers keep the result (or hand this method to IndexedRepository.resetLazily).
+         *
+         * @return The payments in their stored order.
+         */
+        public List<Payment> getPayments() { return payments.get(); }
+
+        /**
+         * Counts the stored records of all types without decoding the payments.
+         *
+         * @return The total number of records.
+         */
+        public int size() {
+            return tenants.size() + owners.size() + hosts.size() + commercialProperties.size()
+                    + residentialProperties.size() + rentalAgreements.size() + paymentCount;
+        }
+    }
+
+    /**
+     * Encodes the entity sections and collects the string dictionary while doing so.
+     */
+    private static class Writer {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        byte[] encode(State state) throws IOException {
+            // Resolve references by ID, the way the text readers link records to the loaded people
+            Map<String, Integer> tenantIndex = writePeople(state.getTenants());
+            Map<String, Integer> ownerIndex = writePeople(state.getOwners());
+            Map<String, Integer> hostIndex = writePeople(state.getHosts());
+
+            int position = 0;
+            Map<String, Integer> commercialIndex = new HashMap<>();
+            out.writeInt(state.getCommercialProperties().size());
+            for (CommercialProperty property : state.getCommercialProperties()) {
+                commercialIndex.putIfAbsent(property.getPropertyId(), position++);
+                writeCommercial(property);
+            }
+            position = 0;
+            Map<String, Integer> residentialIndex = new HashMap<>();
+            out.writeInt(state.getResidentialProperties().size());
+            for (ResidentialProperty property : state.getResidentialProperties()) {
+                residentialIndex.putIfAbsent(property.getPropertyId(), position++);
+                writeResidential(property);
+            }
+
+            out.writeInt(state.getRentalAgreements().size());
+            for (RentalAgreement agreement : state.getRentalAgreements()) {
+                writeString(agreement.getContractId());
+                writeDate(agreement.getContractDate());
+                // By ID, so agreements with lazy references are written without looking them up
+                out.writeInt(indexOf(ownerIndex, agreement.getOwnerId()));
+                out.writeInt(indexOf(tenantIndex, agreement.getMainTenantId()));
+                writeReferences(tenantIndex, agreement.getSubTenantIds());
+                // Properties of the property lists are shared references; others keep their own copy
+                Property property = agreement.getRentedProperty();
+                Integer commercial = property instanceof CommercialProperty ? commercialIndex.get(property.getPropertyId()) : null;
+                Integer residential = property instanceof ResidentialProperty ? residentialIndex.get(property.getPropertyId()) : null;
+                if (commercial != null) {
+                    out.writeByte(COMMERCIAL_REFERENCE);
+                    out.writeInt(commercial);
+                } else if (residential != null) {
+                    out.writeByte(RESIDENTIAL_REFERENCE);
+                    out.writeInt(residential);
+                } else if (property instanceof CommercialProperty) {
+                    out.writeByte(COMMERCIAL);
+                    writeCommercial((CommercialProperty) property);
+                } else if (property instanceof ResidentialProperty) {
+                    out.writeByte(RESIDENTIAL);
+                    writeResidential((ResidentialProperty) property);
+                } else {
+                    out.writeByte(0);
+                }
+                writeReferences(hostIndex, agreement.getHostIds());
+                writeEnum(agreement.getRentalCycle());
+                out.writeInt(agreement.getDuration());
+                writeString(agreement.getContractTerms());
+                writeAmount(agreement.getRentalFee());
+                writeEnum(agreement.getStatus());
+            }
+
+            // Payments go last, so loading can stop in front of them and decode them later
+            List<Payment> allPayments = state.getPayments();
+            List<Payment> payments = new ArrayList<>(allPayments.size());
+            for (Payment payment : allPayments) {
+                if (payment.getTenant() != null && tenantIndex.containsKey(payment.getTenant().getId())) {
+                    payments.add(payment); // The text reader drops payments of unknown tenants
+                }
+            }
+            out.writeInt(payments.size());
+            for (Payment payment : payments) {
+                writeString(payment.getPaymentId());
+                out.writeInt(tenantIndex.get(payment.getTenant().getId()));
+                writeAmount(payment.getAmount());
+                writeDate(payment.getDate());
+                writeString(payment.getPaymentMethod());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        // The offset table lets a reader decode any single string without scanning the ones before it
+        void writeDictionary(DataOutputStream target) throws IOException {
+            ByteArrayOutputStream blob = new ByteArrayOutputStream(strings.size() * 8);
+            target.writeInt(strings.size());
+            target.writeInt(0);
+            for (String value : strings) {
+                blob.write(value.getBytes(StandardCharsets.UTF_8));
+                target.writeInt(blob.size());
+            }
+            blob.writeTo(target);
+        }
+
+        private Map<String, Integer> writePeople(List<? extends Person> people) throws IOException {
+            Map<String, Integer> index = new HashMap<>(people.size() * 2);
+            out.writeInt(people.size());
+            int position = 0;
+            for (Person person : people) {
+                index.putIfAbsent(person.getId(), position++); // The first one wins, as in the text readers
+                writeString(person.getId());
+                writeString(person.getFullName());
+                writeDate(person.getDateOfBirth());
+                writeString(person.getContactInfo());
+            }
+            return index;
+        }
+
+        private void writeCommercial(CommercialProperty property) throws IOException {
+            writeProperty(property);
+            writeString(property.getBusinessType());
+            out.writeInt(property.getParkingSpaces());
+            out.writeDouble(property.getSquareFootage());
+        }
+
+        private void writeResidential(ResidentialProperty property) throws IOException {
+            writeProperty(property);
+            out.writeInt(property.getNumBedrooms());
+            out.writeBoolean(property.isGardenAvailability());
+            out.writeBoolean(property.isPetFriendliness());
+        }
+
+        private void writeProperty(Property property) throws IOException {
+            writeString(property.getPropertyId());
+            writeString(property.getAddress());
+            writeAmount(property.getPricing());
+            writeEnum(property.getStatus());
+        }
+
+        // Unknown people are skipped in lists, like the text reader does
+        private void writeReferences(Map<String, Integer> index, List<String> ids) throws IOException {
+            List<Integer> known = new ArrayList<>();
+            if (ids != null) {
+                for (String id : ids) {
+                    int position = indexOf(index, id);
+                    if (position >= 0) {
+                        known.add(position);
+                    }
+                }
+            }
+            out.writeInt(known.size());
+            for (int position : known) {
+                out.writeInt(position);
+            }
+        }
+
+        private static int indexOf(Map<String, Integer> index, String id) {
+            Integer position = id == null ? null : index.get(id);
+            return position == null ? -1 : position;
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer position = dictionary.get(value);
+            if (position == null) {
+                position = strings.size();
+                dictionary.put(value, position);
+                strings.add(value);
+            }
+            out.writeInt(position);
+        }
+
+        private void writeDate(Date date) throws IOException {
+            out.writeInt(date == null ? NO_DATE : DateCodec.epochDay(date));
+        }
+
+        // Whole cents are stored as a long; anything else keeps its exact double bits
+        private void writeAmount(double amount) throws IOException {
+            long cents = Math.round(amount * 100);
+            if (Double.doubleToLongBits(cents / 100.0) == Double.doubleToLongBits(amount) && cents != RAW_AMOUNT) {
+                out.writeLong(cents);
+            } else {
+                out.writeLong(RAW_AMOUNT);
+                out.writeDouble(amount);
+            }
+        }
+
+        private void writeEnum(Enum<?> value) throws IOException {
+            out.writeByte(value == null ? -1 : value.ordinal());
+        }
+    }
+
+    /**
+     * Decodes the entity sections from the loaded snapshot. Dictionary strings are decoded once,
+     * the first time a record refers to them.
+     */
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final int offsetTable;
+        private final int stringData;
+        private final String[] strings;
+        private byte[] scratch = new byte[256];
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            strings = new String[buffer.getInt()];
+            offsetTable = buffer.position();
+            stringData = offsetTable + (strings.length + 1) * Integer.BYTES;
+            buffer.position(stringData + buffer.getInt(offsetTable + strings.length * Integer.BYTES));
+        }
+
+        State decode() {
+            // Tenants, owners and hosts get the same lists the text readers give them
+            List<Tenant> tenants = new ArrayList<>(buffer.getInt(buffer.position()));
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String id = readString();
+                tenants.add(new Tenant(readString(), id, readDate(), readString(), null, null));
+            }
+            List<Owner> owners = new ArrayList<>(buffer.getInt(buffer.position()));
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String id = readString();
+                owners.add(new Owner(readString(), id, readDate(), readString(), new ArrayList<>(), new ArrayList<>()));
+            }
+            List<Host> hosts = new ArrayList<>(buffer.getInt(buffer.position()));
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String id = readString();
+                hosts.add(new Host(readString(), id, readDate(), readString(), null, null));
+            }
+
+            List<CommercialProperty> commercialProperties = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                commercialProperties.add(readCommercial());
+            }
+            List<ResidentialProperty> residentialProperties = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                residentialProperties.add(readResidential());
+            }
+
+            List<RentalAgreement> rentalAgreements = new ArrayList<>(buffer.getInt(buffer.position()));
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String contractId = readString();
+                Date contractDate = readDate();
+                Owner owner = readReference(owners);
+                Tenant mainTenant = readReference(tenants);
+                List<Tenant> subTenants = readReferences(tenants);
+                Property property = readRentedProperty(commercialProperties, residentialProperties);
+                List<Host> hostList = readReferences(hosts);
+                RentalAgreement.RentalCycleType rentalCycle = readEnum(RENTAL_CYCLES);
+                int duration = buffer.getInt();
+                String contractTerms = readString();
+                double rentalFee = readAmount();
+                rentalAgreements.add(new RentalAgreement(contractId, contractDate, owner, mainTenant, subTenants, property,
+                        hostList, rentalCycle, duration, contractTerms, rentalFee, readEnum(AGREEMENT_STATUSES)));
+            }
+
+            int paymentSection = buffer.position();
+            return new State(tenants, owners, hosts, commercialProperties, residentialProperties, rentalAgreements,
+                    buffer.getInt(paymentSection), () -> decodePayments(paymentSection, tenants));
+        }
+
+        // Decode the payment section, which starts with its record count
+        private List<Payment> decodePayments(int paymentSection, List<Tenant> tenants) {
+            buffer.position(paymentSection);
+            List<Payment> payments = new ArrayList<>(buffer.getInt(paymentSection));
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String paymentId = readString();
+                Tenant tenant = tenants.get(buffer.getInt());
+                double amount = readAmount();
+                Date date = readDate();
+                payments.add(new Payment(readString(), date, amount, tenant, paymentId));
+            }
+            return payments;
+        }
+
+        private Property readRentedProperty(List<CommercialProperty> commercialProperties,
+                                            List<ResidentialProperty> residentialProperties) {
+            switch (buffer.get()) {
+                case COMMERCIAL_REFERENCE:
+                    return commercialProperties.get(buffer.getInt());
+                case RESIDENTIAL_REFERENCE:
+                    return residentialProperties.get(buffer.getInt());
+                case COMMERCIAL:
+                    return readCommercial();
+                case RESIDENTIAL:
+                    return readResidential();
+                default:
+                    return null;
+            }
+        }
+
+        private CommercialProperty readCommercial() {
+            return new CommercialProperty(readString(), readString(), readAmount(), readEnum(PROPERTY_STATUSES),
+                    readString(), buffer.getInt(), buffer.getDouble());
+        }
+
+        private ResidentialProperty readResidential() {
+            return new ResidentialProperty(readString(), readString(), readAmount(), readEnum(PROPERTY_STATUSES),
+                    buffer.getInt(), buffer.get() != 0, buffer.get() != 0);
+        }
+
+        private <T> T readReference(List<T> items) {
+            int position = buffer.getInt();
+            return position < 0 ? null : items.get(position);
+        }
+
+        private <T> List<T> readReferences(List<T> items) {
+            int count = buffer.getInt();
+            List<T> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(items.get(buffer.getInt()));
+            }
+            return list;
+        }
+
+        private String readString() {
+            int position = buffer.getInt();
+            if (position < 0) {
+                return null;
+            }
+            String value = strings[position];
+            if (value == null) {
+                int start = buffer.getInt(offsetTable + position * Integer.BYTES);
+                int length = buffer.getInt(offsetTable + (position + 1) * Integer.BYTES) - start;
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(stringData + start, scratch, 0, length);
+                value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                strings[position] = value;
+            }
+            return value;
+        }
+
+        private Date readDate() {
+            int epochDay = buffer.getInt();
+            return epochDay == NO_DATE ? null : DateCodec.toDate(epochDay);
+        }
+
+        private double readAmount() {
+            long cents = buffer.getLong();
+            return cents == RAW_AMOUNT ? buffer.getDouble() : cents / 100.0;
+        }
+
+        private <E extends Enum<E>> E readEnum(E[] values) {
+            byte ordinal = buffer.get();
+            return ordinal < 0 ? null : values[ordinal];
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Storage switches shared by the DAO classes.
+ * Every option is read once from a JVM system property, e.g. {@code java -Drental.journal=true Main.Main}.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.nio.charset.Charset;
+
+public final class StorageOptions {
+
+    /**
+     * When enabled, DAO update and delete calls append upsert/tombstone records to a
+     * per-entity journal instead of rewriting the whole data file.
+     */
+    public static final boolean JOURNAL_ENABLED = Boolean.getBoolean("rental.journal");
+
+    /**
+     * Number of pending journal records after which the journal is compacted back into the data file.
+     */
+    public static final int JOURNAL_CHECKPOINT_RECORDS = Integer.getInteger("rental.journal.checkpoint", 1000);
+
+    /**
+     * Data files at least this large (in bytes) are parsed in parallel chunks on the fork-join pool;
+     * smaller files keep the sequential reader. Set it very high to always read sequentially.
+     * The chunks are mapped, so this applies only while {@link #MAPPED_READ_ENABLED} is on.
+     */
+    public static final long PARALLEL_LOAD_MIN_BYTES = Long.getLong("rental.parallel.minBytes", 16L << 20);
+
+    /**
+     * Whether the data files can be tokenized byte by byte: the files are written in the platform
+     * charset, which has to encode ASCII as single bytes (UTF-8, US-ASCII, ISO-8859-1).
+     */
+    public static final boolean MAPPED_READ_SUPPORTED = ByteCharSequence.supports(Charset.defaultCharset());
+
+    /**
+     * When enabled, payments and rental agreements are read through memory-mapped files and tokenized
+     * in the mapped bytes. On by default except on Windows, where a mapped file cannot be rewritten
+     * or replaced until the mapping is garbage collected.
+     */
+    public static final boolean MAPPED_READ_ENABLED = MAPPED_READ_SUPPORTED && Boolean.parseBoolean(
+            System.getProperty("rental.mmap", String.valueOf(!System.getProperty("os.name", "").startsWith("Windows"))));
+
+    /**
+     * Storage engine of the payments: "file" (the default) keeps them in payments.txt, which is rewritten
+     * or journaled on every change; "lsm" keeps them in an {@link LsmStore} in payments.lsm, seeded from
+     * payments.txt on first use, where every insert, update and delete is a single logged write.
+     */
+    public static final boolean LSM_PAYMENTS_ENABLED = "lsm".equalsIgnoreCase(System.getProperty("rental.payments.engine", "file"));
+
+    /**
+     * Storage engine "partitioned": the payments are kept in one file per month in payments.parts
+     * (see {@link PartitionedFile}), seeded from payments.txt on first use, so a read over a date range
+     * opens only the months it covers and a save rewrites only the months that changed.
+     */
+    public static final boolean PARTITIONED_PAYMENTS_ENABLED = "partitioned".equalsIgnoreCase(System.getProperty("rental.payments.engine", "file"));
+
+    /**
+     * Number of payment writes the LSM store holds in memory before writing them out as a segment.
+     */
+    public static final int LSM_MEMTABLE_RECORDS = Integer.getInteger("rental.lsm.memtable", 65536);
+
+    /**
+     * When enabled, the whole state is written to a binary snapshot on a clean exit and loaded from it
+     * on the next start, as long as no data file changed in between. Off while payments are kept in the
+     * LSM store or in monthly partitions, whose files the snapshot does not track.
+     */
+    public static final boolean SNAPSHOT_ENABLED = Boolean.parseBoolean(System.getProperty("rental.snapshot", "true"))
+            && !LSM_PAYMENTS_ENABLED && !PARTITIONED_PAYMENTS_ENABLED;
+
+    /**
+     * When enabled, rental agreements read from the data file keep only the IDs of their owner, tenants
+     * and hosts, and look each of them up the first time it is used. Scans that only look at the ID,
+     * status or fee of an agreement then never touch those objects.
+     */
+    public static final boolean LAZY_REFERENCES_ENABLED = Boolean.getBoolean("rental.lazyReferences");
+
+    /**
+     * When enabled, a background WatchService follows the data directory, so a change made by another
+     * process invalidates the cached state of the managers as soon as it happens.
+     */
+    public static final boolean WATCH_ENABLED = Boolean.getBoolean("rental.watch");
+
+    private StorageOptions() {
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Byte offset just past the last fully parsed record of a data file, so records appended after it
+ * (by a bulk importer or another console instance) can be parsed without reading the file again.
+ *
+ * Before the tail is trusted, the file must not have shrunk below the offset, no journal records may
+ * be pending, and the first and last {@value #ANCHOR_BYTES} bytes before the offset must still have
+ * the CRC32 they had when the offset was recorded. Checking these anchors instead of the whole prefix
+ * keeps a refresh independent of the file size; a rewrite that keeps both anchors byte for byte is
+ * not noticed.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package DAO;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+class TailCursor {
+    private static final int ANCHOR_BYTES = 4096;
+
+    private final String dataPath;
+    private long offset = -1; // -1 when the parsed content is not a prefix of the file
+    private long headCrc;
+    private long anchorCrc;
+
+    TailCursor(String dataPath) {
+        this.dataPath = dataPath;
+    }
+
+    /**
+     * Records that the file was parsed up to a length, e.g. the length sampled before a full read or
+     * the length just written. Only a length ending on a line break can be continued from.
+     *
+     * @param length The number of bytes parsed.
+     */
+    synchronized void markParsed(long length) {
+        offset = -1;
+        try (RandomAccessFile raf = new RandomAccessFile(dataPath, "r")) {
+            if (length > raf.length() || (length > 0 && !endsWithLineBreak(raf, length))) {
+                return; // A partial last line is parsed as a record; re-reading it later would duplicate it
+            }
+            headCrc = crc(raf, 0, Math.min(ANCHOR_BYTES, length));
+            anchorCrc = crc(raf, Math.max(0, length - ANCHOR_BYTES), length);
+            offset = length;
+        } catch (IOException e) {
+            offset = -1;
+        }
+    }
+
+    /**
+     * Forgets the offset, so the next refresh reads the whole file.
+     */
+    synchronized void invalidate() {
+        offset = -1;
+    }
+
+    /**
+     * Returns where appended records start, after checking that the parsed prefix is still in place.
+     *
+     * @return The offset to parse from, or -1 if the file was truncated or rewritten.
+     */
+    synchronized long appendedFrom() {
+        if (offset < 0 || RecordJournal.forFile(dataPath).hasPending()) {
+            return -1;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(dataPath, "r")) {
+            if (raf.length() < offset
+                    || crc(raf, 0, Math.min(ANCHOR_BYTES, offset)) != headCrc
+                    || crc(raf, Math.max(0, offset - ANCHOR_BYTES), offset) != anchorCrc) {
+                return -1;
+            }
+            return offset;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the records appended since the offset and moves the offset past them.
+     * A tail of at least {@link StorageOptions#PARALLEL_LOAD_MIN_BYTES} is left to a full, parallel read.
+     *
+     * @param parser Converts one record into an object.
+     * @return The appended records in file order, or null if the whole file has to be read again.
+     */
+    synchronized <T> List<T> readAppended(RecordParser<T> parser) {
+        long start = appendedFrom();
+        if (start < 0) {
+            return null;
+        }
+        try {
+            long end = completeLinesEnd(start);
+            if (end - start >= StorageOptions.PARALLEL_LOAD_MIN_BYTES) {
+                return null;
+            }
+            List<T> records = new ArrayList<>();
+            if (end > start) {
+                parse(start, end, parser, records);
+            }
+            markParsed(end);
+            return records;
+        } catch (Exception e) {
+            e.printStackTrace();
+            offset = -1;
+            return null;
+        }
+    }
+
+    // Tokenize the tail from the mapped file, or line by line when mapping is off or the charset does not allow it
+    private <T> void parse(long start, long end, RecordParser<T> parser, List<T> records) throws Exception {
+        if (StorageOptions.MAPPED_READ_ENABLED) {
+            try (FileChannel channel = FileChannel.open(Paths.get(dataPath))) {
+                MappedRecordReader.parseRange(channel, start, end, new CsvTokenizer(','), parser, records);
+            }
+            return;
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        try (RandomAccessFile raf = new RandomAccessFile(dataPath, "r")) {
+            raf.seek(start);
+            raf.readFully(bytes);
+        }
+        CsvTokenizer fields = new CsvTokenizer(',');
+        for (String line : new String(bytes, Charset.defaultCharset()).split("\\r?\\n")) {
+            T record = parser.parse(fields.reset(line));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line of the file; a line still being written is left for later.
+     *
+     * @param from The offset the tail starts at.
+     * @return The end of the complete lines after from, or from if there are none.
+     * @throws IOException If the file cannot be read.
+     */
+    private long completeLinesEnd(long from) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(dataPath, "r")) {
+            long end = raf.length();
+            byte[] block = new byte[ANCHOR_BYTES];
+            while (end > from) {
+                int size = (int) Math.min(block.length, end - from);
+                raf.seek(end - size);
+                raf.readFully(block, 0, size);
+                for (int i = size - 1; i >= 0; i--) {
+                    if (block[i] == '\n') {
+                        return end - size + i + 1;
+                    }
+                }
+                end -= size;
+            }
+            return from;
+        }
+    }
+
+    private static boolean endsWithLineBreak(RandomAccessFile raf, long length) throws IOException {
+        raf.seek(length - 1);
+        return raf.read() == '\n';
+    }
+
+    private static long crc(RandomAccessFile raf, long start, long end) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        raf.seek(start);
+        raf.readFully(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
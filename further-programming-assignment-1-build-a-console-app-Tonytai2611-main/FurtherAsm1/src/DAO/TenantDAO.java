@@ -10,17 +10,18 @@
  */
 package DAO;
 
+import Classes.DateCodec;
 import Classes.Tenant;
 
 import java.io.*;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.stream.Stream;
 
 
 public class TenantDAO {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
+    private static final DateCodec dateFormat = DateCodec.DD_MM_YYYY;
     private static final String FILE_PATH = "FurtherAsm1/src/File/tenants.txt";
     private static final Scanner scanner = new Scanner(System.in);
 
@@ -34,43 +35,48 @@ public class TenantDAO {
     private String convertTenantToString(Tenant tenant) {
         return String.join(",",
                 tenant.getId(),
-                tenant.getFullName(),
+                CsvTokenizer.quote(tenant.getFullName()),
                 tenant.getDateOfBirth() != null ? dateFormat.format(tenant.getDateOfBirth()) : "",
-                tenant.getContactInfo()
+                CsvTokenizer.quote(tenant.getContactInfo())
         );
     }
 
     /**
      * Converts a string from the file into a Tenant object.
      *
-     * @param line A line of text representing a Tenant.
+     * @param fields The tokenizer positioned at the start of a Tenant record.
      * @return A Tenant object, or null if the string is invalid.
      * @throws ParseException If the date format in the string is invalid.
      */
     // Convert String from file to Tenant object
-    private Tenant convertStringToTenant(String line) throws ParseException {
-        String[] parts = line.split(",");
-        if (parts.length < 4) {
-            System.err.println("Invalid format:" + line);
+    private Tenant convertStringToTenant(CsvTokenizer fields) throws ParseException {
+        if (fields.countFields() < 4) {
+            System.err.println("Invalid format:" + fields.record());
             return null;
         }
 
-        String id = parts[0];
-        String fullName = parts[1];
-        Date dateOfBirth = parts[2].isEmpty() ? null : dateFormat.parse(parts[2]);
-        String contactInfo = parts[3];
+        String id = fields.nextString();
+        String fullName = fields.nextString();
+        Date dateOfBirth;
+        if (fields.nextIsEmpty()) {
+            fields.skip();
+            dateOfBirth = null;
+        } else {
+            dateOfBirth = fields.nextDate(dateFormat);
+        }
+        String contactInfo = fields.nextString();
 
         return new Tenant(fullName, id, dateOfBirth, contactInfo, null, null);
     }
 
     /**
-     * Writes a list of Tenant objects to a file, overwriting the existing content.
+     * Writes Tenant objects to a file, overwriting the existing content.
      *
-     * @param tenants  The list of Tenant objects to write.
+     * @param tenants  The Tenant objects to write.
      * @param FILE_PATH The file path where the data will be stored.
      */
     // Write a list of tenants.txt to a file (overwrite file content)
-    public void writeToFile(List<Tenant> tenants, String FILE_PATH) {
+    public void writeToFile(Iterable<Tenant> tenants, String FILE_PATH) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
             for (Tenant tenant : tenants) {
                 writer.write(convertTenantToString(tenant));
@@ -78,6 +84,10 @@ public class TenantDAO {
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        if (FILE_PATH.equals(TenantDAO.FILE_PATH)) {
+            RecordJournal.forFile(FILE_PATH).onDataFileRewritten(); // The data file now holds the full state
         }
     }
 
@@ -105,11 +115,12 @@ public class TenantDAO {
             }
         }
 
-        // Read data from the file if it exists
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        CsvTokenizer fields = new CsvTokenizer(','); // Reused for every line
+        // Read data from the file if it exists, with the journal replayed over it
+        try (RecordJournal.Reader reader = RecordJournal.forFile(FILE_PATH).openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
-                Tenant tenant = convertStringToTenant(line);  // Convert each line into a Tenant
+                Tenant tenant = convertStringToTenant(fields.reset(line));  // Convert each line into a Tenant
                 if (tenant != null) {
                     tenants.add(tenant);  // Add the tenant to the list
                 }
@@ -120,6 +131,32 @@ public class TenantDAO {
         return tenants;  // Return the list of tenants.txt read from the file
     }
 
+    /**
+     * Reads one tenant by its ID through the `.idx` sidecar of the file, without reading the other records.
+     *
+     * @param tenantId The ID of the tenant.
+     * @return The Tenant object, or null if there is no tenant with that ID.
+     */
+    public Tenant readOne(String tenantId) {
+        try {
+            String line = RecordIndex.forFile(FILE_PATH).find(tenantId);
+            return line == null ? null : convertStringToTenant(new CsvTokenizer(',').reset(line));
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the tenants of the file one at a time, without building a list.
+     * The stream holds the file open until it is closed.
+     *
+     * @return A lazy stream of the tenants in file order, empty if the file does not exist.
+     */
+    public Stream<Tenant> stream() {
+        return RecordStreams.of(FILE_PATH, () -> this::convertStringToTenant);
+    }
+
     /**
      * Creates a new file if it does not exist.
      */
@@ -145,6 +182,16 @@ public class TenantDAO {
      */
     // Update tenant information in the list and write it back to the file
     public boolean update(Tenant updatedTenant) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append an upsert record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).update(updatedTenant.getId(), convertTenantToString(updatedTenant))) {
+                System.out.println("Tenant updated successfully!");
+                return true;
+            }
+            System.out.println("Tenant not found!");
+            return false;
+        }
+
         List<Tenant> tenants = readFromFile(); // Read the list of tenants.txt from the file
 
         boolean tenantFound = false;
@@ -176,6 +223,16 @@ public class TenantDAO {
      */
     // Delete tenant by tenantId and update the file
     public boolean delete(String tenantId) {
+        if (StorageOptions.JOURNAL_ENABLED) {
+            // Append a tombstone record instead of rewriting the whole file
+            if (RecordJournal.forFile(FILE_PATH).delete(tenantId)) {
+                System.out.println("Tenant deleted successfully!");
+                return true;
+            }
+            System.out.println("Tenant not found!");
+            return false;
+        }
+
         List<Tenant> tenants = readFromFile(); // Read the list of tenants.txt from the file
 
         boolean tenantFound = false;
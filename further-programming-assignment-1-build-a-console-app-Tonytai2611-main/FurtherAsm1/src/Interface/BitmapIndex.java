@@ -0,0 +1,218 @@
+/**
+ * Bitmap index over several attributes of the same items, for searches that combine criteria.
+ * Every item gets a slot number, and each attribute keeps one BitSet per value with the bits of
+ * the slots holding that value. Because the attributes share the slots, a search over several
+ * criteria is a bitwise AND of their bitmaps, and several accepted values of one attribute are
+ * an OR, so it never looks at the items that do not match. Slots freed by removed items are reused,
+ * which keeps the bitmaps as short as the number of items.
+ *
+ * The value each item was filed under is remembered, so an item that was mutated in place can
+ * still be moved when it is re-indexed.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Interface;
+
+import java.util.*;
+import java.util.function.Function;
+
+public class BitmapIndex<T> {
+    private final Function<T, String> idOf;
+    private final List<Attribute<?>> attributes = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final List<T> itemsBySlot = new ArrayList<>(); // null for a free slot
+    private final BitSet used = new BitSet();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param idOf Extracts the primary key (ID) of an item.
+     */
+    public BitmapIndex(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * Adds an attribute to index. Attributes are added before any item.
+     *
+     * @param valueOf Extracts the value of the attribute; items with a null value are not filed under any value.
+     * @param bitmaps The empty map to store the bitmaps in, e.g. an EnumMap, or a TreeMap for range searches.
+     * @return The attribute, to search with.
+     */
+    public <K> Attribute<K> attribute(Function<T, K> valueOf, Map<K, BitSet> bitmaps) {
+        Attribute<K> attribute = new Attribute<>(valueOf, bitmaps);
+        attributes.add(attribute);
+        return attribute;
+    }
+
+    /**
+     * Files an item under its current values. An item with the same ID keeps its slot and is
+     * moved from the values it was filed under before.
+     *
+     * @param item The item to (re-)index.
+     */
+    public void add(T item) {
+        String id = idOf.apply(item);
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            slot = used.nextClearBit(0);
+            used.set(slot);
+            slotById.put(id, slot);
+            if (slot == itemsBySlot.size()) {
+                itemsBySlot.add(item);
+            }
+        }
+        itemsBySlot.set(slot, item);
+        for (Attribute<?> attribute : attributes) {
+            attribute.file(slot, item);
+        }
+    }
+
+    /**
+     * Removes an item from every bitmap and frees its slot.
+     *
+     * @param item The item to remove.
+     */
+    public void remove(T item) {
+        Integer slot = slotById.remove(idOf.apply(item));
+        if (slot == null) {
+            return;
+        }
+        for (Attribute<?> attribute : attributes) {
+            attribute.unfile(slot);
+        }
+        itemsBySlot.set(slot, null);
+        used.clear(slot);
+    }
+
+    /**
+     * Clears the index and files all given items again, in slot order.
+     *
+     * @param items The items to index.
+     */
+    public void rebuild(Iterable<T> items) {
+        for (Attribute<?> attribute : attributes) {
+            attribute.clear();
+        }
+        slotById.clear();
+        itemsBySlot.clear();
+        used.clear();
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Returns the slots of all indexed items, as the start of a search.
+     *
+     * @return A new bitmap of every indexed item.
+     */
+    public BitSet all() {
+        return (BitSet) used.clone();
+    }
+
+    /**
+     * Retrieves the items of the slots set in a bitmap, e.g. the result of a search.
+     *
+     * @param slots The bitmap of the slots.
+     * @return A new list of the items, in slot order, which is the order they were indexed in after a rebuild.
+     */
+    public List<T> itemsOf(BitSet slots) {
+        List<T> items = new ArrayList<>(slots.cardinality());
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            T item = slot < itemsBySlot.size() ? itemsBySlot.get(slot) : null;
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * The bitmaps of one attribute, from a value to the slots of the items holding that value.
+     */
+    public final class Attribute<K> {
+        private final Function<T, K> valueOf;
+        private final Map<K, BitSet> bitmaps;
+        private final List<K> valuesBySlot = new ArrayList<>(); // The value each slot was filed under
+
+        private Attribute(Function<T, K> valueOf, Map<K, BitSet> bitmaps) {
+            this.valueOf = valueOf;
+            this.bitmaps = bitmaps;
+        }
+
+        /**
+         * Returns the slots of the items holding a value.
+         *
+         * @param value The value to look up.
+         * @return A new bitmap of the matching items.
+         */
+        public BitSet matching(K value) {
+            BitSet bitmap = bitmaps.get(value);
+            return bitmap == null ? new BitSet() : (BitSet) bitmap.clone();
+        }
+
+        /**
+         * Returns the slots of the items holding any of several values (an OR of their bitmaps).
+         *
+         * @param values The values to look up.
+         * @return A new bitmap of the matching items.
+         */
+        public BitSet matchingAny(Collection<K> values) {
+            BitSet slots = new BitSet();
+            for (K value : values) {
+                BitSet bitmap = bitmaps.get(value);
+                if (bitmap != null) {
+                    slots.or(bitmap);
+                }
+            }
+            return slots;
+        }
+
+        /**
+         * Returns the slots of the items holding a value of at least the given one, e.g. at least 3 bedrooms.
+         * Only available when the attribute is backed by a sorted map.
+         *
+         * @param value The lowest value, inclusive.
+         * @return A new bitmap of the matching items.
+         */
+        public BitSet matchingAtLeast(K value) {
+            if (!(bitmaps instanceof NavigableMap)) {
+                throw new UnsupportedOperationException("Range searches need an attribute backed by a sorted map");
+            }
+            return matchingAny(((NavigableMap<K, BitSet>) bitmaps).tailMap(value, true).keySet());
+        }
+
+        private void file(int slot, T item) {
+            unfile(slot);
+            K value = valueOf.apply(item);
+            while (valuesBySlot.size() <= slot) {
+                valuesBySlot.add(null);
+            }
+            valuesBySlot.set(slot, value);
+            if (value != null) {
+                bitmaps.computeIfAbsent(value, v -> new BitSet()).set(slot);
+            }
+        }
+
+        private void unfile(int slot) {
+            K value = slot < valuesBySlot.size() ? valuesBySlot.get(slot) : null;
+            if (value == null) {
+                return;
+            }
+            valuesBySlot.set(slot, null);
+            BitSet bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.clear(slot);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value);
+                }
+            }
+        }
+
+        private void clear() {
+            bitmaps.clear();
+            valuesBySlot.clear();
+        }
+    }
+}
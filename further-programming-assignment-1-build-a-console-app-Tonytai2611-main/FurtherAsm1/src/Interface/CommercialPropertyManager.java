@@ -10,15 +10,40 @@ package Interface;
 import Classes.CommercialProperty;
 import Classes.Property;
 import DAO.CommercialPropertyDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 public class CommercialPropertyManager implements  RentalManager<CommercialProperty>{
-    private List<CommercialProperty> properties = new ArrayList<>();
+    private IndexedRepository<CommercialProperty> properties = new IndexedRepository<>(CommercialProperty::getPropertyId);
+    // Pricing -> properties, of all properties and of the AVAILABLE ones, for price ranges and the cheapest listings
+    private MultiIndex<Double, CommercialProperty> propertiesByPricing = new MultiIndex<>(CommercialProperty::getPropertyId,
+            property -> List.of(property.getPricing()), new TreeMap<>());
+    private MultiIndex<Double, CommercialProperty> availableByPricing = new MultiIndex<>(CommercialProperty::getPropertyId,
+            property -> property.getStatus() == Property.PropertyStatus.AVAILABLE ? List.of(property.getPricing()) : List.of(),
+            new TreeMap<>());
+    // Bitmaps of the searchable attributes, sharing one slot per property so criteria combine with AND and OR
+    private BitmapIndex<CommercialProperty> attributeIndex = new BitmapIndex<>(CommercialProperty::getPropertyId);
+    private BitmapIndex<CommercialProperty>.Attribute<Property.PropertyStatus> statusBitmaps =
+            attributeIndex.attribute(Property::getStatus, new EnumMap<>(Property.PropertyStatus.class));
+    private BitmapIndex<CommercialProperty>.Attribute<String> businessTypeBitmaps =
+            attributeIndex.attribute(property -> foldBusinessType(property.getBusinessType()), new HashMap<>());
+    private BitmapIndex<CommercialProperty>.Attribute<Integer> parkingBitmaps =
+            attributeIndex.attribute(CommercialProperty::getParkingSpaces, new TreeMap<>());
     private CommercialPropertyDAO propertyDAO = new CommercialPropertyDAO();
     private static String FILE_NAME = "FurtherAsm1/src/File/commercial_properties.txt";
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FILE_NAME); // Skips reloading while the file and the list are unchanged
 
     /**
      * Adds a new CommercialProperty to the list.
@@ -28,11 +53,11 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public boolean add(CommercialProperty item) {
-        if (properties.stream().anyMatch(p -> p.getPropertyId().equals(item.getPropertyId()))) {
+        if (!properties.add(item)) {
             System.out.println("Error: Property ID already exists: " + item.getPropertyId());
             return false;
         }
-        properties.add(item);
+        index(item);
         System.out.println("Commercial Property successfully added: " + item);
         return true;
     }
@@ -44,13 +69,12 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public void update(CommercialProperty item){
-        for(int i=0; i<properties.size(); i++){
-            if(properties.get(i).getPropertyId().equals(item.getPropertyId())){
-                properties.set(i, item);
-                System.out.println("Commercial Property updated successfully!");
-                saveToFile("src/FurtherAsm1/File/commercial_properties.txt");
-                return;
-            }
+        int previousModCount = properties.modCount();
+        if (properties.replace(item) != null) {
+            index(item); // Properties are updated by replacing them, so the new pricing and status are filed here
+            System.out.println("Commercial Property updated successfully!");
+            saveChange("src/FurtherAsm1/File/commercial_properties.txt", previousModCount, () -> propertyDAO.updateProperty(item));
+            return;
         }
         System.out.println("No property found with ID: " + item.getPropertyId());
     }
@@ -62,15 +86,31 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public void remove(String id) {
-        boolean removed = properties.removeIf(property -> property.getPropertyId().equals(id));
+        int previousModCount = properties.modCount();
+        CommercialProperty removedProperty = properties.remove(id);
+        boolean removed = removedProperty != null;
         if (removed) {
+            propertiesByPricing.remove(removedProperty);
+            availableByPricing.remove(removedProperty);
+            attributeIndex.remove(removedProperty);
             System.out.println("Commercial Property with ID removed: " + id);
-            saveToFile("FurtherAsm1/src/File/commercial_properties.txt");
+            saveChange("FurtherAsm1/src/File/commercial_properties.txt", previousModCount, () -> propertyDAO.deleteProperty(id));
         } else {
             System.out.println("No property found with ID: " + id);
         }
     }
 
+    // Save one changed property: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(properties.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves a CommercialProperty by its ID.
      *
@@ -79,10 +119,7 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public CommercialProperty getOne(String id){
-        return properties.stream()
-                .filter(property -> property.getPropertyId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return properties.get(id);
     }
 
     /**
@@ -92,7 +129,17 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public List<CommercialProperty> getAll(){
-        return new ArrayList<>(properties);
+        return properties.toList();
+    }
+
+    /**
+     * Streams all CommercialProperty objects without copying them.
+     *
+     * @return A stream of all CommercialProperty objects, in the order of getAll().
+     */
+    @Override
+    public Stream<CommercialProperty> stream() {
+        return properties.stream();
     }
 
     /**
@@ -102,11 +149,7 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
      */
     @Override
     public List<String> getAllIDs(){
-        List<String> ids = new ArrayList<>();
-        for(CommercialProperty property : properties){
-            ids.add(property.getPropertyId());
-        }
-        return ids;
+        return properties.ids();
     }
 
     /**
@@ -128,7 +171,8 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
     @Override
     public void saveToFile(String fileName){
         try {
-            propertyDAO.writeToFile(properties,FILE_NAME);
+            propertyDAO.writeToFile(properties, FILE_NAME);
+            fileTracker.record(properties.modCount()); // The file now holds exactly the list
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -145,7 +189,12 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
     @Override
     public void loadFromFile(String fileName) {
         try {
-            properties = propertyDAO.readFromFile();
+            if (!fileTracker.isUnchanged(properties.modCount())) { // Nothing to parse if nothing changed since the last load or save
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                properties.reset(propertyDAO.readFromFile());
+                rebuildIndexes();
+                fileTracker.record(recording, properties.modCount());
+            }
             if (properties.isEmpty()) {
                 System.out.println("No data found in file: " + fileName);
             }
@@ -155,6 +204,17 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
         }
     }
 
+    /**
+     * Replaces the loaded commercial properties with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The commercial properties restored from the snapshot.
+     */
+    public void restore(List<CommercialProperty> restored) {
+        properties.reset(restored);
+        rebuildIndexes();
+    }
+
     /**
      * Validates a CommercialProperty ID to ensure it follows the format "CP" followed by digits.
      *
@@ -188,9 +248,7 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
             }
 
             // Check if the ID already exists in the list
-            String finalPropertyId = propertyId;
-            boolean exists = properties.stream()
-                    .anyMatch(property -> property.getPropertyId().equals(finalPropertyId));
+            boolean exists = properties.containsId(propertyId);
 
             if (exists) {
                 System.out.println("Error: Property ID already exists. Please re-enter.");
@@ -227,6 +285,82 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
     }
 
 
+    /**
+     * Files a property in the pricing and attribute indexes, moving it if it was filed before.
+     *
+     * @param property The property to index.
+     */
+    private void index(CommercialProperty property) {
+        propertiesByPricing.add(property);
+        availableByPricing.add(property);
+        attributeIndex.add(property);
+    }
+
+    /**
+     * Builds the pricing and attribute indexes again from the loaded properties, in their current order.
+     */
+    private void rebuildIndexes() {
+        propertiesByPricing.rebuild(properties);
+        availableByPricing.rebuild(properties);
+        attributeIndex.rebuild(properties);
+    }
+
+    /**
+     * Retrieves the commercial properties whose pricing lies in a range, both bounds included.
+     * Served from the sorted pricing index, so the cost depends only on the matching properties.
+     *
+     * @param minPricing The lowest pricing.
+     * @param maxPricing The highest pricing.
+     * @return A list of the matching properties, cheapest first; empty if minPricing is above maxPricing.
+     */
+    public List<CommercialProperty> getByPricingBetween(double minPricing, double maxPricing) {
+        return propertiesByPricing.getBetween(minPricing, true, maxPricing, true);
+    }
+
+    /**
+     * Retrieves the cheapest AVAILABLE commercial properties, without looking at the rented ones.
+     *
+     * @param count The number of properties to return.
+     * @return A list of at most count available properties, cheapest first.
+     */
+    public List<CommercialProperty> getCheapestAvailable(int count) {
+        return availableByPricing.first(count);
+    }
+
+    /**
+     * Searches commercial properties by their attributes, e.g. AVAILABLE retail or office space with
+     * at least 10 parking spaces. Each criterion is a bitmap of the matching properties: the business
+     * types are combined with OR and the criteria with AND, so no property is inspected one by one.
+     *
+     * @param status           The required status, or null for any status.
+     * @param businessTypes    The accepted business types, ignoring case, or null or empty for any type.
+     * @param minParkingSpaces The lowest number of parking spaces, or null for any number.
+     * @return A list of the matching properties, in list order.
+     */
+    public List<CommercialProperty> search(Property.PropertyStatus status, Collection<String> businessTypes,
+                                           Integer minParkingSpaces) {
+        BitSet matches = attributeIndex.all();
+        if (status != null) {
+            matches.and(statusBitmaps.matching(status));
+        }
+        if (businessTypes != null && !businessTypes.isEmpty()) {
+            List<String> folded = new ArrayList<>();
+            for (String businessType : businessTypes) {
+                folded.add(foldBusinessType(businessType));
+            }
+            matches.and(businessTypeBitmaps.matchingAny(folded));
+        }
+        if (minParkingSpaces != null) {
+            matches.and(parkingBitmaps.matchingAtLeast(minParkingSpaces));
+        }
+        return attributeIndex.itemsOf(matches);
+    }
+
+    // Business types are matched ignoring case and surrounding whitespace
+    private static String foldBusinessType(String businessType) {
+        return businessType == null ? null : businessType.trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Sorts CommercialProperty objects by their IDs in ascending order.
      */
@@ -247,6 +381,7 @@ public class CommercialPropertyManager implements  RentalManager<CommercialPrope
                 return id1.compareTo(id2);
             }
         });
+        rebuildIndexes(); // Lookups return properties in list order
 
         System.out.println("The list of Commercial Properties has been sorted by ID in ascending order.");
     }
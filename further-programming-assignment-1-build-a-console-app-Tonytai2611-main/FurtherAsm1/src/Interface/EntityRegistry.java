@@ -0,0 +1,128 @@
+/**
+ * Process-wide registry holding the one manager of every entity type.
+ * Managers that reference other entities (payments, rental agreements) are given the registry's
+ * managers, and the DAO classes are given the registry as their {@link DAO.EntityLookup}, so each data file is held in
+ * memory once and every lookup returns the same objects.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Interface;
+
+import Classes.*;
+import DAO.*;
+
+import java.util.List;
+
+public final class EntityRegistry implements EntityLookup {
+    private static final EntityRegistry INSTANCE = new EntityRegistry();
+
+    private final TenantManager tenantManager = new TenantManager();
+    private final OwnerManager ownerManager = new OwnerManager();
+    private final HostManager hostManager = new HostManager();
+    private final CommercialPropertyManager commercialPropertyManager = new CommercialPropertyManager();
+    private final ResidentialPropertyManager residentialPropertyManager = new ResidentialPropertyManager();
+    private final PaymentManager paymentManager = new PaymentManager(tenantManager, this);
+    private final RentalAgreementManager rentalAgreementManager = new RentalAgreementManager(ownerManager, tenantManager,
+            hostManager, commercialPropertyManager, residentialPropertyManager, this);
+    // Read single records until the managers are loaded, so a lookup never loads whole files
+    private final OwnerDAO ownerDAO = new OwnerDAO();
+    private final TenantDAO tenantDAO = new TenantDAO();
+    private final HostDAO hostDAO = new HostDAO();
+    private final CommercialPropertyDAO commercialPropertyDAO = new CommercialPropertyDAO();
+    private final ResidentialPropertyDAO residentialPropertyDAO = new ResidentialPropertyDAO();
+    private volatile boolean loaded; // Set once the referenced entity files are in the managers
+
+    private EntityRegistry() {
+    }
+
+    /**
+     * Returns the registry of this process.
+     *
+     * @return The shared registry.
+     */
+    public static EntityRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public TenantManager getTenantManager() { return tenantManager; }
+
+    public OwnerManager getOwnerManager() { return ownerManager; }
+
+    public HostManager getHostManager() { return hostManager; }
+
+    public CommercialPropertyManager getCommercialPropertyManager() { return commercialPropertyManager; }
+
+    public ResidentialPropertyManager getResidentialPropertyManager() { return residentialPropertyManager; }
+
+    public PaymentManager getPaymentManager() { return paymentManager; }
+
+    public RentalAgreementManager getRentalAgreementManager() { return rentalAgreementManager; }
+
+    /**
+     * Records that the managers were filled, e.g. by the startup loader, so later reads reuse them.
+     */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Checks whether the managers hold the entity files, so single records can be looked up in them.
+     *
+     * @return True once the managers were loaded.
+     */
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Loads the tenants, owners, hosts and properties that other records reference, unless they
+     * were loaded already. Lets a DAO be used on its own, without the console application.
+     */
+    @Override
+    public synchronized void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt");
+        ownerManager.loadFromFile("FurtherAsm1/src/File/owners.txt");
+        hostManager.loadFromFile("FurtherAsm1/src/File/hosts.txt");
+        commercialPropertyManager.loadFromFile("FurtherAsm1/src/File/commercial_properties.txt");
+        residentialPropertyManager.loadFromFile("FurtherAsm1/src/File/residential_properties.txt");
+        loaded = true;
+    }
+
+    @Override
+    public List<Owner> owners() { return ownerManager.getAll(); }
+
+    @Override
+    public List<Tenant> tenants() { return tenantManager.getAll(); }
+
+    @Override
+    public List<Host> hosts() { return hostManager.getAll(); }
+
+    @Override
+    public List<CommercialProperty> commercialProperties() { return commercialPropertyManager.getAll(); }
+
+    @Override
+    public List<ResidentialProperty> residentialProperties() { return residentialPropertyManager.getAll(); }
+
+    @Override
+    public Owner owner(String id) { return loaded ? ownerManager.getOne(id) : ownerDAO.readOne(id); }
+
+    @Override
+    public Tenant tenant(String id) { return loaded ? tenantManager.getOne(id) : tenantDAO.readOne(id); }
+
+    @Override
+    public Host host(String id) { return loaded ? hostManager.getOne(id) : hostDAO.readOne(id); }
+
+    @Override
+    public CommercialProperty commercialProperty(String id) {
+        return loaded ? commercialPropertyManager.getOne(id) : commercialPropertyDAO.readOne(id);
+    }
+
+    @Override
+    public ResidentialProperty residentialProperty(String id) {
+        return loaded ? residentialPropertyManager.getOne(id) : residentialPropertyDAO.readOne(id);
+    }
+}
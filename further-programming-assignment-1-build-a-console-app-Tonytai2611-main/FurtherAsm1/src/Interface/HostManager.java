@@ -9,16 +9,21 @@ package Interface;
 
 import Classes.Host;
 import DAO.HostDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 public class HostManager implements RentalManager<Host> {
-    private List<Host> hosts = new ArrayList<>();
+    private IndexedRepository<Host> hosts = new IndexedRepository<>(Host::getId);
     private HostDAO hostDAO = new HostDAO(); // DAO for saving and loading data from the file
     private static String FilePath = "FurtherAsm1/src/File/hosts.txt";
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FilePath); // Skips reloading while the file and the list are unchanged
 
 
     /**
@@ -30,13 +35,11 @@ public class HostManager implements RentalManager<Host> {
 
     @Override
     public boolean add(Host item){
-        // Check if the hostId already exists
-        Host tempHost = new Host(item.getFullName(), item.getId(), item.getDateOfBirth(), item.getContactInfo(), item.getManagedProperties(), item.getCooperatingOwners());
-        if (hosts.contains(tempHost)) {
+        // Check if the hostId already exists (O(1) through the ID index)
+        if (!hosts.add(item)) {
             System.out.println("Host with hostId: " + item.getId() + " already exists.");
             return false;
         }
-        hosts.add(item);
         System.out.println("Host successfully added: " + item);
         return true;
     }
@@ -48,17 +51,12 @@ public class HostManager implements RentalManager<Host> {
      */
     @Override
     public void update(Host item){
-        boolean updated = false;
-        for(int i=0; i<hosts.size(); i++){
-            if(hosts.get(i).getId().equals(item.getId())){
-                hosts.set(i,item);
-                updated = true;
-                break;
-            }
-        }
+        int previousModCount = hosts.modCount();
+        boolean updated = hosts.replace(item) != null;
 
         if (updated) {
             System.out.println("Host updated successfully!");
+            saveChange("FurtherAsm1/src/File/hosts.txt", previousModCount, () -> hostDAO.update(item));
         } else {
             System.out.println("No host found with hostId:" + item.getId());
         }
@@ -71,15 +69,27 @@ public class HostManager implements RentalManager<Host> {
      */
     @Override
     public void remove(String id){
-        boolean removed = hosts.removeIf(host -> host.getId().equals(id));
+        int previousModCount = hosts.modCount();
+        boolean removed = hosts.remove(id) != null;
         if (removed) {
             System.out.println("Host with hostId removed: " + id);
-            saveToFile("FurtherAsm1/src/File/hosts.txt"); // Update the file after deletion
+            saveChange("FurtherAsm1/src/File/hosts.txt", previousModCount, () -> hostDAO.delete(id)); // Update the file after deletion
         } else {
             System.out.println("No host found with hostId:" + id);
         }
     }
 
+    // Save one changed host: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(hosts.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves a Host by its ID.
      *
@@ -88,12 +98,7 @@ public class HostManager implements RentalManager<Host> {
      */
     @Override
     public Host getOne(String id){
-        for(Host host : hosts){
-            if(host.getId().equals(id)){
-                return host;
-            }
-        }
-        return null;
+        return hosts.get(id);
     }
 
     /**
@@ -103,7 +108,17 @@ public class HostManager implements RentalManager<Host> {
      */
     @Override
     public List<Host> getAll(){
-        return new ArrayList<>(hosts);
+        return hosts.toList();
+    }
+
+    /**
+     * Streams all Host objects without copying them.
+     *
+     * @return A stream of all Host objects, in the order of getAll().
+     */
+    @Override
+    public Stream<Host> stream() {
+        return hosts.stream();
     }
 
     /**
@@ -113,11 +128,7 @@ public class HostManager implements RentalManager<Host> {
      */
     @Override
     public List<String> getAllIDs(){
-        List<String> ids = new ArrayList<>();
-        for(Host host : hosts){
-            ids.add(host.getId());
-        }
-        return ids;
+        return hosts.ids();
     }
 
     /**
@@ -140,7 +151,8 @@ public class HostManager implements RentalManager<Host> {
     public void saveToFile(String fileName){
         try {
             // Call HostDAO to save the Host list to the file
-            hostDAO.writeToFile(hosts,FilePath);
+            hostDAO.writeToFile(hosts, FilePath);
+            fileTracker.record(hosts.modCount()); // The file now holds exactly the list
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -157,7 +169,11 @@ public class HostManager implements RentalManager<Host> {
     public void loadFromFile(String fileName){
         try {
             // Call HostDAO to load the Host list from the file
-            hosts = hostDAO.readFromFile();
+            if (!fileTracker.isUnchanged(hosts.modCount())) { // Nothing to parse if nothing changed since the last load or save
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                hosts.reset(hostDAO.readFromFile());
+                fileTracker.record(recording, hosts.modCount());
+            }
             if (hosts.isEmpty()) {
                 System.out.println("No host data found in file: " + fileName);
             }
@@ -167,6 +183,16 @@ public class HostManager implements RentalManager<Host> {
         }
     }
 
+    /**
+     * Replaces the loaded hosts with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The hosts restored from the snapshot.
+     */
+    public void restore(List<Host> restored) {
+        hosts.reset(restored);
+    }
+
     /**
      * Validates a Host ID to ensure it follows the format "H" followed by digits.
      *
@@ -0,0 +1,174 @@
+/**
+ * In-memory repository shared by every RentalManager implementation.
+ * Keeps the items in insertion order together with a hash index on their primary key,
+ * so lookups, duplicate checks, replacements and removals by ID are O(1).
+ * The content can also be supplied lazily, in which case it is loaded on first access.
+ * Every change bumps a modification count, so callers can tell whether the content is still
+ * what they last loaded or saved.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Interface;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class IndexedRepository<T> implements Iterable<T> {
+    private final Function<T, String> idOf;
+    private LinkedHashMap<String, T> items = new LinkedHashMap<>();
+    private Supplier<? extends Collection<T>> pending; // Content not loaded yet, see resetLazily
+    private int modCount; // Bumped by every change of the content or its order
+
+    /**
+     * Constructs an empty repository.
+     *
+     * @param idOf Extracts the primary key (ID) of an item.
+     */
+    public IndexedRepository(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * Adds an item if no item with the same ID exists.
+     *
+     * @param item The item to add.
+     * @return True if the item was added, false if its ID is already present.
+     */
+    public boolean add(T item) {
+        if (items().putIfAbsent(idOf.apply(item), item) != null) {
+            return false;
+        }
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Replaces the item with the same ID, keeping its position.
+     *
+     * @param item The new version of the item.
+     * @return The replaced item, or null if no item with that ID exists.
+     */
+    public T replace(T item) {
+        T replaced = items().replace(idOf.apply(item), item);
+        if (replaced != null) {
+            modCount++;
+        }
+        return replaced;
+    }
+
+    /**
+     * Removes the item with the given ID.
+     *
+     * @param id The ID of the item to remove.
+     * @return The removed item, or null if not found.
+     */
+    public T remove(String id) {
+        T removed = items().remove(id);
+        if (removed != null) {
+            modCount++;
+        }
+        return removed;
+    }
+
+    /**
+     * Retrieves the item with the given ID.
+     *
+     * @param id The ID to look up.
+     * @return The item, or null if not found.
+     */
+    public T get(String id) {
+        return items().get(id);
+    }
+
+    public boolean containsId(String id) { return items().containsKey(id); }
+
+    public int size() { return items().size(); }
+
+    public boolean isEmpty() { return items().isEmpty(); }
+
+    public int modCount() { return modCount; }
+
+    /**
+     * Returns a snapshot of the items in their current order.
+     *
+     * @return A new list containing all items.
+     */
+    public List<T> toList() {
+        return new ArrayList<>(items().values());
+    }
+
+    /**
+     * Returns the IDs of all items in their current order.
+     *
+     * @return A new list containing all IDs.
+     */
+    public List<String> ids() {
+        return new ArrayList<>(items().keySet());
+    }
+
+    /**
+     * Replaces the whole content, e.g. after loading from a file.
+     * When IDs are duplicated the first item wins, matching the old linear getOne.
+     *
+     * @param loaded The items to store.
+     */
+    public void reset(Collection<T> loaded) {
+        pending = null;
+        LinkedHashMap<String, T> rebuilt = new LinkedHashMap<>(Math.max(16, loaded.size() * 2));
+        for (T item : loaded) {
+            rebuilt.putIfAbsent(idOf.apply(item), item);
+        }
+        items = rebuilt;
+        modCount++;
+    }
+
+    /**
+     * Replaces the whole content with items that are only produced when the repository is first used.
+     * Used for large lists restored at startup that many sessions never look at.
+     *
+     * @param loader Produces the items to store; called at most once.
+     */
+    public void resetLazily(Supplier<? extends Collection<T>> loader) {
+        items = new LinkedHashMap<>();
+        pending = loader;
+        modCount++;
+    }
+
+    /**
+     * Reorders the items; the index is rebuilt in the new order.
+     *
+     * @param comparator The order to apply.
+     */
+    public void sort(Comparator<? super T> comparator) {
+        List<T> sorted = toList();
+        sorted.sort(comparator);
+        reset(sorted);
+    }
+
+    /**
+     * Streams the items in their current order without copying them.
+     * The repository must not be changed while the stream is consumed.
+     *
+     * @return A stream over the items.
+     */
+    public Stream<T> stream() {
+        return Collections.unmodifiableCollection(items().values()).stream();
+    }
+
+    // Load the deferred content, if any, before the first access
+    private LinkedHashMap<String, T> items() {
+        if (pending != null) {
+            Supplier<? extends Collection<T>> loader = pending;
+            pending = null;
+            reset(loader.get());
+        }
+        return items;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableCollection(items().values()).iterator();
+    }
+}
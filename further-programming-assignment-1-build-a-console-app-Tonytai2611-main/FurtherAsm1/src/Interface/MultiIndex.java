@@ -0,0 +1,267 @@
+/**
+ * Secondary (non-unique) index from a key to the items carrying that key.
+ * An item may be indexed under several keys, e.g. every tenant of a rental agreement.
+ * The keys each item was filed under are remembered, so an item that was mutated in place
+ * can still be moved to its new buckets when it is re-indexed.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Interface;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public class MultiIndex<K, T> {
+    private final Function<T, String> idOf;
+    private final Function<T, Collection<K>> keysOf;
+    private final Map<K, Set<T>> buckets;
+    private final NavigableMap<K, Set<T>> sortedBuckets; // The same map when it is sorted, else null
+    private final Comparator<? super K> keyOrder; // The order of the sorted map, else null
+    private final Map<String, Collection<K>> keysById = new HashMap<>();
+
+    /**
+     * Constructs an index backed by a hash map.
+     *
+     * @param idOf   Extracts the primary key (ID) of an item.
+     * @param keysOf Extracts the keys an item should be found under.
+     */
+    public MultiIndex(Function<T, String> idOf, Function<T, Collection<K>> keysOf) {
+        this(idOf, keysOf, new HashMap<>());
+    }
+
+    /**
+     * Constructs an index backed by the given (empty) map, e.g. an EnumMap or a TreeMap.
+     *
+     * @param idOf    Extracts the primary key (ID) of an item.
+     * @param keysOf  Extracts the keys an item should be found under.
+     * @param buckets The empty map to store the buckets in.
+     */
+    public MultiIndex(Function<T, String> idOf, Function<T, Collection<K>> keysOf, Map<K, Set<T>> buckets) {
+        this.idOf = idOf;
+        this.keysOf = keysOf;
+        this.buckets = buckets;
+        this.sortedBuckets = buckets instanceof NavigableMap ? (NavigableMap<K, Set<T>>) buckets : null;
+        this.keyOrder = sortedBuckets == null ? null : orderOf(sortedBuckets);
+    }
+
+    // The comparator of a sorted map, or the natural order of its keys when it has none
+    private static <K> Comparator<? super K> orderOf(NavigableMap<K, ?> map) {
+        if (map.comparator() != null) {
+            return map.comparator();
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"}) // A sorted map without a comparator only accepts Comparable keys
+        Comparator<? super K> natural = (Comparator) Comparator.naturalOrder();
+        return natural;
+    }
+
+    /**
+     * Files an item under its current keys. If an item with the same ID was indexed before,
+     * it is first removed from the buckets it was filed under.
+     *
+     * @param item The item to (re-)index.
+     */
+    public void add(T item) {
+        remove(item);
+        Collection<K> keys = new LinkedHashSet<>(keysOf.apply(item));
+        for (K key : keys) {
+            buckets.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(item);
+        }
+        keysById.put(idOf.apply(item), keys);
+    }
+
+    /**
+     * Removes an item from every bucket it was filed under.
+     *
+     * @param item The item to remove.
+     */
+    public void remove(T item) {
+        Collection<K> keys = keysById.remove(idOf.apply(item));
+        if (keys == null) {
+            return;
+        }
+        for (K key : keys) {
+            Set<T> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(item);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the index and files all given items again.
+     *
+     * @param items The items to index.
+     */
+    public void rebuild(Iterable<T> items) {
+        buckets.clear();
+        keysById.clear();
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Retrieves the items filed under a key.
+     *
+     * @param key The key to look up.
+     * @return A new list of the matching items, in the order they were indexed.
+     */
+    public List<T> get(K key) {
+        Set<T> bucket = buckets.get(key);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    /**
+     * Retrieves the items filed under every key in a range, e.g. all keys starting with a prefix.
+     * Only available when the index is backed by a sorted map.
+     *
+     * @param from The lowest key, inclusive.
+     * @param to   The highest key, exclusive.
+     * @return A new list of the matching items, by key and then in the order they were indexed.
+     */
+    public List<T> getBetween(K from, K to) {
+        return getBetween(from, true, to, false);
+    }
+
+    /**
+     * Retrieves the items filed under every key in a range, with either bound inclusive or exclusive.
+     * Only available when the index is backed by a sorted map.
+     *
+     * @param from          The lowest key.
+     * @param fromInclusive Whether items filed under the lowest key are included.
+     * @param to            The highest key.
+     * @param toInclusive   Whether items filed under the highest key are included.
+     * @return A new list of the matching items, by key and then in the order they were indexed;
+     * empty if the lowest key is above the highest.
+     */
+    public List<T> getBetween(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        NavigableMap<K, Set<T>> range = range(from, fromInclusive, to, toInclusive);
+        List<T> items = new ArrayList<>();
+        if (range != null) {
+            for (Set<T> bucket : range.values()) {
+                items.addAll(bucket);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Retrieves the items with the lowest keys, without visiting the other buckets.
+     * Only available when the index is backed by a sorted map.
+     *
+     * @param limit The maximum number of items to return.
+     * @return A new list of at most limit items, lowest key first, then in the order they were indexed.
+     */
+    public List<T> first(int limit) {
+        return take(sorted().values(), limit);
+    }
+
+    /**
+     * Retrieves the items with the highest keys, without visiting the other buckets.
+     * Only available when the index is backed by a sorted map.
+     *
+     * @param limit The maximum number of items to return.
+     * @return A new list of at most limit items, highest key first, then in the order they were indexed.
+     */
+    public List<T> last(int limit) {
+        return take(sorted().descendingMap().values(), limit);
+    }
+
+    /**
+     * Streams the items filed under every key in a range, in key order, without copying them, so
+     * a query that stops early, e.g. at a limit, does not visit the rest of the range.
+     * Only available when the index is backed by a sorted map. The index must not change while
+     * the stream is consumed.
+     *
+     * @param from          The lowest key, or null for no lower bound.
+     * @param fromInclusive Whether items filed under the lowest key are included.
+     * @param to            The highest key, or null for no upper bound.
+     * @param toInclusive   Whether items filed under the highest key are included.
+     * @param descending    Whether to start at the highest key.
+     * @return A lazy stream of the matching items, then in the order they were indexed within a key.
+     */
+    public Stream<T> streamBetween(K from, boolean fromInclusive, K to, boolean toInclusive, boolean descending) {
+        NavigableMap<K, Set<T>> range = range(from, fromInclusive, to, toInclusive);
+        if (range == null) {
+            return Stream.empty();
+        }
+        return (descending ? range.descendingMap() : range).values().stream().flatMap(Set::stream);
+    }
+
+    /**
+     * Counts the items filed under every key in a range, stopping once a limit is reached, so a
+     * caller comparing ranges only pays for the smallest one.
+     * Only available when the index is backed by a sorted map.
+     *
+     * @param from          The lowest key, or null for no lower bound.
+     * @param fromInclusive Whether items filed under the lowest key are included.
+     * @param to            The highest key, or null for no upper bound.
+     * @param toInclusive   Whether items filed under the highest key are included.
+     * @param limit         The count to stop at.
+     * @return The number of matching items, or limit if there are at least that many.
+     */
+    public int countBetween(K from, boolean fromInclusive, K to, boolean toInclusive, int limit) {
+        NavigableMap<K, Set<T>> range = range(from, fromInclusive, to, toInclusive);
+        int count = 0;
+        if (range != null) {
+            for (Set<T> bucket : range.values()) {
+                count += bucket.size();
+                if (count >= limit) {
+                    return limit;
+                }
+            }
+        }
+        return count;
+    }
+
+    // The buckets of a key range, with null for an open bound, or null for a reversed range
+    private NavigableMap<K, Set<T>> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        NavigableMap<K, Set<T>> sorted = sorted();
+        if (from != null && to != null) {
+            if (keyOrder.compare(from, to) > 0) {
+                return null; // subMap rejects reversed bounds
+            }
+            return sorted.subMap(from, fromInclusive, to, toInclusive);
+        }
+        if (from != null) {
+            return sorted.tailMap(from, fromInclusive);
+        }
+        return to != null ? sorted.headMap(to, toInclusive) : sorted;
+    }
+
+    // Copy buckets in order until limit items are collected
+    private static <T> List<T> take(Collection<Set<T>> buckets, int limit) {
+        List<T> items = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        for (Set<T> bucket : buckets) {
+            for (T item : bucket) {
+                if (items.size() >= limit) {
+                    return items;
+                }
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private NavigableMap<K, Set<T>> sorted() {
+        if (sortedBuckets == null) {
+            throw new UnsupportedOperationException("Range lookups need an index backed by a sorted map");
+        }
+        return sortedBuckets;
+    }
+
+    /**
+     * Counts the items filed under a key.
+     *
+     * @param key The key to count.
+     * @return The number of matching items.
+     */
+    public int count(K key) {
+        Set<T> bucket = buckets.get(key);
+        return bucket == null ? 0 : bucket.size();
+    }
+}
@@ -10,16 +10,21 @@ package Interface;
 
 import Classes.Owner;
 import DAO.OwnerDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 
 public class OwnerManager implements RentalManager<Owner> {
-    private List<Owner> owners = new ArrayList<>();
+    private IndexedRepository<Owner> owners = new IndexedRepository<>(Owner::getId);
     private OwnerDAO ownerDAO = new OwnerDAO();
     private static String FILE_PATH = "FurtherAsm1/src/File/owners.txt";
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FILE_PATH); // Skips reloading while the file and the list are unchanged
 
     /**
      * Adds a new Owner to the list.
@@ -29,11 +34,10 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public boolean add(Owner item){
-        if (owners.contains(item)) {
+        if (!owners.add(item)) {
             System.out.println("Owner with ownerId: " + item.getId() + " already exists.");
             return false;
         }
-        owners.add(item);
         System.out.println("Owner successfully added: " + item);
         return true;
     }
@@ -45,17 +49,12 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public void update(Owner item){
-        boolean updated = false;
-        for (int i = 0; i < owners.size(); i++) {
-            if (owners.get(i).getId().equals(item.getId())) {
-                owners.set(i, item);
-                updated = true;
-                break;
-            }
-        }
+        int previousModCount = owners.modCount();
+        boolean updated = owners.replace(item) != null;
 
         if (updated) {
             System.out.println("Owner updated successfully!");
+            saveChange("FurtherAsm1/src/File/owners.txt", previousModCount, () -> ownerDAO.update(item));
         } else {
             System.out.println("No owner found with ownerId: " + item.getId());
         }
@@ -68,15 +67,27 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public void remove(String id ){
-        boolean removed = owners.removeIf(owner -> owner.getId().equals(id));
+        int previousModCount = owners.modCount();
+        boolean removed = owners.remove(id) != null;
         if (removed) {
             System.out.println("Owner with ownerId removed: " + id);
-            saveToFile("FurtherAsm1/src/File/owners.txt");
+            saveChange("FurtherAsm1/src/File/owners.txt", previousModCount, () -> ownerDAO.delete(id));
         } else {
             System.out.println("No owner found with ownerId: " + id);
         }
     }
 
+    // Save one changed owner: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(owners.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves an Owner by its ID.
      *
@@ -85,12 +96,7 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public Owner getOne(String id){
-        for(Owner owner : owners){
-            if(owner.getId().equals(id)){
-                return owner;
-            }
-        }
-        return null;
+        return owners.get(id);
     }
 
     /**
@@ -100,7 +106,17 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public List<Owner> getAll(){
-        return new ArrayList<>(owners);
+        return owners.toList();
+    }
+
+    /**
+     * Streams all Owner objects without copying them.
+     *
+     * @return A stream of all Owner objects, in the order of getAll().
+     */
+    @Override
+    public Stream<Owner> stream() {
+        return owners.stream();
     }
 
     /**
@@ -110,11 +126,7 @@ public class OwnerManager implements RentalManager<Owner> {
      */
     @Override
     public List<String> getAllIDs(){
-        List<String> ids = new ArrayList<>();
-        for(Owner owner : owners){
-            ids.add(owner.getId());
-        }
-        return ids;
+        return owners.ids();
     }
 
     /**
@@ -137,7 +149,8 @@ public class OwnerManager implements RentalManager<Owner> {
     public void saveToFile(String fileName){
         try {
             // Call OwnerDAO to save List owner into file
-            ownerDAO.writeToFile(owners,FILE_PATH);
+            ownerDAO.writeToFile(owners, FILE_PATH);
+            fileTracker.record(owners.modCount()); // The file now holds exactly the list
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -154,7 +167,11 @@ public class OwnerManager implements RentalManager<Owner> {
     public void loadFromFile(String fileName){
         try {
             // Call OwnerDAO to load List Owner from file
-            owners = ownerDAO.readFromFile();
+            if (!fileTracker.isUnchanged(owners.modCount())) { // Nothing to parse if nothing changed since the last load or save
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                owners.reset(ownerDAO.readFromFile());
+                fileTracker.record(recording, owners.modCount());
+            }
             if (owners.isEmpty()) {
                 System.out.println("No owner data found in file: " + fileName);
             }
@@ -164,6 +181,16 @@ public class OwnerManager implements RentalManager<Owner> {
         }
     }
 
+    /**
+     * Replaces the loaded owners with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The owners restored from the snapshot.
+     */
+    public void restore(List<Owner> restored) {
+        owners.reset(restored);
+    }
+
     /**
      * Allows the user to input data for a new Owner object.
      *
@@ -9,19 +9,44 @@ package Interface;
 
 import Classes.Payment;
 import Classes.Tenant;
+import DAO.EntityLookup;
 import DAO.PaymentDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class PaymentManager implements  RentalManager<Payment>{
-    private List<Payment> payments = new ArrayList<>();
-    private PaymentDAO paymentDAO = new PaymentDAO(); // Create PaymentDAO object to save and load from file
-    private TenantManager tenantManager = new TenantManager();
+    private IndexedRepository<Payment> payments = new IndexedRepository<>(Payment::getPaymentId);
+    private final PaymentDAO paymentDAO; // PaymentDAO object to save and load from file
+    private final TenantManager tenantManager;
     private static String FILE_PATH = "FurtherAsm1/src/File/payments.txt";
+    // Skips reloading while the file, the tenant file it links to and the list are unchanged;
+    // monthly partitions are followed through their manifest, which changes with every partition
+    private final FileChangeTracker fileTracker = StorageOptions.PARTITIONED_PAYMENTS_ENABLED
+            ? new FileChangeTracker(FILE_PATH, "FurtherAsm1/src/File/tenants.txt", PaymentDAO.PARTITION_MANIFEST_PATH)
+            : new FileChangeTracker(FILE_PATH, "FurtherAsm1/src/File/tenants.txt");
+    // The list's modCount when the LSM store last held exactly its payments, or -1 when it may not;
+    // the store is keyed by ID, so reordering the list or changing the tenant file does not affect it
+    private int storeModCount = -1;
+
+    /**
+     * Constructs a manager whose payments reference the tenants of the given manager.
+     * The shared instance is available from {@link EntityRegistry#getPaymentManager()}.
+     *
+     * @param tenantManager The manager holding the loaded tenants.
+     * @param entities      Finds the same tenants for the DAO, which resolves payment records against them.
+     */
+    public PaymentManager(TenantManager tenantManager, EntityLookup entities) {
+        this.tenantManager = tenantManager;
+        this.paymentDAO = new PaymentDAO(entities);
+    }
 
     /**
      * Adds a new Payment to the list.
@@ -33,14 +58,16 @@ public class PaymentManager implements  RentalManager<Payment>{
     public boolean add(Payment item){
         Payment temp = new Payment(item.getPaymentMethod(), item.getDate(), item.getAmount(), item.getTenant(), item.getPaymentId());
 
-        if(payments.contains(temp)){
+        boolean inSync = StorageOptions.LSM_PAYMENTS_ENABLED && storageHoldsList();
+        // Add only if the paymentId does not exist yet (O(1) through the ID index)
+        if(!payments.add(temp)){
             System.out.println("Error: paymentId already exists"+ item.getPaymentId());
             return false;
         }
-
-        // If paymentId does not exist, add to the list
-        payments.add(temp);
         System.out.println("Payment successfully added: " + item);
+        if (inSync && paymentDAO.insert(temp)) {
+            recordChange(true); // Written through, so saving the list has nothing left to do
+        }
         return true;
     }
 
@@ -51,9 +78,19 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     @Override
     public void update(Payment item){
+        // Store the loaded tenant, not the ID-only Tenant the caller may have built from the input
+        Tenant tenant = item.getTenant() == null ? null : tenantManager.getOne(item.getTenant().getId());
+        if (tenant == null) {
+            System.out.println("No tenant found with id: " + (item.getTenant() == null ? null : item.getTenant().getId()));
+            return;
+        }
+        item.setTenant(tenant);
+        boolean inSync = storageHoldsList();
         // Call update method from DAO to update payment and write back to file
         if (paymentDAO.update(item)){
+            payments.replace(item); // Keep the in-memory list and index in sync
             System.out.println("Payment updated successfully!");
+            recordChange(inSync);
         } else {
             System.out.println("No payment found with paymentId: " + item.getPaymentId());
         }
@@ -66,15 +103,50 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     @Override
     public void remove(String id) {
-        boolean removed = payments.removeIf(payment -> payment.getPaymentId().equals(id));
+        boolean inSync = writesThrough() && storageHoldsList();
+        boolean removed = payments.remove(id) != null;
         if (removed) {
             System.out.println("Payment with paymentId removed: " + id);
-            saveToFile("FurtherAsm1/src/File/payments.txt"); // Update data to file after removal
+            if (inSync && paymentDAO.delete(id)) {
+                recordChange(true); // Wrote a tombstone instead of saving the whole list
+            } else {
+                saveToFile("FurtherAsm1/src/File/payments.txt"); // Update data to file after removal
+            }
         } else {
             System.out.println("No payment found with paymentId: " + id);
         }
     }
 
+    // Single changes are written through to the LSM store, or appended to the journal of the data file;
+    // monthly partitions are rewritten by them, so the partitioned engine saves the list instead
+    private static boolean writesThrough() {
+        return StorageOptions.LSM_PAYMENTS_ENABLED
+                || StorageOptions.JOURNAL_ENABLED && !StorageOptions.PARTITIONED_PAYMENTS_ENABLED;
+    }
+
+    // Whether the storage holds the list as it is now: the LSM store is followed by storeModCount,
+    // as only this manager writes to it, and the data file by its tracker
+    private boolean storageHoldsList() {
+        return StorageOptions.LSM_PAYMENTS_ENABLED
+                ? storeModCount == payments.modCount()
+                : fileTracker.isUnchanged(payments.modCount());
+    }
+
+    // After the DAO wrote one change, the file holds the list again if it held it before the change;
+    // otherwise the list is saved as a whole, as the file is missing changes made only in memory
+    private void recordChange(boolean inSync) {
+        if (!inSync) {
+            saveToFile("FurtherAsm1/src/File/payments.txt");
+        } else if (StorageOptions.LSM_PAYMENTS_ENABLED) {
+            storeModCount = payments.modCount();
+            fileTracker.recordJournal(payments.modCount()); // The tenant file is still compared on the next load
+        } else if (writesThrough()) {
+            fileTracker.recordJournal(payments.modCount()); // The data file was left in place
+        } else {
+            fileTracker.record(payments.modCount());
+        }
+    }
+
     /**
      * Retrieves a Payment by its ID.
      *
@@ -83,12 +155,7 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     @Override
     public Payment getOne(String id) {
-        for (Payment payment : payments) {
-            if (payment.getPaymentId().equals(id)) {
-                return payment;
-            }
-        }
-        return null;
+        return payments.get(id);
     }
 
     /**
@@ -98,7 +165,17 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     @Override
     public List<Payment> getAll() {
-        return new ArrayList<>(payments);
+        return payments.toList();
+    }
+
+    /**
+     * Streams all payments without copying them.
+     *
+     * @return A stream of all payments, in the order of getAll().
+     */
+    @Override
+    public Stream<Payment> stream() {
+        return payments.stream();
     }
 
     /**
@@ -108,11 +185,7 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     @Override
     public List<String> getAllIDs(){
-        List<String> ids = new ArrayList<>();
-        for (Payment payment : payments) {
-            ids.add(payment.getPaymentId());
-        }
-        return ids;
+        return payments.ids();
     }
 
     /**
@@ -140,8 +213,15 @@ public class PaymentManager implements  RentalManager<Payment>{
     @Override
     public void saveToFile(String fileName) {
         try {
+            // Changes were written through to the store as they were made, so there is nothing to compare it with
+            if (StorageOptions.LSM_PAYMENTS_ENABLED && storageHoldsList()) {
+                System.out.println("Successfully saved to file: " + fileName);
+                return;
+            }
             // Call PaymentDAO to save the payment list to a file
-            paymentDAO.writeToFile(payments,FILE_PATH);
+            paymentDAO.writeToFile(payments, FILE_PATH);
+            fileTracker.record(payments.modCount()); // The file now holds exactly the list
+            storeModCount = payments.modCount();
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -157,8 +237,13 @@ public class PaymentManager implements  RentalManager<Payment>{
     @Override
     public void loadFromFile(String fileName) {
         try {
-            // Call PaymentDAO to load the payment list from a file
-            payments = paymentDAO.readFromFile();
+            // Nothing to parse if nothing changed since the last load or save, and only the tail if records were appended
+            if (!fileTracker.isUnchanged(payments.modCount()) && !mergeAppended()) {
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                payments.reset(paymentDAO.readFromFile());
+                fileTracker.record(recording, payments.modCount());
+                storeModCount = payments.modCount(); // With the LSM store, read from it
+            }
             if (payments.isEmpty()) {
                 System.out.println("No payment data found in file: " + fileName);
             }
@@ -168,6 +253,61 @@ public class PaymentManager implements  RentalManager<Payment>{
         }
     }
 
+    /**
+     * Adds the payments appended to the file since the last load or save, when nothing else changed.
+     *
+     * @return True if the appended payments were merged, false if the whole file has to be read.
+     */
+    // Parse only the new tail of the file, so a refresh does not grow with the payment history
+    private boolean mergeAppended() {
+        if (!fileTracker.isAppendable(payments.modCount())) {
+            return false;
+        }
+        FileChangeTracker.Recording recording = fileTracker.startAppendRecording();
+        List<Payment> appended = paymentDAO.readAppended(tenantManager.getAll());
+        if (appended == null) {
+            return false;
+        }
+        for (Payment payment : appended) {
+            payments.add(payment); // The first payment with an ID wins, as in a full load
+        }
+        fileTracker.record(recording, payments.modCount());
+        return true;
+    }
+
+    /**
+     * Loads Payment objects from a file, linking them to the tenants of an already loaded TenantManager
+     * instead of reading the tenant file again.
+     *
+     * @param fileName The file name to load from.
+     * @param tenants  The loaded tenants to resolve payments against.
+     */
+    public void loadFromFile(String fileName, TenantManager tenants) {
+        try {
+            // Call PaymentDAO to load the payment list against the given tenants
+            FileChangeTracker.Recording recording = fileTracker.startRecording();
+            payments.reset(paymentDAO.readFromFile(tenants.getAll()));
+            fileTracker.record(recording, payments.modCount());
+            storeModCount = payments.modCount(); // With the LSM store, read from it
+            if (payments.isEmpty()) {
+                System.out.println("No payment data found in file: " + fileName);
+            }
+        } catch (Exception e) {
+            System.out.println("Error while reading from file: " + fileName);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the loaded payments with ones restored from the startup snapshot.
+     * The payments are only decoded when first used; the data file is not read or written.
+     *
+     * @param restored Decodes the payments restored from the snapshot.
+     */
+    public void restore(Supplier<List<Payment>> restored) {
+        payments.resetLazily(restored);
+    }
+
     /**
      * Prompts user input to create a new Payment object.
      *
@@ -190,15 +330,7 @@ public class PaymentManager implements  RentalManager<Payment>{
             }
 
             // Check if paymentId already exists
-            boolean exists = false;
-            for (Payment p : payments) {
-                if (p.getPaymentId().equals(paymentId)) {
-                    exists = true;
-                    break;
-                }
-            }
-
-            if (exists) {
+            if (payments.containsId(paymentId)) {
                 System.out.println("Error: paymentId already exists. Please re-enter.");
             } else {
                 break; // Exit the loop if paymentId is valid and unique
@@ -209,8 +341,7 @@ public class PaymentManager implements  RentalManager<Payment>{
         // Input tenantId and automatically assign Tenant
         System.out.print("Enter tenantId: ");
         String tenantId = scanner.nextLine();
-        tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt");
-        Tenant tenant = tenantManager.getOne(tenantId); // Find tenant by tenantId
+        Tenant tenant = tenantManager.getOne(tenantId); // Find tenant by tenantId among the loaded tenants
         if (tenant != null) {
             System.out.println("Found tenant: " + tenant); // Display information of the found tenant
         } else {
@@ -238,6 +369,7 @@ public class PaymentManager implements  RentalManager<Payment>{
      */
     // Sort payments by ID in ascending order
     public void sortPaymentsById() {
+        boolean storeHeldList = storeModCount == payments.modCount();
         payments.sort((p1, p2) -> {
             try {
                 // Extract the numeric part after the "P" prefix and convert it to an integer
@@ -250,6 +382,9 @@ public class PaymentManager implements  RentalManager<Payment>{
                 return p1.getPaymentId().compareTo(p2.getPaymentId());
             }
         });
+        if (storeHeldList) {
+            storeModCount = payments.modCount(); // Only the order changed
+        }
         System.out.println("Payments list has been sorted by ID (ascending).");
     }
 
@@ -8,20 +8,91 @@
 package Interface;
 
 import Classes.*;
+import DAO.EntityLookup;
 import DAO.RentalAgreementDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 public class RentalAgreementManager implements RentalManager<RentalAgreement> {
-    private List<RentalAgreement> agreements = new ArrayList<>();
-    private RentalAgreementDAO rentalAgreementDAO = new RentalAgreementDAO();
-    private TenantManager tenantManager = new TenantManager();
-    private HostManager hostManager = new HostManager();
+    private IndexedRepository<RentalAgreement> agreements = new IndexedRepository<>(RentalAgreement::getContractId);
+    // Tenant ID -> agreements where the tenant is the main tenant or a sub-tenant
+    private MultiIndex<String, RentalAgreement> agreementsByTenant = new MultiIndex<>(RentalAgreement::getContractId, RentalAgreementManager::tenantIdsOf);
+    // Owner ID -> agreements, and case-folded full name -> the IDs of the owners of the indexed agreements;
+    // names come from the owner manager, so indexing does not look up the owners of lazily loaded agreements
+    private MultiIndex<String, RentalAgreement> agreementsByOwner = new MultiIndex<>(RentalAgreement::getContractId, RentalAgreementManager::ownerIdsOf);
+    private MultiIndex<String, String> ownerIdsByName = new MultiIndex<>(ownerId -> ownerId, this::ownerNamesOf);
+    // Normalized property address -> agreements, sorted so addresses sharing a prefix are adjacent
+    private MultiIndex<String, RentalAgreement> agreementsByAddress = new MultiIndex<>(RentalAgreement::getContractId,
+            RentalAgreementManager::addressesOf, new TreeMap<>());
+    // Status -> agreements, moved between buckets by setStatus as well as by update
+    private MultiIndex<RentalAgreement.RentalAgreementStatus, RentalAgreement> agreementsByStatus = new MultiIndex<>(
+            RentalAgreement::getContractId, RentalAgreementManager::statusesOf, new EnumMap<>(RentalAgreement.RentalAgreementStatus.class));
+    // Rental fee -> agreements, for fee ranges and the highest fees; also moved by setRentalFee
+    private MultiIndex<Double, RentalAgreement> agreementsByFee = new MultiIndex<>(RentalAgreement::getContractId,
+            agreement -> List.of(agreement.getRentalFee()), new TreeMap<>());
+    // Contract date -> agreements, for date ranges
+    private MultiIndex<Date, RentalAgreement> agreementsByDate = new MultiIndex<>(RentalAgreement::getContractId,
+            agreement -> agreement.getContractDate() == null ? List.of() : List.of(agreement.getContractDate()), new TreeMap<>());
+    private final RentalAgreement.ChangeListener changeListener = new RentalAgreement.ChangeListener() {
+        @Override
+        public void statusChanged(RentalAgreement agreement, RentalAgreement.RentalAgreementStatus oldStatus) {
+            if (holds(agreement)) {
+                agreementsByStatus.add(agreement);
+            }
+        }
+
+        @Override
+        public void rentalFeeChanged(RentalAgreement agreement, double oldFee) {
+            if (holds(agreement)) {
+                agreementsByFee.add(agreement);
+            }
+        }
+    };
+    private final RentalAgreementDAO rentalAgreementDAO;
+    private final OwnerManager ownerManager;
+    private final TenantManager tenantManager;
+    private final HostManager hostManager;
+    private final CommercialPropertyManager commercialPropertyManager;
+    private final ResidentialPropertyManager residentialPropertyManager;
     private static String FILE_PATH = "FurtherAsm1/src/File/rental_agreements.txt";
+    // Skips reloading while the file, the files it links to and the list are unchanged
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FILE_PATH, "FurtherAsm1/src/File/owners.txt",
+            "FurtherAsm1/src/File/tenants.txt", "FurtherAsm1/src/File/hosts.txt",
+            "FurtherAsm1/src/File/commercial_properties.txt", "FurtherAsm1/src/File/residential_properties.txt");
+
+    /**
+     * Constructs a manager whose agreements reference the entities of the given managers.
+     * The shared instance is available from {@link EntityRegistry#getRentalAgreementManager()}.
+     *
+     * @param ownerManager               The manager holding the loaded owners.
+     * @param tenantManager              The manager holding the loaded tenants.
+     * @param hostManager                The manager holding the loaded hosts.
+     * @param commercialPropertyManager  The manager holding the loaded commercial properties.
+     * @param residentialPropertyManager The manager holding the loaded residential properties.
+     * @param entities                   Finds the same entities for the DAO, which resolves agreement records against them.
+     */
+    public RentalAgreementManager(OwnerManager ownerManager, TenantManager tenantManager, HostManager hostManager,
+                                  CommercialPropertyManager commercialPropertyManager,
+                                  ResidentialPropertyManager residentialPropertyManager, EntityLookup entities) {
+        this.rentalAgreementDAO = new RentalAgreementDAO(entities);
+        this.ownerManager = ownerManager;
+        this.tenantManager = tenantManager;
+        this.hostManager = hostManager;
+        this.commercialPropertyManager = commercialPropertyManager;
+        this.residentialPropertyManager = residentialPropertyManager;
+    }
 
     /**
      * Adds a new RentalAgreement to the list.
@@ -31,11 +102,11 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public boolean add(RentalAgreement item) {
-        if (agreements.contains(item)) {
+        if (!agreements.add(item)) {
             System.out.println("Error: contractId already exists: " + item.getContractId());
             return false;
         }
-        agreements.add(item);
+        index(item);
         System.out.println("Rental Agreement successfully added: " + item);
         return true;
     }
@@ -47,8 +118,13 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public void update(RentalAgreement item) {
-        if (rentalAgreementDAO.update(item)) {
+        int previousModCount = agreements.modCount();
+        boolean updated = agreements.replace(item) != null;
+
+        if (updated) {
+            index(item); // Move the agreement to its current tenants, owner and address
             System.out.println("Rental Agreement updated successfully!");
+            saveChange(FILE_PATH, previousModCount, () -> rentalAgreementDAO.update(item));
         } else {
             System.out.println("No rental agreement found with contractId: " + item.getContractId());
         }
@@ -61,15 +137,35 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public void remove(String id) {
-        boolean removed = agreements.removeIf(agreement -> agreement.getContractId().equals(id));
+        int previousModCount = agreements.modCount();
+        RentalAgreement removedAgreement = agreements.remove(id);
+        boolean removed = removedAgreement != null;
         if (removed) {
+            agreementsByTenant.remove(removedAgreement);
+            agreementsByOwner.remove(removedAgreement);
+            agreementsByAddress.remove(removedAgreement);
+            agreementsByStatus.remove(removedAgreement);
+            agreementsByFee.remove(removedAgreement);
+            agreementsByDate.remove(removedAgreement);
+            removedAgreement.setChangeListener(null);
             System.out.println("Rental Agreement with contracId removed: " + id);
-            saveToFile("FurtherAsm1/src/File/rental_agreements.txt");
+            saveChange(FILE_PATH, previousModCount, () -> rentalAgreementDAO.delete(id)); // Update data into file after remove
         } else {
             System.out.println("No rental agreement found with contractId: " + id);
         }
     }
 
+    // Save one changed agreement: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(agreements.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves a RentalAgreement by its ID.
      *
@@ -78,12 +174,7 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public RentalAgreement getOne(String id) {
-        for (RentalAgreement agreement : agreements) {
-            if (agreement.getContractId().equals(id)) {
-                return agreement;
-            }
-        }
-        return null;
+        return agreements.get(id);
     }
 
 
@@ -94,7 +185,17 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public List<RentalAgreement> getAll() {
-        return new ArrayList<>(agreements);
+        return agreements.toList();
+    }
+
+    /**
+     * Streams all rental agreements without copying them.
+     *
+     * @return A stream of all rental agreements, in the order of getAll().
+     */
+    @Override
+    public Stream<RentalAgreement> stream() {
+        return agreements.stream();
     }
 
     /**
@@ -104,30 +205,124 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     @Override
     public List<String> getAllIDs() {
-        List<String> ids = new ArrayList<>();
-        for (RentalAgreement agreement : agreements) {
-            ids.add(agreement.getContractId());
-        }
-        return ids;
+        return agreements.ids();
     }
 
 
     /**
      * Retrieves all RentalAgreement objects associated with a specific tenant (customer) ID.
+     * Served from the tenant index, so the cost depends only on the tenant's own agreements.
      *
      * @param customerID The ID of the tenant to search for.
      * @return A list of RentalAgreement objects associated with the given tenant ID.
      */
     @Override
     public List<RentalAgreement> getAllByCustomerID(String customerID) {
-        List<RentalAgreement> customerAgreements = new ArrayList<>();
+        return agreementsByTenant.get(customerID);
+    }
+
+    /**
+     * Collects the IDs of every tenant of an agreement, in both the main-tenant and sub-tenant roles.
+     *
+     * @param agreement The agreement to inspect.
+     * @return The tenant IDs of the agreement.
+     */
+    // Keys of the tenant index
+    static List<String> tenantIdsOf(RentalAgreement agreement) {
+        // ID getters, so indexing does not look up the tenants of lazily loaded agreements
+        List<String> ids = new ArrayList<>();
+        if (agreement.getMainTenantId() != null) {
+            ids.add(agreement.getMainTenantId());
+        }
+        ids.addAll(agreement.getSubTenantIds());
+        return ids;
+    }
+
+    // Keys of the owner index
+    private static List<String> ownerIdsOf(RentalAgreement agreement) {
+        return agreement.getOwnerId() == null ? List.of() : List.of(agreement.getOwnerId());
+    }
+
+    // Keys of the address index
+    private static List<String> addressesOf(RentalAgreement agreement) {
+        Property property = agreement.getRentedProperty();
+        return property == null || property.getAddress() == null ? List.of() : List.of(normalizeAddress(property.getAddress()));
+    }
+
+    // Keys of the status index
+    private static List<RentalAgreement.RentalAgreementStatus> statusesOf(RentalAgreement agreement) {
+        return agreement.getStatus() == null ? List.of() : List.of(agreement.getStatus());
+    }
+
+    // Owner names are matched ignoring case
+    static String foldName(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Addresses are matched ignoring case and extra whitespace
+    private static String normalizeAddress(String address) {
+        return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Files an agreement in the tenant, owner, address, status, fee and date indexes, moving it if it was filed before.
+     *
+     * @param agreement The agreement to index.
+     */
+    private void index(RentalAgreement agreement) {
+        agreementsByTenant.add(agreement);
+        agreementsByOwner.add(agreement);
+        agreementsByAddress.add(agreement);
+        agreementsByStatus.add(agreement);
+        agreementsByFee.add(agreement);
+        agreementsByDate.add(agreement);
+        agreement.setChangeListener(changeListener);
+        if (agreement.getOwnerId() != null) {
+            ownerIdsByName.add(agreement.getOwnerId());
+        }
+    }
+
+    /**
+     * Builds all indexes again from the loaded agreements, in their current order.
+     */
+    private void rebuildIndexes() {
+        agreementsByTenant.rebuild(agreements);
+        agreementsByOwner.rebuild(agreements);
+        agreementsByAddress.rebuild(agreements);
+        agreementsByStatus.rebuild(agreements);
+        agreementsByFee.rebuild(agreements);
+        agreementsByDate.rebuild(agreements);
+        Set<String> ownerIds = new LinkedHashSet<>();
         for (RentalAgreement agreement : agreements) {
-            if (agreement.getMainTenant().getId().equals(customerID) ||
-                    agreement.getSubTenants().stream().anyMatch(tenant -> tenant.getId().equals(customerID))) {
-                customerAgreements.add(agreement);
+            agreement.setChangeListener(changeListener);
+            if (agreement.getOwnerId() != null) {
+                ownerIds.add(agreement.getOwnerId());
             }
         }
-        return customerAgreements;
+        ownerIdsByName.rebuild(ownerIds);
+    }
+
+    // Keys of the owner name index: the current name of the owner with the ID
+    private List<String> ownerNamesOf(String ownerId) {
+        Owner owner = ownerManager.getOne(ownerId);
+        return owner == null ? List.of() : List.of(foldName(owner.getFullName()));
+    }
+
+    // Changes to agreements of an earlier load, or to removed ones, leave the indexes alone
+    private boolean holds(RentalAgreement agreement) {
+        return agreements.get(agreement.getContractId()) == agreement;
+    }
+
+    /**
+     * Files an owner under its current name again, e.g. after it was renamed, so its agreements are
+     * found by the new name.
+     *
+     * @param owner The owner whose name changed.
+     */
+    public void reindexOwner(Owner owner) {
+        if (agreementsByOwner.count(owner.getId()) > 0) {
+            ownerIdsByName.add(owner.getId());
+        }
     }
 
     /**
@@ -139,6 +334,7 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
     public void saveToFile(String fileName) {
         try {
             rentalAgreementDAO.writeToFile(agreements, FILE_PATH);
+            fileTracker.record(agreements.modCount()); // The file now holds exactly the list
             System.out.println("Rental Agreement saved to " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving Rental Agreement to " + fileName);
@@ -153,7 +349,13 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      */
     public void loadFromFile(String fileName) {
         try {
-            agreements = rentalAgreementDAO.readFromFile();
+            // Nothing to parse if nothing changed since the last load or save, and only the tail if records were appended
+            if (!fileTracker.isUnchanged(agreements.modCount()) && !mergeAppended()) {
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                agreements.reset(rentalAgreementDAO.readFromFile());
+                rebuildIndexes();
+                fileTracker.record(recording, agreements.modCount());
+            }
             if (agreements.isEmpty()) {
                 System.out.println("No rental agreement data found in file: " + fileName);
             }
@@ -162,6 +364,71 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Adds the agreements appended to the file since the last load or save, when nothing else changed.
+     *
+     * @return True if the appended agreements were merged, false if the whole file has to be read.
+     */
+    // Parse only the new tail of the file, so a refresh does not grow with the agreement history
+    private boolean mergeAppended() {
+        if (!fileTracker.isAppendable(agreements.modCount())) {
+            return false;
+        }
+        FileChangeTracker.Recording recording = fileTracker.startAppendRecording();
+        List<RentalAgreement> appended = rentalAgreementDAO.readAppended(ownerManager.getAll(), tenantManager.getAll(),
+                hostManager.getAll(), commercialPropertyManager.getAll(), residentialPropertyManager.getAll());
+        if (appended == null) {
+            return false;
+        }
+        for (RentalAgreement agreement : appended) {
+            if (agreements.add(agreement)) { // The first agreement with an ID wins, as in a full load
+                index(agreement);
+            }
+        }
+        fileTracker.record(recording, agreements.modCount());
+        return true;
+    }
+
+    /**
+     * Loads RentalAgreement objects from a file, linking them to already loaded owners, tenants, hosts
+     * and properties instead of reading their files again.
+     *
+     * @param fileName              The file name to load from.
+     * @param owners                The loaded owners to resolve agreements against.
+     * @param tenants               The loaded tenants to resolve agreements against.
+     * @param hosts                 The loaded hosts to resolve agreements against.
+     * @param commercialProperties  The loaded commercial properties to resolve agreements against.
+     * @param residentialProperties The loaded residential properties to resolve agreements against.
+     */
+    public void loadFromFile(String fileName, OwnerManager owners, TenantManager tenants, HostManager hosts,
+                             CommercialPropertyManager commercialProperties, ResidentialPropertyManager residentialProperties) {
+        try {
+            FileChangeTracker.Recording recording = fileTracker.startRecording();
+            agreements.reset(rentalAgreementDAO.readFromFile(owners.getAll(), tenants.getAll(), hosts.getAll(),
+                    commercialProperties.getAll(), residentialProperties.getAll()));
+            rebuildIndexes();
+            fileTracker.record(recording, agreements.modCount());
+            if (agreements.isEmpty()) {
+                System.out.println("No rental agreement data found in file: " + fileName);
+            }
+        } catch (Exception e) {
+            System.out.println("Error while reading from file: " + fileName);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the loaded rental agreements with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The rental agreements restored from the snapshot.
+     */
+    public void restore(List<RentalAgreement> restored) {
+        agreements.reset(restored);
+        rebuildIndexes();
+    }
+
     /**
      * Validates the format of a given contract ID.
      * The contract ID must start with "RA" followed by one or more digits.
@@ -182,8 +449,6 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
      * @return The created RentalAgreement object.
      */
     public RentalAgreement inputRentalAgreementData() {
-        tenantManager.loadFromFile("FurtherAsm1/src/File/rental_agreements.txt");
-        hostManager.loadFromFile("FurtherAsm1/src/File/hosts.txt");
         RentalAgreement rentalAgreement = new RentalAgreement();
         Scanner scanner = new Scanner(System.in);
         String contractId;
@@ -197,9 +462,7 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
                 System.out.println("Error: contractId must start with 'RA' followed by integer numbers. Please re-enter.");
                 continue;
             }
-            String finalContractId = contractId;
-            boolean exists = agreements.stream().anyMatch(r -> r.getContractId().equals(finalContractId));
-            if (exists) {
+            if (agreements.containsId(contractId)) {
                 System.out.println("Error: contractId already exists. Please re-enter.");
             } else {
                 break;
@@ -355,10 +618,7 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
             }
         }
 
-        // Create an OwnerManager object and load data
-        OwnerManager ownerManager = new OwnerManager();
-        ownerManager.loadFromFile("src/File/rental_agreements.txt");
-
+        // Owners, tenants, hosts and properties come from the shared, already loaded managers
         Owner owner;
         while (true) { // Loop if the owner is not found
             // Input owner information
@@ -384,15 +644,13 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
         scanner.nextLine();
         switch (option) {
             case 1:
-                CommercialPropertyManager propertyManager = new CommercialPropertyManager();
-                propertyManager.loadFromFile("FurtherAsm1/src/File/rental_agreements.txt"); // Load properties
                 CommercialProperty property;
 
                 while (true) { // Loop until a valid property ID is found
                     System.out.print("Enter property id (must start with 'CP' followed by integer numbers): ");
                     String propertyId = scanner.nextLine();
 
-                    property = propertyManager.getOne(propertyId);
+                    property = commercialPropertyManager.getOne(propertyId);
                     if (property != null) {
                         System.out.println("Property found: " + property);
                         break; // Exit loop if property is found
@@ -402,9 +660,8 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
                 }
 
                 // Get the current date and format it to dd-MM-yyyy
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
                 Date contractDate = new Date(); // Get the current date
-                String formattedDate = dateFormat.format(contractDate); // Format the date
+                String formattedDate = DateCodec.DD_MM_YYYY.format(contractDate); // Format the date
 
                 // Create and return the RentalAgreement
                 rentalAgreement = new RentalAgreement(
@@ -425,8 +682,6 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
 
 
             case 2:
-                ResidentialPropertyManager residentialPropertyManager = new ResidentialPropertyManager();
-                residentialPropertyManager.loadFromFile("FurtherAsm1/src/File/rental_agreements.txt");
                 ResidentialProperty residentialProperty;
 
                 while (true) { // Loop until the property is found
@@ -452,7 +707,8 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
             return rentalAgreement;
 }
     /**
-     * Retrieves RentalAgreement objects by owner name.
+     * Retrieves RentalAgreement objects by owner name, ignoring case.
+     * Served from the owner name index, so the cost depends only on the matching agreements.
      *
      * @param ownerName The full name of the owner to search for.
      * @return A list of RentalAgreement objects associated with the given owner name.
@@ -460,10 +716,8 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
     // Get a list of rental agreements by owner name
     public List<RentalAgreement> getByOwnerName(String ownerName) {
         List<RentalAgreement> result = new ArrayList<>();
-        for (RentalAgreement agreement : agreements) {
-            if (agreement.getOwner().getFullName().equalsIgnoreCase(ownerName)) {
-                result.add(agreement);
-            }
+        for (String ownerId : ownerIdsByName.get(foldName(ownerName))) {
+            result.addAll(agreementsByOwner.get(ownerId));
         }
         if (result.isEmpty()) {
             System.out.println("No rental agreements found for owner name: " + ownerName);
@@ -473,45 +727,109 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
 
 
     /**
-     * Retrieves RentalAgreement objects by property address.
+     * Retrieves RentalAgreement objects by property address, ignoring case and extra whitespace.
+     * Served from the address index, so the cost depends only on the matching agreements.
      *
      * @param propertyAddress The address of the property to search for.
      * @return A list of RentalAgreement objects associated with the given property address.
      */
     // Get a list of rental agreements by property address
     public List<RentalAgreement> getByPropertyAddress(String propertyAddress) {
-        List<RentalAgreement> result = new ArrayList<>();
-        for (RentalAgreement agreement : agreements) {
-            if (agreement.getRentedProperty().getAddress().equalsIgnoreCase(propertyAddress)) {
-                result.add(agreement);
-            }
-        }
+        List<RentalAgreement> result = agreementsByAddress.get(normalizeAddress(propertyAddress));
         if (result.isEmpty()) {
             System.out.println("No rental agreements found for property address: " + propertyAddress);
         }
         return result;
     }
 
+    /**
+     * Retrieves RentalAgreement objects whose property address starts with a prefix, ignoring case
+     * and extra whitespace, e.g. every address starting with "Go Vap".
+     * Served from a range of the sorted address index, without a full scan.
+     *
+     * @param addressPrefix The start of the addresses to search for.
+     * @return A list of the matching RentalAgreement objects, ordered by address.
+     */
+    public List<RentalAgreement> getByPropertyAddressPrefix(String addressPrefix) {
+        // Normalized like the addresses, but a trailing space still ends a word: "10 " does not match "100"
+        String prefix = addressPrefix.replaceAll("\\s+", " ").stripLeading().toLowerCase(Locale.ROOT);
+        return agreementsByAddress.getBetween(prefix, prefix + Character.MAX_VALUE);
+    }
+
     /**
      * Retrieves RentalAgreement objects by their status.
+     * Served from the status buckets, so the cost depends only on the matching agreements.
      *
      * @param status The status to search for (e.g., NEW, ACTIVE, COMPLETED).
      * @return A list of RentalAgreement objects with the given status.
      */
     // Get a list of rental agreements by status
     public List<RentalAgreement> getByStatus(RentalAgreement.RentalAgreementStatus status) {
-        List<RentalAgreement> result = new ArrayList<>();
-        for (RentalAgreement agreement : agreements) {
-            if (agreement.getStatus() == status) {
-                result.add(agreement);
-            }
-        }
+        List<RentalAgreement> result = agreementsByStatus.get(status);
         if (result.isEmpty()) {
             System.out.println("No rental agreements found with status: " + status);
         }
         return result;
     }
 
+    /**
+     * Counts the rental agreements with a status, without collecting them, e.g. for a dashboard.
+     *
+     * @param status The status to count.
+     * @return The number of rental agreements with the given status.
+     */
+    public int countByStatus(RentalAgreement.RentalAgreementStatus status) {
+        return agreementsByStatus.count(status);
+    }
+
+    /**
+     * Retrieves the rental agreements whose rental fee lies in a range, both bounds included.
+     * Served from the sorted fee index, so the cost depends only on the matching agreements.
+     *
+     * @param minFee The lowest rental fee.
+     * @param maxFee The highest rental fee.
+     * @return A list of the matching rental agreements, lowest fee first; empty if minFee is above maxFee.
+     */
+    public List<RentalAgreement> getByRentalFeeBetween(double minFee, double maxFee) {
+        return agreementsByFee.getBetween(minFee, true, maxFee, true);
+    }
+
+    /**
+     * Retrieves the rental agreements with the highest rental fees, without sorting the whole list.
+     *
+     * @param count The number of rental agreements to return.
+     * @return A list of at most count rental agreements, highest fee first.
+     */
+    public List<RentalAgreement> getTopByRentalFee(int count) {
+        return agreementsByFee.last(count);
+    }
+
+    /**
+     * Starts a query over the loaded rental agreements, which combines criteria and answers them
+     * from the most selective index, e.g.
+     * {@code query().whereStatus(ACTIVE).whereRentalFeeBetween(500, 800).orderByRentalFee(true).limit(10).list()}.
+     *
+     * @return A new query without criteria.
+     */
+    public RentalAgreementQuery query() {
+        return new RentalAgreementQuery(this);
+    }
+
+    // Indexes read by RentalAgreementQuery
+    int size() { return agreements.size(); }
+
+    MultiIndex<RentalAgreement.RentalAgreementStatus, RentalAgreement> statusIndex() { return agreementsByStatus; }
+
+    MultiIndex<String, RentalAgreement> ownerIndex() { return agreementsByOwner; }
+
+    MultiIndex<String, String> ownerNameIndex() { return ownerIdsByName; }
+
+    MultiIndex<String, RentalAgreement> tenantIndex() { return agreementsByTenant; }
+
+    MultiIndex<Double, RentalAgreement> feeIndex() { return agreementsByFee; }
+
+    MultiIndex<Date, RentalAgreement> dateIndex() { return agreementsByDate; }
+
     /**
      * Sorts RentalAgreement objects by their contract IDs in ascending order.
      */
@@ -529,6 +847,7 @@ public class RentalAgreementManager implements RentalManager<RentalAgreement> {
                 return a1.getContractId().compareTo(a2.getContractId());
             }
         });
+        rebuildIndexes(); // Lookups return agreements in list order
         System.out.println("Rental Agreements list has been sorted by contractId (ascending).");
     }
 
@@ -0,0 +1,466 @@
+/**
+ * Query over the rental agreements of a {@link RentalAgreementManager}, built by chaining criteria,
+ * an order, a limit and a projection:
+ *
+ *   manager.query().whereStatus(ACTIVE).whereOwnerName("Nguyen Van A").orderByRentalFee(true).limit(5).list()
+ *
+ * The criteria are combined with AND; whereStatus accepts several statuses, combined with OR. Running
+ * the query plans it first: every criterion with an index (status, owner, tenant, fee range, date
+ * range) estimates how many agreements it matches, and the smallest becomes the driver. Only the
+ * driver's agreements are read; the other criteria are checked on them, which intersects the candidate
+ * sets without building the larger ones. A query without indexed criteria scans all agreements. When
+ * the order is by rental fee and the driver is the fee index, or there is no driver, or the limit is
+ * expected to be reached sooner than the driver could be read, the agreements are read from the fee
+ * index in order and reading stops at the limit, so nothing is sorted.
+ *
+ * {@link #explain()} describes the plan, with the estimate of every criterion, without running it.
+ * A query reads the indexes when it runs, so it may be kept and run again after the agreements change.
+ *
+ * @author <Truong Phung Tan Tai - s3974929>
+ */
+package Interface;
+
+import Classes.RentalAgreement;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RentalAgreementQuery {
+    private final RentalAgreementManager manager;
+    private final List<Criterion> criteria = new ArrayList<>();
+    private Comparator<RentalAgreement> order;
+    private String orderDescription;
+    private Boolean feeDescending; // Set when the order is by rental fee, which the fee index can return in order
+    private int limit = Integer.MAX_VALUE;
+
+    RentalAgreementQuery(RentalAgreementManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Keeps the agreements with one of the given statuses.
+     *
+     * @param statuses The accepted statuses.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereStatus(RentalAgreement.RentalAgreementStatus... statuses) {
+        Set<RentalAgreement.RentalAgreementStatus> accepted = EnumSet.noneOf(RentalAgreement.RentalAgreementStatus.class);
+        accepted.addAll(Arrays.asList(statuses));
+        criteria.add(new Criterion("status in " + accepted, "status index") {
+            @Override
+            int estimate(int limit) {
+                int count = 0;
+                for (RentalAgreement.RentalAgreementStatus status : accepted) {
+                    count += manager.statusIndex().count(status);
+                }
+                return count;
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return accepted.stream().flatMap(status -> manager.statusIndex().get(status).stream());
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return accepted.contains(agreement.getStatus());
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements of an owner.
+     *
+     * @param ownerId The ID of the owner.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereOwner(String ownerId) {
+        criteria.add(new Criterion("owner = " + ownerId, "owner index") {
+            @Override
+            int estimate(int limit) {
+                return manager.ownerIndex().count(ownerId);
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return manager.ownerIndex().get(ownerId).stream();
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return ownerId.equals(agreement.getOwnerId());
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements of the owners with a full name, ignoring case.
+     *
+     * @param ownerName The full name of the owner.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereOwnerName(String ownerName) {
+        criteria.add(new Criterion("owner name = \"" + ownerName + "\"", "owner name index") {
+            // The IDs of the owners with the name, looked up when the query runs
+            private Set<String> ownerIds() {
+                return new LinkedHashSet<>(manager.ownerNameIndex().get(RentalAgreementManager.foldName(ownerName)));
+            }
+
+            @Override
+            int estimate(int limit) {
+                int count = 0;
+                for (String ownerId : ownerIds()) {
+                    count += manager.ownerIndex().count(ownerId);
+                }
+                return count;
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return ownerIds().stream().flatMap(ownerId -> manager.ownerIndex().get(ownerId).stream());
+            }
+
+            @Override
+            Predicate<RentalAgreement> prepare() {
+                Set<String> ids = ownerIds();
+                return agreement -> ids.contains(agreement.getOwnerId());
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return prepare().test(agreement);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements of a tenant, as the main tenant or a sub-tenant.
+     *
+     * @param tenantId The ID of the tenant.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereTenant(String tenantId) {
+        criteria.add(new Criterion("tenant = " + tenantId, "tenant index") {
+            @Override
+            int estimate(int limit) {
+                return manager.tenantIndex().count(tenantId);
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return manager.tenantIndex().get(tenantId).stream();
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return RentalAgreementManager.tenantIdsOf(agreement).contains(tenantId);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements whose rental fee lies in a range, both bounds included.
+     *
+     * @param minFee The lowest rental fee.
+     * @param maxFee The highest rental fee.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereRentalFeeBetween(double minFee, double maxFee) {
+        criteria.add(new Criterion("rental fee between " + minFee + " and " + maxFee, "fee index") {
+            @Override
+            int estimate(int limit) {
+                return manager.feeIndex().countBetween(minFee, true, maxFee, true, limit);
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return manager.feeIndex().streamBetween(minFee, true, maxFee, true, descendingFee);
+            }
+
+            @Override
+            boolean countsUpTo() {
+                return true;
+            }
+
+            @Override
+            boolean readsInFeeOrder() {
+                return true;
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return agreement.getRentalFee() >= minFee && agreement.getRentalFee() <= maxFee;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements whose contract date lies in a range, both bounds included.
+     *
+     * @param from The earliest contract date, or null for no lower bound.
+     * @param to   The latest contract date, or null for no upper bound.
+     * @return This query.
+     */
+    public RentalAgreementQuery whereContractDateBetween(Date from, Date to) {
+        criteria.add(new Criterion("contract date between " + from + " and " + to, "date index") {
+            @Override
+            int estimate(int limit) {
+                return manager.dateIndex().countBetween(from, true, to, true, limit);
+            }
+
+            @Override
+            Stream<RentalAgreement> candidates(boolean descendingFee) {
+                return manager.dateIndex().streamBetween(from, true, to, true, false);
+            }
+
+            @Override
+            boolean countsUpTo() {
+                return true;
+            }
+
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                Date date = agreement.getContractDate();
+                return date != null && (from == null || !date.before(from)) && (to == null || !date.after(to));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the agreements matching any other condition. No index serves it, so it is checked on
+     * the candidates of the indexed criteria, or on every agreement if there are none.
+     *
+     * @param description Describes the condition in {@link #explain()}.
+     * @param condition   The condition to check.
+     * @return This query.
+     */
+    public RentalAgreementQuery where(String description, Predicate<RentalAgreement> condition) {
+        criteria.add(new Criterion(description, null) {
+            @Override
+            public boolean test(RentalAgreement agreement) {
+                return condition.test(agreement);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Orders the result by rental fee.
+     *
+     * @param descending Whether to start with the highest fee.
+     * @return This query.
+     */
+    public RentalAgreementQuery orderByRentalFee(boolean descending) {
+        Comparator<RentalAgreement> byFee = Comparator.comparingDouble(RentalAgreement::getRentalFee);
+        order = descending ? byFee.reversed() : byFee;
+        orderDescription = "rental fee" + (descending ? " descending" : "");
+        feeDescending = descending;
+        return this;
+    }
+
+    /**
+     * Orders the result by any comparator; the agreements are sorted after they are filtered.
+     *
+     * @param description Describes the order in {@link #explain()}.
+     * @param comparator  The order of the result.
+     * @return This query.
+     */
+    public RentalAgreementQuery orderBy(String description, Comparator<RentalAgreement> comparator) {
+        order = comparator;
+        orderDescription = description;
+        feeDescending = null;
+        return this;
+    }
+
+    /**
+     * Limits the number of agreements returned.
+     *
+     * @param limit The maximum number of agreements.
+     * @return This query.
+     */
+    public RentalAgreementQuery limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @return A new list of the matching agreements, in the requested order, or else in the order of the driving index.
+     */
+    public List<RentalAgreement> list() {
+        return run().collect(Collectors.toList());
+    }
+
+    /**
+     * Runs the query and keeps one value of each agreement, e.g. its contract ID.
+     *
+     * @param projection Extracts the value to keep.
+     * @return A new list of the values, in the order of {@link #list()}.
+     */
+    public <R> List<R> select(Function<RentalAgreement, R> projection) {
+        return run().map(projection).collect(Collectors.toList());
+    }
+
+    /**
+     * Describes how the query would run: the estimate of every criterion, the driver, the
+     * criteria checked on its candidates, and whether the result is sorted or read in order.
+     *
+     * @return The plan, one step per line.
+     */
+    public String explain() {
+        Plan plan = plan();
+        StringBuilder text = new StringBuilder("Query over " + manager.size() + " rental agreements\n");
+        for (int i = 0; i < criteria.size(); i++) {
+            Criterion criterion = criteria.get(i);
+            text.append("  ").append(criterion.description).append(": ");
+            if (criterion.indexName == null) {
+                text.append("no index");
+            } else {
+                int estimate = plan.estimates[i];
+                text.append(criterion.indexName).append(", ")
+                        .append(criterion.countsUpTo() && estimate >= plan.limits[i] ? "at least " : "").append(estimate).append(" matching");
+            }
+            text.append(criterion == plan.driver ? "  <- driver" : "").append('\n');
+        }
+        if (plan.driver == null) {
+            if (plan.feeOrderReads >= 0) {
+                text.append("Read the fee index in order, about ").append(plan.feeOrderReads)
+                        .append(" agreements until the limit");
+            } else {
+                text.append(plan.readsInFeeOrder ? "Read all agreements from the fee index in order"
+                        : "Scan all " + manager.size() + " agreements");
+            }
+        } else {
+            text.append("Read ").append(plan.driverEstimate).append(" candidates from the ").append(plan.driver.indexName)
+                    .append(plan.readsInFeeOrder ? " in fee order" : "");
+        }
+        int checked = criteria.size() - (plan.driver == null ? 0 : 1);
+        if (checked > 0) {
+            text.append(", check ").append(checked).append(checked == 1 ? " criterion" : " criteria").append(" on each");
+        }
+        text.append('\n');
+        if (order != null) {
+            text.append(plan.readsInFeeOrder ? "Already in order: " : "Sort by ").append(orderDescription).append('\n');
+        }
+        if (limit != Integer.MAX_VALUE) {
+            text.append("Stop after ").append(limit).append(limit == 1 ? " agreement" : " agreements")
+                    .append(plan.readsInFeeOrder || order == null ? "" : " (after sorting)").append('\n');
+        }
+        return text.toString();
+    }
+
+    // Read the driver's candidates, check the other criteria on them, then order and limit
+    private Stream<RentalAgreement> run() {
+        Plan plan = plan();
+        boolean descendingFee = Boolean.TRUE.equals(feeDescending);
+        Stream<RentalAgreement> candidates;
+        if (plan.driver != null) {
+            candidates = plan.driver.candidates(plan.readsInFeeOrder && descendingFee);
+        } else if (plan.readsInFeeOrder) {
+            candidates = manager.feeIndex().streamBetween(null, true, null, true, descendingFee);
+        } else {
+            candidates = manager.stream();
+        }
+        for (Criterion criterion : criteria) {
+            if (criterion != plan.driver) {
+                candidates = candidates.filter(criterion.prepare());
+            }
+        }
+        if (order != null && !plan.readsInFeeOrder) {
+            candidates = candidates.sorted(order);
+        }
+        return candidates.limit(limit);
+    }
+
+    // Pick the indexed criterion with the fewest matches, counting ranges only up to the best so far
+    private Plan plan() {
+        Plan plan = new Plan();
+        plan.estimates = new int[criteria.size()];
+        plan.limits = new int[criteria.size()];
+        plan.driverEstimate = manager.size();
+        for (int i = 0; i < criteria.size(); i++) {
+            Criterion criterion = criteria.get(i);
+            if (criterion.indexName == null) {
+                continue;
+            }
+            plan.limits[i] = plan.driver == null ? plan.driverEstimate + 1 : plan.driverEstimate;
+            plan.estimates[i] = criterion.estimate(plan.limits[i]);
+            if (plan.driver == null || plan.estimates[i] < plan.driverEstimate) {
+                plan.driver = criterion;
+                plan.driverEstimate = plan.estimates[i];
+            }
+        }
+        plan.readsInFeeOrder = feeDescending != null && (plan.driver == null || plan.driver.readsInFeeOrder());
+        if (feeDescending != null && !plan.readsInFeeOrder && limit != Integer.MAX_VALUE) {
+            // Reading the fee index in order finds about limit * size / driverEstimate agreements before the limit is
+            // reached, if the criteria match as often at every fee; that beats reading and sorting a large driver
+            long feeOrderReads = (long) limit * manager.size() / Math.max(1, plan.driverEstimate);
+            if (feeOrderReads < plan.driverEstimate) {
+                plan.driver = null;
+                plan.readsInFeeOrder = true;
+                plan.feeOrderReads = feeOrderReads;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * The chosen driver and the estimate of every indexed criterion.
+     */
+    private static final class Plan {
+        private Criterion driver; // Null for a scan
+        private int driverEstimate;
+        private int[] estimates;
+        private int[] limits; // The count each estimate stopped at
+        private boolean readsInFeeOrder;
+        private long feeOrderReads = -1; // Estimated reads when the fee order was chosen over a large driver
+    }
+
+    /**
+     * One condition of a query, with the index that can list its agreements, if any.
+     */
+    private abstract static class Criterion implements Predicate<RentalAgreement> {
+        private final String description;
+        private final String indexName; // Null if no index serves the criterion
+
+        Criterion(String description, String indexName) {
+            this.description = description;
+            this.indexName = indexName;
+        }
+
+        // The number of matching agreements, or limit if there are at least that many and countsUpTo()
+        int estimate(int limit) {
+            return limit;
+        }
+
+        // Whether estimate() stops counting at its limit, like a range; other estimates are exact
+        boolean countsUpTo() {
+            return false;
+        }
+
+        // The matching agreements, from the index
+        Stream<RentalAgreement> candidates(boolean descendingFee) {
+            throw new UnsupportedOperationException("No index serves: " + description);
+        }
+
+        // Whether candidates() returns the agreements in fee order
+        boolean readsInFeeOrder() {
+            return false;
+        }
+
+        // The check to run on every candidate, with anything it looks up done once
+        Predicate<RentalAgreement> prepare() {
+            return this;
+        }
+    }
+}
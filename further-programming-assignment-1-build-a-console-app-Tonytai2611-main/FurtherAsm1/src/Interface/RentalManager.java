@@ -5,6 +5,7 @@
 package Interface;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface RentalManager<T> {
     /**
@@ -38,6 +39,13 @@ public interface RentalManager<T> {
      */
      List<T> getAll();
 
+    /**
+     * Streams all items one at a time, without copying them into a new list.
+     * The items must not be added, updated or removed while the stream is consumed.
+     * @return a stream of all items, in the same order as getAll().
+     */
+     Stream<T> stream();
+
     /**
      * Retrieves all IDs of the items in the management system.
      * @return a list of IDs for all items.
@@ -9,15 +9,40 @@ package Interface;
 import Classes.ResidentialProperty;
 import Classes.Property;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 import DAO.ResidentialPropertyDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 
 public class ResidentialPropertyManager  implements RentalManager<ResidentialProperty>{
-    private List<ResidentialProperty> properties = new ArrayList<>();
+    private IndexedRepository<ResidentialProperty> properties = new IndexedRepository<>(ResidentialProperty::getPropertyId);
+    // Pricing -> properties, of all properties and of the AVAILABLE ones, for price ranges and the cheapest listings
+    private MultiIndex<Double, ResidentialProperty> propertiesByPricing = new MultiIndex<>(ResidentialProperty::getPropertyId,
+            property -> List.of(property.getPricing()), new TreeMap<>());
+    private MultiIndex<Double, ResidentialProperty> availableByPricing = new MultiIndex<>(ResidentialProperty::getPropertyId,
+            property -> property.getStatus() == Property.PropertyStatus.AVAILABLE ? List.of(property.getPricing()) : List.of(),
+            new TreeMap<>());
+    // Bitmaps of the searchable attributes, sharing one slot per property so criteria combine with AND and OR
+    private BitmapIndex<ResidentialProperty> attributeIndex = new BitmapIndex<>(ResidentialProperty::getPropertyId);
+    private BitmapIndex<ResidentialProperty>.Attribute<Property.PropertyStatus> statusBitmaps =
+            attributeIndex.attribute(Property::getStatus, new EnumMap<>(Property.PropertyStatus.class));
+    private BitmapIndex<ResidentialProperty>.Attribute<Boolean> gardenBitmaps =
+            attributeIndex.attribute(ResidentialProperty::isGardenAvailability, new HashMap<>());
+    private BitmapIndex<ResidentialProperty>.Attribute<Boolean> petBitmaps =
+            attributeIndex.attribute(ResidentialProperty::isPetFriendliness, new HashMap<>());
+    private BitmapIndex<ResidentialProperty>.Attribute<Integer> bedroomBitmaps =
+            attributeIndex.attribute(ResidentialProperty::getNumBedrooms, new TreeMap<>());
     private ResidentialPropertyDAO propertyDAO = new ResidentialPropertyDAO(); // Using DAO to write and read from file
     private static String FILE_PATH ="FurtherAsm1/src/File/residential_properties.txt";
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FILE_PATH); // Skips reloading while the file and the list are unchanged
 
     /**
      * Adds a new ResidentialProperty to the list.
@@ -28,11 +53,11 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public boolean add(ResidentialProperty item) {
-        if (properties.stream().anyMatch(p -> p.getPropertyId().equals(item.getPropertyId()))) {
+        if (!properties.add(item)) {
             System.out.println("Error: Property ID already exists: " + item.getPropertyId());
             return false;
         }
-        properties.add(item);
+        index(item);
         System.out.println("Residential Property successfully added:\n " + item);
         return true;
     }
@@ -44,13 +69,12 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public void update(ResidentialProperty item) {
-        for(int i = 0; i<properties.size(); i++){
-            if(properties.get(i).getPropertyId().equals(item.getPropertyId())){
-                properties.set(i, item);
-                System.out.println("Residential Property successfully update!");
-                saveToFile("FurtherAsm1/src/File/residential_properties.txt");
-                return;
-            }
+        int previousModCount = properties.modCount();
+        if (properties.replace(item) != null) {
+            index(item); // Properties are updated by replacing them, so the new pricing and status are filed here
+            System.out.println("Residential Property successfully update!");
+            saveChange("FurtherAsm1/src/File/residential_properties.txt", previousModCount, () -> propertyDAO.updateProperty(item));
+            return;
         }
         System.out.println("No property found with ID: " + item.getPropertyId());
     }
@@ -62,15 +86,31 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public void remove(String id) {
-        boolean removed = properties.removeIf(property -> property.getPropertyId().equals(id));
+        int previousModCount = properties.modCount();
+        ResidentialProperty removedProperty = properties.remove(id);
+        boolean removed = removedProperty != null;
         if (removed) {
+            propertiesByPricing.remove(removedProperty);
+            availableByPricing.remove(removedProperty);
+            attributeIndex.remove(removedProperty);
             System.out.println("Residential Property with ID removed: " + id);
-            saveToFile("FurtherAsm1/src/File/residential_properties.txt");
+            saveChange("FurtherAsm1/src/File/residential_properties.txt", previousModCount, () -> propertyDAO.deleteProperty(id));
         } else {
             System.out.println("No property found with ID: " + id);
         }
     }
 
+    // Save one changed property: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(properties.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves a ResidentialProperty by its ID.
      *
@@ -79,10 +119,7 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public ResidentialProperty getOne(String id) {
-        return properties.stream()
-                .filter(property -> property.getPropertyId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return properties.get(id);
     }
 
     /**
@@ -92,7 +129,17 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public List<ResidentialProperty> getAll() {
-        return new ArrayList<>(properties);
+        return properties.toList();
+    }
+
+    /**
+     * Streams all ResidentialProperty objects without copying them.
+     *
+     * @return A stream of all ResidentialProperty objects, in the order of getAll().
+     */
+    @Override
+    public Stream<ResidentialProperty> stream() {
+        return properties.stream();
     }
 
     /**
@@ -102,11 +149,7 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
      */
     @Override
     public List<String> getAllIDs(){
-        List<String> ids = new ArrayList<>();
-        for(ResidentialProperty property : properties){
-            ids.add(property.getPropertyId());
-        }
-        return ids;
+        return properties.ids();
     }
 
     /**
@@ -131,7 +174,8 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
     @Override
     public void saveToFile(String fileName) {
         try {
-            propertyDAO.writeToFile(properties,FILE_PATH);
+            propertyDAO.writeToFile(properties, FILE_PATH);
+            fileTracker.record(properties.modCount()); // The file now holds exactly the list
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -147,7 +191,12 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
     @Override
     public void loadFromFile(String fileName) {
         try {
-            properties = propertyDAO.readFromFile();
+            if (!fileTracker.isUnchanged(properties.modCount())) { // Nothing to parse if nothing changed since the last load or save
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                properties.reset(propertyDAO.readFromFile());
+                rebuildIndexes();
+                fileTracker.record(recording, properties.modCount());
+            }
             if (properties.isEmpty()) {
                 System.out.println("No data found in file: " + fileName);
             }
@@ -157,6 +206,17 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
         }
     }
 
+    /**
+     * Replaces the loaded residential properties with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The residential properties restored from the snapshot.
+     */
+    public void restore(List<ResidentialProperty> restored) {
+        properties.reset(restored);
+        rebuildIndexes();
+    }
+
     /**
      * Prompts the user to input data for a new ResidentialProperty object.
      *
@@ -179,9 +239,7 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
             }
 
             // Check if the ID already exists in the list
-            String finalPropertyId = propertyId;
-            boolean exists = properties.stream()
-                    .anyMatch(property -> property.getPropertyId().equals(finalPropertyId));
+            boolean exists = properties.containsId(propertyId);
 
             if (exists) {
                 System.out.println("Error: Property ID already exists. Please re-enter.");
@@ -217,6 +275,77 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
         return property;
     }
 
+    /**
+     * Files a property in the pricing and attribute indexes, moving it if it was filed before.
+     *
+     * @param property The property to index.
+     */
+    private void index(ResidentialProperty property) {
+        propertiesByPricing.add(property);
+        availableByPricing.add(property);
+        attributeIndex.add(property);
+    }
+
+    /**
+     * Builds the pricing and attribute indexes again from the loaded properties, in their current order.
+     */
+    private void rebuildIndexes() {
+        propertiesByPricing.rebuild(properties);
+        availableByPricing.rebuild(properties);
+        attributeIndex.rebuild(properties);
+    }
+
+    /**
+     * Retrieves the residential properties whose pricing lies in a range, both bounds included.
+     * Served from the sorted pricing index, so the cost depends only on the matching properties.
+     *
+     * @param minPricing The lowest pricing.
+     * @param maxPricing The highest pricing.
+     * @return A list of the matching properties, cheapest first; empty if minPricing is above maxPricing.
+     */
+    public List<ResidentialProperty> getByPricingBetween(double minPricing, double maxPricing) {
+        return propertiesByPricing.getBetween(minPricing, true, maxPricing, true);
+    }
+
+    /**
+     * Retrieves the cheapest AVAILABLE residential properties, without looking at the rented ones.
+     *
+     * @param count The number of properties to return.
+     * @return A list of at most count available properties, cheapest first.
+     */
+    public List<ResidentialProperty> getCheapestAvailable(int count) {
+        return availableByPricing.first(count);
+    }
+
+    /**
+     * Searches residential properties by their attributes, e.g. AVAILABLE, pet-friendly, with a
+     * garden and at least 3 bedrooms. Each criterion is a bitmap of the matching properties and the
+     * criteria are combined with AND, so no property is inspected one by one.
+     *
+     * @param status         The required status, or null for any status.
+     * @param petFriendly    Whether pets must be allowed (true) or not allowed (false), or null for either.
+     * @param hasGarden      Whether a garden is required (true) or must be absent (false), or null for either.
+     * @param minNumBedrooms The lowest number of bedrooms, or null for any number.
+     * @return A list of the matching properties, in list order.
+     */
+    public List<ResidentialProperty> search(Property.PropertyStatus status, Boolean petFriendly, Boolean hasGarden,
+                                            Integer minNumBedrooms) {
+        BitSet matches = attributeIndex.all();
+        if (status != null) {
+            matches.and(statusBitmaps.matching(status));
+        }
+        if (petFriendly != null) {
+            matches.and(petBitmaps.matching(petFriendly));
+        }
+        if (hasGarden != null) {
+            matches.and(gardenBitmaps.matching(hasGarden));
+        }
+        if (minNumBedrooms != null) {
+            matches.and(bedroomBitmaps.matchingAtLeast(minNumBedrooms));
+        }
+        return attributeIndex.itemsOf(matches);
+    }
+
     /**
      * Sorts the ResidentialProperty objects by their property IDs in ascending order.
      */
@@ -235,6 +364,7 @@ public class ResidentialPropertyManager  implements RentalManager<ResidentialPro
                 return p1.getPropertyId().compareTo(p2.getPropertyId());
             }
         });
+        rebuildIndexes(); // Lookups return properties in list order
         System.out.println("Residential Properties list has been sorted by propertyId (ascending).");
     }
 
@@ -11,16 +11,21 @@ package Interface;
 
 import Classes.Tenant;
 import DAO.TenantDAO;
+import DAO.FileChangeTracker;
+import DAO.StorageOptions;
 
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 public class TenantManager implements RentalManager<Tenant> {
-    private List<Tenant> tenants = new ArrayList<>();
+    private IndexedRepository<Tenant> tenants = new IndexedRepository<>(Tenant::getId);
     private TenantDAO tenantDAO = new TenantDAO();
     private static String FilePath = "FurtherAsm1/src/File/tenants.txt";
+    private final FileChangeTracker fileTracker = new FileChangeTracker(FilePath); // Skips reloading while the file and the list are unchanged
 
     /**
      * Adds a new Tenant to the list if it doesn't already exist.
@@ -30,13 +35,11 @@ public class TenantManager implements RentalManager<Tenant> {
      */
     @Override
     public boolean add(Tenant item) {
-        // Check if tenantId already exists
-        Tenant tempTenant = new Tenant(item.getFullName(),item.getId(),item.getDateOfBirth(), item.getContactInfo(), item.getRentalAgreements(), item.getPaymentRecords());
-        if (tenants.contains(tempTenant)) {
+        // Check if tenantId already exists (O(1) through the ID index)
+        if (!tenants.add(item)) {
             System.out.println("Tenant with tenantId: " + item.getId());
             return false;
         }
-        tenants.add(item);
         System.out.println("Tenant successfully added: " + item);
         return true;
     }
@@ -48,17 +51,12 @@ public class TenantManager implements RentalManager<Tenant> {
      */
     @Override
     public void update(Tenant item) {
-        boolean updated = false;
-        for (int i = 0; i < tenants.size(); i++) {
-            if (tenants.get(i).getId().equals(item.getId())) {
-                tenants.set(i, item);
-                updated = true;
-                break;
-            }
-        }
+        int previousModCount = tenants.modCount();
+        boolean updated = tenants.replace(item) != null;
 
         if (updated) {
             System.out.println("Tenant updated successfully!");
+            saveChange("FurtherAsm1/src/File/tenants.txt", previousModCount, () -> tenantDAO.update(item));
         } else {
             System.out.println("No tenant found with tenantId: " + item.getId());
         }
@@ -71,15 +69,27 @@ public class TenantManager implements RentalManager<Tenant> {
      */
     @Override
     public void remove(String id) {
-        boolean removed = tenants.removeIf(tenant -> tenant.getId().equals(id));
+        int previousModCount = tenants.modCount();
+        boolean removed = tenants.remove(id) != null;
         if (removed) {
             System.out.println("Tenant with tenantId removed: " + id);
-            saveToFile("FurtherAsm1/src/File/tenants.txt"); // Update data into file after remove
+            saveChange("FurtherAsm1/src/File/tenants.txt", previousModCount, () -> tenantDAO.delete(id)); // Update data into file after remove
         } else {
             System.out.println("No tenant found with tenantId: " + id);
         }
     }
 
+    // Save one changed tenant: appended to the journal when journaling, otherwise by rewriting the file
+    // The change is only journaled while the file still holds the list as it was before the change
+    private void saveChange(String fileName, int previousModCount, BooleanSupplier journalWrite) {
+        boolean inSync = StorageOptions.JOURNAL_ENABLED && fileTracker.isUnchanged(previousModCount);
+        if (inSync && journalWrite.getAsBoolean()) {
+            fileTracker.recordJournal(tenants.modCount()); // The file and its journal hold exactly the list again
+        } else {
+            saveToFile(fileName);
+        }
+    }
+
     /**
      * Retrieves a Tenant object based on their ID.
      *
@@ -88,12 +98,7 @@ public class TenantManager implements RentalManager<Tenant> {
      */
     @Override
     public Tenant getOne(String id) {
-        for (Tenant tenant : tenants) {
-            if (tenant.getId().equals(id)) {
-                return tenant;
-            }
-        }
-        return null;
+        return tenants.get(id);
     }
 
     /**
@@ -102,7 +107,17 @@ public class TenantManager implements RentalManager<Tenant> {
      * @return A list containing all tenants.
      */
     @Override
-    public List<Tenant> getAll() { return new ArrayList<>(tenants); }
+    public List<Tenant> getAll() { return tenants.toList(); }
+
+    /**
+     * Streams all tenants without copying them.
+     *
+     * @return A stream of all tenants, in the order of getAll().
+     */
+    @Override
+    public Stream<Tenant> stream() {
+        return tenants.stream();
+    }
 
     /**
      * Retrieves a list of all tenant IDs.
@@ -111,11 +126,7 @@ public class TenantManager implements RentalManager<Tenant> {
      */
     @Override
     public List<String> getAllIDs() {
-        List<String> ids = new ArrayList<>();
-        for (Tenant tenant : tenants) {
-            ids.add(tenant.getId());
-        }
-        return ids;
+        return tenants.ids();
     }
 
     /**
@@ -137,7 +148,8 @@ public class TenantManager implements RentalManager<Tenant> {
     @Override
     public void saveToFile(String fileName) {
         try {
-            tenantDAO.writeToFile(tenants,FilePath);
+            tenantDAO.writeToFile(tenants, FilePath);
+            fileTracker.record(tenants.modCount()); // The file now holds exactly the list
             System.out.println("Successfully saved to file: " + fileName);
         } catch (Exception e) {
             System.out.println("Error while saving to file: " + fileName);
@@ -154,7 +166,11 @@ public class TenantManager implements RentalManager<Tenant> {
     @Override
     public void loadFromFile(String fileName) {
         try {
-            tenants = tenantDAO.readFromFile();
+            if (!fileTracker.isUnchanged(tenants.modCount())) { // Nothing to parse if nothing changed since the last load or save
+                FileChangeTracker.Recording recording = fileTracker.startRecording();
+                tenants.reset(tenantDAO.readFromFile());
+                fileTracker.record(recording, tenants.modCount());
+            }
             if (tenants.isEmpty()) {
                 System.out.println("No tenant data found in file: " + fileName);
             }
@@ -164,6 +180,16 @@ public class TenantManager implements RentalManager<Tenant> {
         }
     }
 
+    /**
+     * Replaces the loaded tenants with ones restored from the startup snapshot.
+     * The data file is not read or written.
+     *
+     * @param restored The tenants restored from the snapshot.
+     */
+    public void restore(List<Tenant> restored) {
+        tenants.reset(restored);
+    }
+
     /**
      * Validates a tenant ID to ensure it follows the required format.
      * The ID must start with "T" followed by natural numbers.
@@ -0,0 +1,36 @@
+/**
+ * @author Truong Phung Tan Tai - s3974929
+ * One-off tool converting rental_agreements.txt from format 1 (a full property copy embedded in
+ * every row) to format 2 (a `CommercialProperty;CP1` reference resolved against the property files).
+ * Run it from the project directory with the data files in FurtherAsm1/src/File:
+ *
+ *     java -cp out Main.AgreementFormatMigration
+ *
+ * The application reads both formats, so running the tool is optional; any save rewrites the file
+ * in format 2 as well.
+ */
+
+package Main;
+
+import DAO.RentalAgreementDAO;
+
+public class AgreementFormatMigration {
+
+    public static void main(String[] args) {
+        try {
+            int[] result = new RentalAgreementDAO().migrateToPropertyReferences();
+            if (result == null) {
+                System.out.println("rental_agreements.txt is already in format 2; nothing to migrate.");
+                return;
+            }
+            System.out.println("Migrated " + result[0] + " rental agreements to property references.");
+            if (result[1] > 0) {
+                System.out.println(result[1] + " agreements keep an embedded property that is not in the property files.");
+            }
+            System.out.println("The previous file was saved as rental_agreements.txt.v1.bak");
+        } catch (Exception e) {
+            System.out.println("Error while migrating rental agreements: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -20,25 +20,22 @@ import java.util.Scanner;
 
 
 public class Main {
-    private static final RentalAgreementManager rentalAgreementManager = new RentalAgreementManager();
-    private static final OwnerManager ownerManager = new OwnerManager();
-    private static final HostManager hostManager = new HostManager();
-    private static final TenantManager tenantManager = new TenantManager();
-    private static final CommercialPropertyManager commercialPropertyManager = new CommercialPropertyManager();
-    private static final ResidentialPropertyManager residentialPropertyManager = new ResidentialPropertyManager();
-    private static final PaymentManager paymentManager = new PaymentManager();
+    // One shared manager per entity type, see EntityRegistry
+    private static final EntityRegistry registry = EntityRegistry.getInstance();
+    private static final RentalAgreementManager rentalAgreementManager = registry.getRentalAgreementManager();
+    private static final OwnerManager ownerManager = registry.getOwnerManager();
+    private static final HostManager hostManager = registry.getHostManager();
+    private static final TenantManager tenantManager = registry.getTenantManager();
+    private static final CommercialPropertyManager commercialPropertyManager = registry.getCommercialPropertyManager();
+    private static final ResidentialPropertyManager residentialPropertyManager = registry.getResidentialPropertyManager();
+    private static final PaymentManager paymentManager = registry.getPaymentManager();
 
     private static final Scanner scanner = new Scanner(System.in);
 
     public static void main(String[] args) {
-        // Load data from file
-        paymentManager.loadFromFile("FurtherAsm1/src/File/payments.txt");
-        commercialPropertyManager.loadFromFile("FurtherAsm1/src/File/commercial_properties.txt");
-        hostManager.loadFromFile("FurtherAsm1/src/File/hosts.txt");
-        residentialPropertyManager.loadFromFile("FurtherAsm1/src/File/residential_properties.txt");
-        ownerManager.loadFromFile("FurtherAsm1/src/File/owners.txt");
-        tenantManager.loadFromFile("FurtherAsm1/src/File/tenants.txt");
-        rentalAgreementManager.loadFromFile("FurtherAsm1/src/File/rental_agreements.txt");
+        // Load data from the snapshot, or from file with independent files in parallel
+        StartupLoader startupLoader = new StartupLoader(registry);
+        startupLoader.loadAll();
 
         int choice = 0;
         do {
@@ -55,7 +52,10 @@ public class Main {
                     case 5 -> paymentMenu();
                     case 6 -> commercialPropertyMenu();
                     case 7 -> residentialPropertyMenu();
-                    case 8 -> System.out.println("Thank you for using the program!");
+                    case 8 -> {
+                        System.out.println("Thank you for using the program!");
+                        startupLoader.saveSnapshot(); // Clean exit: the next start can skip parsing the files
+                    }
                     default -> System.out.println("Invalid choice. Please choose again.");
                 }
             } catch (NumberFormatException e) {
@@ -277,7 +277,6 @@ public class Main {
                     tenantUpdate.setRentalAgreements(listRentalAgreements);
                     // Save the updated tenant
                     tenantManager.update(tenantUpdate);
-                    tenantManager.saveToFile("src/File/rental_agreements.txt"); // Save to file
                 } else {
                     // If the tenant is not found, display an error message
                     System.out.println("Tenant not found for update.");
@@ -534,7 +533,6 @@ public class Main {
 
         if (saveChoice.equals("y")) {
             rentalAgreementManager.update(existingAgreement); // Update in the list
-            rentalAgreementManager.saveToFile("FurtherAsm1/src/File/rental_agreements.txt"); // Save to file
             rentalAgreementManager.loadFromFile("FurtherAsm1/src/File/rental_agreements.txt");
             System.out.println("Rental agreement updated and saved successfully!");
         } else {
@@ -553,10 +551,10 @@ public class Main {
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
             System.out.println("|      Id       |      Full Name     |     Date      |      Contract Infor     |         RentalAgreements          |           PaymentRecords          | ");
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            for (Tenant tenant : tenantManager.getAll()) {
+            tenantManager.stream().forEach(tenant -> {
                 System.out.println(tenant.toString());
                 System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            }
+            });
 
             System.out.println("\nChoose an action:");
             System.out.println("1. Sort tenants by ID and display again");
@@ -665,7 +663,7 @@ public class Main {
         }
 
         System.out.print("Current date of birth (dd-MM-yyyy): " +
-                new SimpleDateFormat("dd-MM-yyyy").format(existingTenant.getDateOfBirth()) + " -> ");
+                DateCodec.DD_MM_YYYY.format(existingTenant.getDateOfBirth()) + " -> ");
         String newDateOfBirthStr;
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
         dateFormat.setLenient(false); // Enable strict date format validation
@@ -700,7 +698,6 @@ public class Main {
 
         if ("y".equals(confirmation)) {
             tenantManager.update(existingTenant);
-            tenantManager.saveToFile("FurtherAsm1/src/File/tenants.txt");
             System.out.println("Tenant updated successfully!");
         } else if ("n".equals(confirmation)) {
             System.out.println("Update action was canceled.");
@@ -822,10 +819,10 @@ public class Main {
             System.out.println("|______________________________________________________________________________________________|");
             System.out.println("|  Id           |  Full name    |   Amount      |     Date      |     Payment Method           |");
             System.out.println("|______________________________________________________________________________________________|");
-            for (Payment payment : paymentManager.getAll()) {
+            paymentManager.stream().forEach(payment -> {
                 System.out.println(payment.toString());
                 System.out.println("|______________________________________________________________________________________________|");
-            }
+            });
 
             // Action menu
             System.out.println("\nChoose an action:");
@@ -869,10 +866,10 @@ public class Main {
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
             System.out.println("|      Id       |      Full Name     |     Date      |      Contract Infor     |        ManagedProperties          |         CooperatingOwners         | ");
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            for (Host host : hostManager.getAll()) {
+            hostManager.stream().forEach(host -> {
                 System.out.println(host.toString());
                 System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            }
+            });
 
 
             // Action menu
@@ -965,7 +962,7 @@ public class Main {
 
         // Enter new date of birth
         System.out.print("Current date of birth (dd-MM-yyyy): " +
-                new SimpleDateFormat("dd-MM-yyyy").format(existingHost.getDateOfBirth()) + " -> ");
+                DateCodec.DD_MM_YYYY.format(existingHost.getDateOfBirth()) + " -> ");
         String newDateOfBirthStr;
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
         dateFormat.setLenient(false); // Enable strict date format validation
@@ -999,7 +996,6 @@ public class Main {
         if (confirmation.equalsIgnoreCase("y")) {
             // Perform update
             hostManager.update(existingHost);
-            hostManager.saveToFile("FurtherAsm1/src/File/hosts.txt");
             System.out.println("Host updated successfully!");
         } else {
             System.out.println("Host update canceled.");
@@ -1016,10 +1012,10 @@ public class Main {
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
             System.out.println("|      Id       |      Full Name     |     Date      |      Contract Infor     |         RentalAgreements          |           PaymentRecords          | ");
             System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            for (Owner owner : ownerManager.getAll()) {
+            ownerManager.stream().forEach(owner -> {
                 System.out.println(owner.toString());
                 System.out.println("|______________________________________________________________________________________________________________________________________________________|");
-            }
+            });
 
             // Action menu
             System.out.println("\nChoose an action:");
@@ -1079,7 +1075,6 @@ public class Main {
         String confirmation = scanner.nextLine();
         if (confirmation.equalsIgnoreCase("y")) {
             ownerManager.remove(ownerId);
-            ownerManager.saveToFile("FurtherAsm1/src/File/owners.txt");
             System.out.println("Owner removed successfully!");
         } else {
             System.out.println("Owner delete canceled.");
@@ -1110,7 +1105,7 @@ public class Main {
         }
         // Enter new date of birth
         System.out.print("Current date of birth (dd-MM-yyyy): " +
-                new SimpleDateFormat("dd-MM-yyyy").format(existingOwner.getDateOfBirth()) + " -> ");
+                DateCodec.DD_MM_YYYY.format(existingOwner.getDateOfBirth()) + " -> ");
         String newDateOfBirthStr;
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
         dateFormat.setLenient(false); // Enable strict date format validation
@@ -1145,7 +1140,7 @@ public class Main {
         if (confirmation.equalsIgnoreCase("y")) {
             // Perform the update
             ownerManager.update(existingOwner);
-            ownerManager.saveToFile("FurtherAsm1/src/File/owners.txt");
+            rentalAgreementManager.reindexOwner(existingOwner); // Its agreements are found by the new name
             System.out.println("Owner updated successfully!");
         } else {
             System.out.println("Owner update canceled.");
@@ -1380,10 +1375,10 @@ public class Main {
         while (true) {
             // Display current list of residential properties
             System.out.println("\nCurrent list of residential properties:");
-            for (ResidentialProperty property : residentialPropertyManager.getAll()) {
+            residentialPropertyManager.stream().forEach(property -> {
                 System.out.println(property.toString());
                 System.out.println("---------------------------------------------------------");
-            }
+            });
 
             // Menu options
             System.out.println("\nChoose an action:");
@@ -1422,10 +1417,10 @@ public class Main {
         while (true) {
             // Display current list of commercial properties
             System.out.println("\nCurrent list of commercial properties:");
-            for (CommercialProperty property : commercialPropertyManager.getAll()) {
+            commercialPropertyManager.stream().forEach(property -> {
                 System.out.println(property.toString());
                 System.out.println("---------------------------------------------------------");
-            }
+            });
 
             // Menu options
             System.out.println("\nChoose an action:");
@@ -1476,6 +1471,12 @@ public class Main {
         System.out.println("\nEnter the property address: ");
         String propertyAddressStr = scanner.nextLine();
         List<RentalAgreement> listR = rentalAgreementManager.getByPropertyAddress(propertyAddressStr);
+        if (listR.isEmpty()) {
+            listR = rentalAgreementManager.getByPropertyAddressPrefix(propertyAddressStr); // Fall back to a partial address
+            if (!listR.isEmpty()) {
+                System.out.println("Rental agreements with an address starting with: " + propertyAddressStr);
+            }
+        }
         if (listR.isEmpty()) {
             System.out.println("No rental agreements found for the property address: " + propertyAddressStr);
         } else {
@@ -1518,10 +1519,10 @@ public class Main {
         while (true) {
             // Display current list of rental agreements
             System.out.println("\nCurrent list of rental agreements:");
-            for (RentalAgreement agreement : rentalAgreementManager.getAll()) {
+            rentalAgreementManager.stream().forEach(agreement -> {
                 System.out.println(agreement.toString());
                 System.out.println("---------------------------------------------------------");
-            }
+            });
 
             // Menu options
             System.out.println("\nChoose an action:");
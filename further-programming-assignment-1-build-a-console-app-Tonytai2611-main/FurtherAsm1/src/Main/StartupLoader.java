@@ -0,0 +1,216 @@
+/**
+ * @author Truong Phung Tan Tai - s3974929
+ * Loads every entity file at startup, following the dependencies between them.
+ * Tenants, owners, hosts and both property types do not reference anything and are loaded
+ * concurrently; payments start as soon as tenants are ready, and rental agreements as soon as
+ * owners, tenants, hosts and properties are ready. Both are linked to the instances already loaded instead
+ * of reading those files again. The time spent on each file and in total is reported at the end.
+ * A missing file is loaded on the calling thread, one at a time, because its DAO asks
+ * whether to create it and those questions cannot share System.in concurrently.
+ * When a binary snapshot of the data files written on the last clean exit is still current, it replaces all of this.
+ */
+
+package Main;
+
+import DAO.FileEntityLookup;
+import DAO.PaymentDAO;
+import DAO.RentalAgreementDAO;
+import DAO.SnapshotStore;
+import DAO.StorageOptions;
+import Interface.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+public class StartupLoader {
+    private static final String DIRECTORY = "FurtherAsm1/src/File/";
+    private static final int INDEPENDENT_FILES = 5;
+    private static final String SNAPSHOT_FILE = "state.snapshot";
+    private static final List<String> DATA_FILES = List.of("tenants.txt", "owners.txt", "hosts.txt",
+            "commercial_properties.txt", "residential_properties.txt", "payments.txt", "rental_agreements.txt");
+
+    private final TenantManager tenantManager;
+    private final OwnerManager ownerManager;
+    private final HostManager hostManager;
+    private final CommercialPropertyManager commercialPropertyManager;
+    private final ResidentialPropertyManager residentialPropertyManager;
+    private final PaymentManager paymentManager;
+    private final RentalAgreementManager rentalAgreementManager;
+    private final EntityRegistry registry;
+    private final List<FileLoad> loads = new ArrayList<>();
+    private final SnapshotStore snapshotStore = new SnapshotStore(DIRECTORY + SNAPSHOT_FILE, dataPaths());
+
+    /**
+     * Constructs a loader filling the managers of a registry.
+     *
+     * @param registry The registry whose managers are loaded.
+     */
+    public StartupLoader(EntityRegistry registry) {
+        this.registry = registry;
+        this.tenantManager = registry.getTenantManager();
+        this.ownerManager = registry.getOwnerManager();
+        this.hostManager = registry.getHostManager();
+        this.commercialPropertyManager = registry.getCommercialPropertyManager();
+        this.residentialPropertyManager = registry.getResidentialPropertyManager();
+        this.paymentManager = registry.getPaymentManager();
+        this.rentalAgreementManager = registry.getRentalAgreementManager();
+    }
+
+    /**
+     * Loads all entity files and prints the load time of each file and of the whole startup.
+     * Returns once every manager is filled.
+     */
+    public void loadAll() {
+        long start = System.nanoTime();
+        if (StorageOptions.SNAPSHOT_ENABLED && loadSnapshot(start)) {
+            registry.markLoaded();
+            return;
+        }
+        // One worker per independent file: the loads mostly wait on disk, so they should not queue
+        ForkJoinPool pool = new ForkJoinPool(INDEPENDENT_FILES);
+        try {
+            CompletableFuture<Void> tenants = load(pool, "tenants.txt",
+                    path -> tenantManager.loadFromFile(path), () -> tenantManager.getAll().size());
+            CompletableFuture<Void> owners = load(pool, "owners.txt",
+                    path -> ownerManager.loadFromFile(path), () -> ownerManager.getAll().size());
+            CompletableFuture<Void> hosts = load(pool, "hosts.txt",
+                    path -> hostManager.loadFromFile(path), () -> hostManager.getAll().size());
+            CompletableFuture<Void> commercialProperties = load(pool, "commercial_properties.txt",
+                    path -> commercialPropertyManager.loadFromFile(path), () -> commercialPropertyManager.getAll().size());
+            CompletableFuture<Void> residentialProperties = load(pool, "residential_properties.txt",
+                    path -> residentialPropertyManager.loadFromFile(path), () -> residentialPropertyManager.getAll().size());
+
+            // Dependent files start as soon as the files they reference are loaded
+            FileLoad paymentsLoad = register("payments.txt",
+                    path -> paymentManager.loadFromFile(path, tenantManager), () -> paymentManager.getAll().size());
+            CompletableFuture<Void> payments = tenants.thenRunAsync(paymentsLoad::run, pool);
+            FileLoad agreementsLoad = register("rental_agreements.txt",
+                    path -> rentalAgreementManager.loadFromFile(path, ownerManager, tenantManager, hostManager,
+                            commercialPropertyManager, residentialPropertyManager),
+                    () -> rentalAgreementManager.getAll().size());
+            CompletableFuture<Void> agreements = CompletableFuture.allOf(owners, tenants, hosts, commercialProperties, residentialProperties)
+                    .thenRunAsync(agreementsLoad::run, pool);
+
+            CompletableFuture.allOf(payments, agreements).join();
+        } catch (CompletionException e) {
+            System.out.println("Error while loading data: " + e.getCause());
+            e.printStackTrace();
+        } finally {
+            pool.shutdown();
+        }
+        registry.markLoaded(); // Later reads link to these managers instead of loading the files again
+        report((System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the state saved in the data files to the snapshot, to be loaded on the next start.
+     * Called on a clean exit. The state is read from the files rather than taken from the managers,
+     * which may hold edits that were never saved, e.g. an update cancelled after the object was changed.
+     * Nothing is written when no data file changed since the snapshot was taken, or when one is missing.
+     */
+    public void saveSnapshot() {
+        if (!StorageOptions.SNAPSHOT_ENABLED || snapshotStore.isCurrent()) {
+            return;
+        }
+        for (String path : dataPaths()) {
+            if (!new File(path).isFile()) {
+                return; // Reading it would ask whether to create it
+            }
+        }
+        snapshotStore.write(StartupLoader::readSavedState);
+    }
+
+    // Read every entity list from the data files, the way the next start would
+    private static SnapshotStore.State readSavedState() {
+        FileEntityLookup files = new FileEntityLookup();
+        files.ensureLoaded();
+        return new SnapshotStore.State(files.tenants(), files.owners(), files.hosts(),
+                files.commercialProperties(), files.residentialProperties(),
+                new PaymentDAO(files).readFromFile(files.tenants()),
+                new RentalAgreementDAO(files).readFromFile(files.owners(), files.tenants(), files.hosts(),
+                        files.commercialProperties(), files.residentialProperties()));
+    }
+
+    // Fill every manager from the snapshot; false when it is missing, stale or damaged
+    private boolean loadSnapshot(long start) {
+        SnapshotStore.State state = snapshotStore.read();
+        if (state == null) {
+            return false;
+        }
+        tenantManager.restore(state.getTenants());
+        ownerManager.restore(state.getOwners());
+        hostManager.restore(state.getHosts());
+        commercialPropertyManager.restore(state.getCommercialProperties());
+        residentialPropertyManager.restore(state.getResidentialProperties());
+        paymentManager.restore(state::getPayments); // Decoded on first use
+        rentalAgreementManager.restore(state.getRentalAgreements());
+        System.out.println("Loaded " + SNAPSHOT_FILE + ": " + state.size() + " records in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return true;
+    }
+
+    // Paths of the data files the snapshot is taken from
+    private static List<String> dataPaths() {
+        List<String> paths = new ArrayList<>();
+        for (String fileName : DATA_FILES) {
+            paths.add(DIRECTORY + fileName);
+        }
+        return paths;
+    }
+
+    // Start an independent load on the pool; a missing file is loaded right away on this thread instead
+    private CompletableFuture<Void> load(ForkJoinPool pool, String fileName, Consumer<String> loader, IntSupplier count) {
+        FileLoad fileLoad = register(fileName, loader, count);
+        if (!new File(DIRECTORY + fileName).exists()) {
+            // Its DAO asks on System.in whether to create it, so the questions must come one at a time
+            fileLoad.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(fileLoad::run, pool);
+    }
+
+    // Remember a load so it appears in the report in declaration order
+    private FileLoad register(String fileName, Consumer<String> loader, IntSupplier count) {
+        FileLoad fileLoad = new FileLoad(fileName, loader, count);
+        loads.add(fileLoad);
+        return fileLoad;
+    }
+
+    // Print the time spent on each file and in total
+    private void report(long totalMillis) {
+        for (FileLoad fileLoad : loads) {
+            System.out.println("Loaded " + fileLoad.fileName + ": " + fileLoad.records + " records in " + fileLoad.millis + " ms");
+        }
+        System.out.println("Loaded " + loads.size() + " files in " + totalMillis + " ms");
+    }
+
+    /**
+     * One timed file load. The fields are written by the worker and read after join(), which orders them.
+     */
+    private static class FileLoad {
+        private final String fileName;
+        private final Consumer<String> loader;
+        private final IntSupplier count;
+        private long millis;
+        private int records;
+
+        FileLoad(String fileName, Consumer<String> loader, IntSupplier count) {
+            this.fileName = fileName;
+            this.loader = loader;
+            this.count = count;
+        }
+
+        void run() {
+            long start = System.nanoTime();
+            loader.accept(DIRECTORY + fileName);
+            millis = (System.nanoTime() - start) / 1_000_000;
+            records = count.getAsInt();
+        }
+    }
+}